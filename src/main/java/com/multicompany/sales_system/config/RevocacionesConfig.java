@@ -0,0 +1,26 @@
+package com.multicompany.sales_system.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.multicompany.sales_system.security.CanalRevocaciones;
+import com.multicompany.sales_system.security.CanalRevocacionesLocal;
+import com.multicompany.sales_system.service.BusLocal;
+
+/**
+ * Canal de revocaciones de token entre instancias. Por defecto es el sustituto en memoria sobre
+ * el {@link BusLocal}; otro canal (Redis, PostgreSQL NOTIFY, ...) solo tiene que declarar un
+ * bean {@link CanalRevocaciones}.
+ */
+@Configuration
+public class RevocacionesConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(CanalRevocaciones.class)
+    public CanalRevocaciones canalRevocacionesLocal(BusLocal bus,
+            @Value("${app.jwt.revocaciones.cluster:sales-system}") String nombreCluster) {
+        return new CanalRevocacionesLocal(bus, nombreCluster);
+    }
+}
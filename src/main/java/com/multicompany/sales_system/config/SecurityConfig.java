@@ -10,6 +10,7 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 
 import com.multicompany.sales_system.security.JwtAuthFilter;
 import com.multicompany.sales_system.security.JwtService;
+import com.multicompany.sales_system.security.RevocacionesToken;
 
 import lombok.RequiredArgsConstructor;
 
@@ -18,6 +19,7 @@ import lombok.RequiredArgsConstructor;
 public class SecurityConfig {
 
     private final JwtService jwtService;
+    private final RevocacionesToken revocacionesToken;
 
     @Bean
     SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -106,7 +108,7 @@ public class SecurityConfig {
                 // --- EL RESTO REQUIERE AUTENTICACIÓN ---
                 .anyRequest().authenticated()
             )
-            .addFilterBefore(new JwtAuthFilter(jwtService), UsernamePasswordAuthenticationFilter.class)
+            .addFilterBefore(new JwtAuthFilter(jwtService, revocacionesToken), UsernamePasswordAuthenticationFilter.class)
             .build();
     }
 
@@ -1,18 +1,67 @@
 package com.multicompany.sales_system.config;
 
+import com.multicompany.sales_system.config.broker.RelayCluster;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
+/**
+ * Broker STOMP del chat, elegido con {@code app.websocket.broker}:
+ * <ul>
+ * <li>simple: broker en memoria (una sola instancia).</li>
+ * <li>relay: broker externo (RabbitMQ, ActiveMQ...) por STOMP, con el cliente TCP de reactor-netty.</li>
+ * <li>cluster: broker en memoria más {@link RelayCluster}, que reenvía entre instancias.</li>
+ * </ul>
+ */
 @Configuration
 @EnableWebSocketMessageBroker
+@Slf4j
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final String modoBroker;
+    private final String relayHost;
+    private final int relayPort;
+    private final String relayLogin;
+    private final String relayPasscode;
+    private final ObjectProvider<RelayCluster> relayCluster;
+
+    public WebSocketConfig(@Value("${app.websocket.broker:simple}") String modoBroker,
+                           @Value("${app.websocket.relay.host:localhost}") String relayHost,
+                           @Value("${app.websocket.relay.port:61613}") int relayPort,
+                           @Value("${app.websocket.relay.login:guest}") String relayLogin,
+                           @Value("${app.websocket.relay.passcode:guest}") String relayPasscode,
+                           ObjectProvider<RelayCluster> relayCluster) {
+        this.modoBroker = modoBroker;
+        this.relayHost = relayHost;
+        this.relayPort = relayPort;
+        this.relayLogin = relayLogin;
+        this.relayPasscode = relayPasscode;
+        this.relayCluster = relayCluster;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic", "/queue");
+        switch (modoBroker) {
+            case "relay" -> config.enableStompBrokerRelay("/topic", "/queue")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(relayLogin)
+                    .setClientPasscode(relayPasscode)
+                    .setSystemLogin(relayLogin)
+                    .setSystemPasscode(relayPasscode);
+            case "cluster" -> {
+                config.enableSimpleBroker("/topic", "/queue");
+                config.configureBrokerChannel().interceptors(relayCluster.getObject());
+            }
+            case "simple" -> config.enableSimpleBroker("/topic", "/queue");
+            default -> throw new IllegalStateException("app.websocket.broker desconocido: " + modoBroker);
+        }
+        log.info("Broker STOMP del chat: {}", modoBroker);
         config.setApplicationDestinationPrefixes("/app");
         config.setUserDestinationPrefix("/user");
     }
@@ -23,4 +72,4 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,42 @@
+package com.multicompany.sales_system.config.broker;
+
+import com.multicompany.sales_system.service.BusLocal;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.util.StringUtils;
+
+import java.util.UUID;
+
+/**
+ * Beans del relay de cluster ({@code app.websocket.broker=cluster}).
+ *
+ * El transporte se elige con {@code app.websocket.cluster.transporte}; "local" es el sustituto
+ * en memoria sobre el {@link BusLocal} compartido. Otro transporte (Redis, PostgreSQL NOTIFY, ...)
+ * solo tiene que declarar un bean {@link TransporteCluster}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.websocket.broker", havingValue = "cluster")
+public class ClusterBrokerConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(TransporteCluster.class)
+    @ConditionalOnProperty(name = "app.websocket.cluster.transporte", havingValue = "local", matchIfMissing = true)
+    public TransporteCluster transporteLocal(BusLocal bus,
+                                             @Value("${app.websocket.cluster.nombre:sales-system}") String nombre) {
+        return new TransporteLocal(bus, nombre);
+    }
+
+    @Bean(initMethod = "iniciar", destroyMethod = "detener")
+    public RelayCluster relayCluster(TransporteCluster transporte,
+                                     @Qualifier("brokerChannel") ObjectProvider<MessageChannel> brokerChannel,
+                                     @Value("${app.websocket.cluster.nodo:}") String nodo) {
+        String idNodo = StringUtils.hasText(nodo) ? nodo : UUID.randomUUID().toString();
+        return new RelayCluster(idNodo, transporte, brokerChannel::getObject);
+    }
+}
@@ -0,0 +1,14 @@
+package com.multicompany.sales_system.config.broker;
+
+import lombok.Value;
+
+/**
+ * Mensaje del broker tal como viaja entre instancias: destino STOMP y cuerpo ya serializado.
+ */
+@Value
+public class MensajeCluster {
+    String nodoOrigen;
+    String destino;
+    String tipoContenido;
+    byte[] cuerpo;
+}
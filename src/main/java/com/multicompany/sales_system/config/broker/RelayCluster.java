@@ -0,0 +1,97 @@
+package com.multicompany.sales_system.config.broker;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Relay de cluster sobre el broker simple: cada instancia sigue entregando a sus propias
+ * sesiones y además reenvía por un {@link TransporteCluster} lo que la aplicación publica
+ * en /topic y /queue, para que las demás instancias lo entreguen a las suyas.
+ *
+ * Se instala como interceptor del brokerChannel (por donde pasa todo lo que envía
+ * SimpMessagingTemplate). Los mensajes recibidos de otro nodo llevan la cabecera
+ * {@link #CABECERA_ORIGEN} y no se vuelven a reenviar, así no hay bucles.
+ */
+@Slf4j
+public class RelayCluster implements ChannelInterceptor {
+
+    public static final String CABECERA_ORIGEN = "x-nodo-origen";
+
+    private final String idNodo;
+    private final TransporteCluster transporte;
+    private final Supplier<MessageChannel> brokerChannel;
+    private Runnable cancelarSuscripcion;
+
+    private final LongAdder reenviados = new LongAdder();
+    private final LongAdder recibidos = new LongAdder();
+
+    public RelayCluster(String idNodo, TransporteCluster transporte, Supplier<MessageChannel> brokerChannel) {
+        this.idNodo = idNodo;
+        this.transporte = transporte;
+        this.brokerChannel = brokerChannel;
+    }
+
+    public void iniciar() {
+        cancelarSuscripcion = transporte.suscribir(this::recibir);
+        log.info("Relay de cluster del chat iniciado en el nodo {}", idNodo);
+    }
+
+    public void detener() {
+        if (cancelarSuscripcion != null) {
+            cancelarSuscripcion.run();
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders cabeceras = message.getHeaders();
+        String destino = SimpMessageHeaderAccessor.getDestination(cabeceras);
+        if (SimpMessageHeaderAccessor.getMessageType(cabeceras) == SimpMessageType.MESSAGE
+                && destino != null
+                && !cabeceras.containsKey(CABECERA_ORIGEN)
+                && message.getPayload() instanceof byte[] cuerpo) {
+            Object tipo = cabeceras.get(MessageHeaders.CONTENT_TYPE);
+            transporte.publicar(new MensajeCluster(idNodo, destino, tipo != null ? tipo.toString() : null, cuerpo));
+            reenviados.increment();
+        }
+        return message;
+    }
+
+    void recibir(MensajeCluster mensaje) {
+        if (idNodo.equals(mensaje.getNodoOrigen())) {
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(mensaje.getDestino());
+        if (mensaje.getTipoContenido() != null) {
+            accessor.setContentType(MimeType.valueOf(mensaje.getTipoContenido()));
+        }
+        accessor.setHeader(CABECERA_ORIGEN, mensaje.getNodoOrigen());
+        brokerChannel.get().send(MessageBuilder.createMessage(mensaje.getCuerpo(), accessor.getMessageHeaders()));
+        recibidos.increment();
+    }
+
+    public String getIdNodo() {
+        return idNodo;
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nodo", idNodo);
+        stats.put("reenviados", reenviados.sum());
+        stats.put("recibidos", recibidos.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,21 @@
+package com.multicompany.sales_system.config.broker;
+
+import java.util.function.Consumer;
+
+/**
+ * Canal entre instancias de la aplicación para el relay de cluster del chat.
+ *
+ * Cada instancia publica los mensajes que su broker local envía a /topic y /queue, y
+ * recibe los de las demás para entregarlos a sus propias sesiones WebSocket. Una
+ * implementación debe entregar cada mensaje a todos los suscriptores (incluido el
+ * publicador, que lo descarta por su origen) y conservar el orden de un mismo publicador.
+ */
+public interface TransporteCluster {
+
+    void publicar(MensajeCluster mensaje);
+
+    /**
+     * Registrar el receptor de los mensajes del cluster. Devuelve una acción para cancelar la suscripción.
+     */
+    Runnable suscribir(Consumer<MensajeCluster> receptor);
+}
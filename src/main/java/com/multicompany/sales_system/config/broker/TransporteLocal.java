@@ -0,0 +1,33 @@
+package com.multicompany.sales_system.config.broker;
+
+import com.multicompany.sales_system.service.BusLocal;
+
+import java.util.function.Consumer;
+
+/**
+ * Transporte en memoria sobre el {@link BusLocal}: todas las instancias creadas con el mismo
+ * bus y nombre de cluster forman un cluster. Sirve para correr varios nodos en una sola
+ * máquina (pruebas, desarrollo); no comunica procesos distintos.
+ *
+ * La entrega es síncrona en el hilo del publicador, así que conserva su orden.
+ */
+public class TransporteLocal implements TransporteCluster {
+
+    private final BusLocal bus;
+    private final String tema;
+
+    public TransporteLocal(BusLocal bus, String nombreCluster) {
+        this.bus = bus;
+        this.tema = "websocket-cluster." + nombreCluster;
+    }
+
+    @Override
+    public void publicar(MensajeCluster mensaje) {
+        bus.publicar(tema, mensaje);
+    }
+
+    @Override
+    public Runnable suscribir(Consumer<MensajeCluster> receptor) {
+        return bus.suscribir(tema, mensaje -> receptor.accept((MensajeCluster) mensaje));
+    }
+}
@@ -1,21 +1,34 @@
 package com.multicompany.sales_system.controller;
 
 import com.multicompany.sales_system.dto.chat.ChatResponseDTO;
+import com.multicompany.sales_system.dto.chat.LecturaResponseDTO;
 import com.multicompany.sales_system.dto.message.MensajeResponseDTO;
 import com.multicompany.sales_system.service.ChatService;
+import com.multicompany.sales_system.service.EnvioMensajesChat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/chat")
 public class ChatController {
 
     private final ChatService chatService;
+    private final EnvioMensajesChat envioMensajesChat;
 
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, EnvioMensajesChat envioMensajesChat) {
         this.chatService = chatService;
+        this.envioMensajesChat = envioMensajesChat;
+    }
+
+    /**
+     * Estado del guardado por lotes de los mensajes enviados por WebSocket
+     */
+    @GetMapping("/envio-estadisticas")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasEnvio() {
+        return ResponseEntity.ok(envioMensajesChat.getEstadisticas());
     }
 
     @GetMapping("/usuario/{idUsuario}")
@@ -34,16 +47,30 @@ public class ChatController {
         return ResponseEntity.ok(chatService.obtenerMensajesPorChat(idChat));
     }
 
+    /**
+     * Historial paginado por cursor: del más reciente al más antiguo. Para cargar mensajes
+     * anteriores se envía {@code antesDe} = nextCursor de la respuesta previa.
+     */
+    @GetMapping("/{idChat}/mensajes/historial")
+    public ResponseEntity<?> obtenerHistorial(@PathVariable Long idChat,
+            @RequestParam(required = false) Long antesDe,
+            @RequestParam(defaultValue = "30") int limite) {
+        try {
+            return ResponseEntity.ok(chatService.obtenerMensajesPorChat(idChat, antesDe, limite));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/usuario/{idUsuario}/mensajes-no-leidos")
     public ResponseEntity<Integer> contarMensajesNoLeidos(@PathVariable Long idUsuario) {
         return ResponseEntity.ok(chatService.contarMensajesNoLeidos(idUsuario));
     }
 
     @PutMapping("/{idChat}/marcar-leido")
-    public ResponseEntity<Void> marcarMensajesComoLeidos(
+    public ResponseEntity<LecturaResponseDTO> marcarMensajesComoLeidos(
             @PathVariable Long idChat,
             @RequestParam Long usuarioId) {
-        chatService.marcarMensajesComoLeidos(idChat, usuarioId);
-        return ResponseEntity.ok().build();
+        return ResponseEntity.ok(chatService.marcarMensajesComoLeidos(idChat, usuarioId));
     }
 }
\ No newline at end of file
@@ -12,6 +12,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador para gestionar configuraciones del sistema.
@@ -127,4 +128,16 @@ public class ConfiguracionController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Métricas del snapshot de configuración en memoria (tasa de aciertos y antigüedad).
+     * 
+     * GET /api/configuracion/cache-estadisticas
+     * 
+     * @return mapa con aciertos, fallos, tasaAciertos, cargadoEn y antiguedadMs
+     */
+    @GetMapping("/cache-estadisticas")
+    public ResponseEntity<Map<String, Object>> getEstadisticasCache() {
+        return ResponseEntity.ok(configuracionService.getEstadisticasCache());
+    }
+
 }
@@ -1,11 +1,13 @@
 package com.multicompany.sales_system.controller;
 
 import com.multicompany.sales_system.dto.photo.PhotoResponseDTO;
+import com.multicompany.sales_system.service.DerivadosImagen;
+import com.multicompany.sales_system.service.EntregaImagenes;
 import com.multicompany.sales_system.service.PhotoService;
 import com.multicompany.sales_system.service.FileStorageService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -13,6 +15,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +28,8 @@ public class PhotoController {
 
     private final PhotoService photoService;
     private final FileStorageService fileStorageService;
+    private final EntregaImagenes entregaImagenes;
+    private final DerivadosImagen derivadosImagen;
 
     /**
      * Subir una sola foto para un producto
@@ -66,30 +71,52 @@ public class PhotoController {
 
     /**
      * Obtener una imagen por nombre de archivo
-     * GET /api/photos/image/{filename}
+     * GET /api/photos/image/{filename}?size=thumb|card|detail
+     * Admite caché condicional (ETag / Last-Modified) y rangos de bytes.
+     * Con size se envía la versión reducida en JPEG. Si aún se está generando se envía el
+     * original con una caché corta, para que el cliente pida el derivado más tarde.
      */
     @GetMapping("/image/{filename:.+}")
-    public ResponseEntity<Resource> getImage(@PathVariable String filename) {
-        try {
-            Resource resource = fileStorageService.loadFileAsResource(filename);
-
-            // Determinar el tipo de contenido
-            String contentType = "image/jpeg"; // Por defecto
-            if (filename.toLowerCase().endsWith(".png")) {
-                contentType = "image/png";
-            } else if (filename.toLowerCase().endsWith(".gif")) {
-                contentType = "image/gif";
-            } else if (filename.toLowerCase().endsWith(".webp")) {
-                contentType = "image/webp";
-            }
+    public void getImage(@PathVariable String filename,
+                         @RequestParam(required = false) String size,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        Path archivo = fileStorageService.resolverArchivo(filename);
+
+        // Determinar el tipo de contenido
+        String contentType = "image/jpeg"; // Por defecto
+        if (filename.toLowerCase().endsWith(".png")) {
+            contentType = "image/png";
+        } else if (filename.toLowerCase().endsWith(".gif")) {
+            contentType = "image/gif";
+        } else if (filename.toLowerCase().endsWith(".webp")) {
+            contentType = "image/webp";
+        }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                    .body(resource);
-        } catch (IOException e) {
-            throw new RuntimeException("Error al cargar la imagen: " + e.getMessage(), e);
+        if (size != null) {
+            Path derivado = derivadosImagen.obtener(archivo, DerivadosImagen.Tamano.desde(size));
+            if (derivado == null) {
+                entregaImagenes.entregar(archivo, contentType, request, response,
+                        EntregaImagenes.CACHE_CONTROL_PROVISIONAL);
+                return;
+            }
+            // Si no hay derivado (imagen ya pequeña o formato no legible) se envía el original
+            if (!derivado.equals(archivo)) {
+                entregaImagenes.entregar(derivado, "image/jpeg", request, response);
+                return;
+            }
         }
+
+        entregaImagenes.entregar(archivo, contentType, request, response);
+    }
+
+    /**
+     * Estadísticas de generación de derivados
+     * GET /api/photos/derivados-estadisticas
+     */
+    @GetMapping("/derivados-estadisticas")
+    public ResponseEntity<Map<String, Object>> getEstadisticasDerivados() {
+        return ResponseEntity.ok(derivadosImagen.getEstadisticas());
     }
 
     /**
@@ -1,8 +1,11 @@
 package com.multicompany.sales_system.controller;
 
+import com.multicompany.sales_system.dto.common.CursorPageDTO;
+import com.multicompany.sales_system.dto.product.OrdenListado;
 import com.multicompany.sales_system.dto.product.ProductRequestDTO;
 import com.multicompany.sales_system.dto.product.ProductResponseDTO;
 import com.multicompany.sales_system.model.enums.TipoProducto;
+import com.multicompany.sales_system.service.CatalogoCache;
 import com.multicompany.sales_system.service.ProductService;
 import com.multicompany.sales_system.service.PhotoService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -29,6 +32,7 @@ public class ProductController {
     private final ProductService productService;
     private final PhotoService photoService;
     private final ObjectMapper objectMapper;
+    private final CatalogoCache catalogoCache;
 
     /**
      * Crear producto CON fotos (mínimo 1, máximo 5)
@@ -181,6 +185,36 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    // Filtro combinado con paginación por cursor (scroll infinito): sin total ni OFFSET.
+    // Primera página sin cursor; las siguientes con el nextCursor de la respuesta.
+    @GetMapping("/scroll")
+    public ResponseEntity<CursorPageDTO<ProductResponseDTO>> getProductsWithFiltersCursor(
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) String tipo,
+            @RequestParam(required = false) String searchTerm,
+            @RequestParam(required = false) String ubicacion,
+            @RequestParam(required = false) Boolean disponibilidad,
+            @RequestParam(defaultValue = "RECIENTES") String orden,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        TipoProducto tipoEnum = null;
+        OrdenListado ordenEnum;
+        try {
+            if (tipo != null && !tipo.isEmpty()) {
+                tipoEnum = TipoProducto.valueOf(tipo.toUpperCase());
+            }
+            ordenEnum = OrdenListado.valueOf(orden.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+
+        CursorPageDTO<ProductResponseDTO> products = productService.getProductsWithFiltersCursor(
+                minPrice, maxPrice, tipoEnum, searchTerm, ubicacion, disponibilidad, ordenEnum, cursor, size);
+        return ResponseEntity.ok(products);
+    }
+
     // Endpoint específico para filtrar por rango de precio
     @GetMapping("/filter/price")
     public ResponseEntity<Page<ProductResponseDTO>> getProductsByPriceRange(
@@ -240,6 +274,14 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    /**
+     * Métricas de la caché del catálogo (aciertos, fallos, desalojos)
+     */
+    @GetMapping("/cache-estadisticas")
+    public ResponseEntity<Map<String, Object>> getEstadisticasCache() {
+        return ResponseEntity.ok(catalogoCache.getEstadisticas());
+    }
+
     @ExceptionHandler(RuntimeException.class)
     public ResponseEntity<String> handleRuntimeException(RuntimeException ex) {
         return ResponseEntity.badRequest().body(ex.getMessage());
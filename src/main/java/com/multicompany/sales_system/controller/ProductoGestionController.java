@@ -4,6 +4,8 @@ import com.multicompany.sales_system.dto.gestion.ApelacionRequestDTO;
 import com.multicompany.sales_system.dto.gestion.CambioEstadoRequestDTO;
 import com.multicompany.sales_system.dto.gestion.GestionResponseDTO;
 import com.multicompany.sales_system.dto.gestion.InteresRequestDTO;
+import com.multicompany.sales_system.dto.common.CursorPageDTO;
+import com.multicompany.sales_system.dto.interes.ProductoPopularDTO;
 import com.multicompany.sales_system.dto.product.ProductResponseDTO;
 import com.multicompany.sales_system.model.enums.EstadoProducto;
 import com.multicompany.sales_system.model.enums.TipoProducto;
@@ -18,6 +20,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -116,6 +119,22 @@ public class ProductoGestionController {
         return ResponseEntity.ok(productos);
     }
 
+    /**
+     * Obtener productos de interés de un usuario paginados por cursor (scroll infinito)
+     */
+    @GetMapping("/interes/usuario/{usuarioId}/scroll")
+    public ResponseEntity<CursorPageDTO<ProductResponseDTO>> obtenerProductosInteresCursor(
+            @PathVariable Long usuarioId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+
+        try {
+            return ResponseEntity.ok(productoInteresadoService.obtenerProductosInteresCursor(usuarioId, cursor, size));
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(null);
+        }
+    }
+
     /**
      * Obtener productos de interés filtrados por tipo
      */
@@ -165,8 +184,27 @@ public class ProductoGestionController {
      * Obtener productos más populares
      */
     @GetMapping("/interes/populares")
-    public ResponseEntity<Page<Object[]>> obtenerProductosMasPopulares(Pageable pageable) {
-        Page<Object[]> productos = productoInteresadoService.obtenerProductosMasPopulares(pageable);
+    public ResponseEntity<List<ProductoPopularDTO>> obtenerProductosMasPopulares(
+            @RequestParam(defaultValue = "20") int limite) {
+        List<ProductoPopularDTO> productos = productoInteresadoService.obtenerProductosMasPopulares(limite);
+        return ResponseEntity.ok(productos);
+    }
+
+    /**
+     * Métricas del buffer de "me interesa" (clics combinados, filas escritas, lotes)
+     */
+    @GetMapping("/interes/buffer-estadisticas")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasBuffer() {
+        return ResponseEntity.ok(productoInteresadoService.obtenerEstadisticasBuffer());
+    }
+
+    /**
+     * Obtener productos en tendencia (intereses recientes pesan más)
+     */
+    @GetMapping("/interes/tendencias")
+    public ResponseEntity<List<ProductoPopularDTO>> obtenerProductosTendencia(
+            @RequestParam(defaultValue = "20") int limite) {
+        List<ProductoPopularDTO> productos = productoInteresadoService.obtenerProductosTendencia(limite);
         return ResponseEntity.ok(productos);
     }
 
@@ -214,10 +252,12 @@ public class ProductoGestionController {
     @PostMapping("/restricciones/procesar-expirados")
     public ResponseEntity<Map<String, Object>> procesarProductosExpirados() {
         try {
-            int procesados = productoRestriccionService.procesarProductosExpirados();
+            ProductoRestriccionService.ResultadoExpiracion resultado = productoRestriccionService.expirarProductos();
             return ResponseEntity.ok(Map.of(
                     "mensaje", "Productos expirados procesados exitosamente",
-                    "productosProcessados", procesados));
+                    "productosProcessados", resultado.getProcesados(),
+                    "lotes", resultado.getLotes(),
+                    "duracionMs", resultado.getDuracionMs()));
         } catch (Exception e) {
             log.error("Error al procesar productos expirados: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
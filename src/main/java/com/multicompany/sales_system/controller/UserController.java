@@ -31,6 +31,7 @@ import com.multicompany.sales_system.dto.user.UserUpdateRequest;
 import com.multicompany.sales_system.dto.user.VerifyEmailRequest;
 import com.multicompany.sales_system.model.Usuario;
 import com.multicompany.sales_system.repository.UsuarioRepository;
+import com.multicompany.sales_system.security.UsuarioAutenticado;
 import com.multicompany.sales_system.service.UsuarioService;
 
 import jakarta.validation.Valid;
@@ -43,7 +44,6 @@ import lombok.RequiredArgsConstructor;
 public class UserController {
 
     private final UsuarioService usuarioService;
-    private final com.multicompany.sales_system.security.JwtService jwtService;
     private final UsuarioRepository usuarioRepo;
 
     // =========================
@@ -174,14 +174,14 @@ public ResponseEntity<RegisterResponse> createModerator(
     // =========================
     @PutMapping("/{cedula}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('MODERATOR')")
-    public ResponseEntity<UserResponse> updateUser(@PathVariable String cedula, @Valid @RequestBody UserUpdateRequest request, BindingResult br, @RequestHeader("Authorization") String token) {
+    public ResponseEntity<UserResponse> updateUser(@PathVariable String cedula, @Valid @RequestBody UserUpdateRequest request, BindingResult br, UsuarioAutenticado actual) {
         if (br.hasErrors()) {
             var first = br.getFieldErrors().get(0);
             return ResponseEntity.badRequest().body(null); // Or handle properly
         }
 
         // Obtener rol del usuario autenticado
-        String userRole = jwtService.getRole(token.replace("Bearer ", ""));
+        String userRole = actual.getRol();
 
         // Validar permisos para estado
         if (request.getEstado() != null) {
@@ -218,15 +218,13 @@ public ResponseEntity<RegisterResponse> createModerator(
     // Profile management (own profile)
     // =========================
     @GetMapping("/profile")
-    public ResponseEntity<UserResponse> getOwnProfile(@RequestHeader("Authorization") String token) {
-        // Extraer cédula del JWT token
-        String cedula = jwtService.extractCedula(token.replace("Bearer ", ""));
-        UserResponse user = usuarioService.getUserByCedula(cedula);
+    public ResponseEntity<UserResponse> getOwnProfile(UsuarioAutenticado actual) {
+        UserResponse user = usuarioService.getUserById(actual.getIdUsuario());
         return ResponseEntity.ok(user);
     }
 
     @PutMapping("/profile")
-    public ResponseEntity<UserResponse> updateOwnProfile(@RequestHeader("Authorization") String token,
+    public ResponseEntity<UserResponse> updateOwnProfile(UsuarioAutenticado actual,
                                                          @Valid @RequestBody UserUpdateRequest request,
                                                          BindingResult br) {
         if (br.hasErrors()) {
@@ -234,9 +232,7 @@ public ResponseEntity<RegisterResponse> createModerator(
             return ResponseEntity.badRequest().body(null);
         }
 
-        // Extraer cédula del JWT token
-        String cedula = jwtService.extractCedula(token.replace("Bearer ", ""));
-        UserResponse updated = usuarioService.updateOwnProfile(cedula, request);
+        UserResponse updated = usuarioService.updateOwnProfile(actual.getIdUsuario(), request);
         return ResponseEntity.ok(updated);
     }
 
@@ -1,9 +1,13 @@
 package com.multicompany.sales_system.controller;
 
+import com.multicompany.sales_system.dto.chat.LecturaResponseDTO;
+import com.multicompany.sales_system.dto.common.CursorPageDTO;
 import com.multicompany.sales_system.dto.message.MensajeRequestDTO;
 import com.multicompany.sales_system.dto.message.MensajeResponseDTO;
 import com.multicompany.sales_system.service.ChatService;
+import com.multicompany.sales_system.service.EnvioMensajesChat;
 
+import java.security.Principal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,50 +21,79 @@ import org.springframework.stereotype.Controller;
 public class WebSocketChatController {
 
     private final ChatService chatService;
+    private final EnvioMensajesChat envioMensajesChat;
     private final SimpMessagingTemplate messagingTemplate;
 
-    public WebSocketChatController(ChatService chatService, SimpMessagingTemplate messagingTemplate) {
+    public WebSocketChatController(ChatService chatService, EnvioMensajesChat envioMensajesChat,
+                                   SimpMessagingTemplate messagingTemplate) {
         this.chatService = chatService;
+        this.envioMensajesChat = envioMensajesChat;
         this.messagingTemplate = messagingTemplate;
     }
 
     @MessageMapping("/chat.enviar")
-    public void enviarMensaje(MensajeRequestDTO mensajeRequest) {
+    public void enviarMensaje(MensajeRequestDTO mensajeRequest, Principal principal) {
+        // Las colas /user se resuelven por el nombre del principal de la sesión (el correo)
+        String usuarioSesion = principal != null ? principal.getName() : null;
         try {
-            // Guardar el mensaje en la base de datos
-            MensajeResponseDTO mensajeGuardado = chatService.enviarMensaje(mensajeRequest);
+            // Validar y asignar id; el mensaje se guarda después, en lote
+            EnvioMensajesChat.MensajeAceptado aceptado = envioMensajesChat.aceptar(mensajeRequest, usuarioSesion);
 
             // Enviar a ambos usuarios del chat
             String destino = "/topic/chat." + mensajeRequest.getIdChat();
-            messagingTemplate.convertAndSend(destino, mensajeGuardado);
+            messagingTemplate.convertAndSend(destino, aceptado.getMensaje());
 
             // También enviar notificación individual al receptor
-            String destinoUsuario = "/queue/chat." + obtenerIdReceptor(mensajeRequest);
-            messagingTemplate.convertAndSend(destinoUsuario, mensajeGuardado);
+            String destinoUsuario = "/queue/chat." + aceptado.getIdReceptor();
+            messagingTemplate.convertAndSend(destinoUsuario, aceptado.getMensaje());
+
+        } catch (Exception e) {
+            // Enviar error al usuario emisor (sin sesión autenticada no hay cola a la que enviarlo)
+            if (usuarioSesion != null) {
+                String destinoError = "/user/queue/errors";
+                messagingTemplate.convertAndSendToUser(
+                        usuarioSesion,
+                        destinoError,
+                        "Error al enviar mensaje: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Cargar mensajes anteriores por WebSocket. Payload: idChat, idUsuario, antesDe (opcional)
+     * y limite (opcional). La página se envía a /queue/chat.historial.{idUsuario}.
+     */
+    @MessageMapping("/chat.historial")
+    public void obtenerHistorial(@Payload Map<String, Object> payload) {
+        Long idChat = Long.valueOf(payload.get("idChat").toString());
+        Long idUsuario = Long.valueOf(payload.get("idUsuario").toString());
+        Long antesDe = payload.get("antesDe") != null ? Long.valueOf(payload.get("antesDe").toString()) : null;
+        int limite = payload.get("limite") != null ? Integer.parseInt(payload.get("limite").toString()) : 30;
+
+        try {
+            CursorPageDTO<MensajeResponseDTO> pagina = chatService.obtenerMensajesPorChat(idChat, antesDe, limite);
+
+            Map<String, Object> respuesta = new HashMap<>();
+            respuesta.put("idChat", idChat);
+            respuesta.put("pagina", pagina);
+            messagingTemplate.convertAndSend("/queue/chat.historial." + idUsuario, respuesta);
 
         } catch (Exception e) {
-            // Enviar error al usuario emisor
             String destinoError = "/user/queue/errors";
             messagingTemplate.convertAndSendToUser(
-                    mensajeRequest.getIdEmisor().toString(),
+                    idUsuario.toString(),
                     destinoError,
-                    "Error al enviar mensaje: " + e.getMessage());
+                    "Error al cargar el historial: " + e.getMessage());
         }
     }
 
-    private Long obtenerIdReceptor(MensajeRequestDTO mensajeRequest) {
-        // Este método debería obtener el ID del receptor basado en el chat
-        // Lo implementaremos en el servicio
-        return chatService.obtenerIdReceptor(mensajeRequest.getIdChat(), mensajeRequest.getIdEmisor());
-    }
-
     @MessageMapping("/chat.marcar-leido")
     public void marcarMensajesLeidos(@Payload Map<String, Object> payload) {
         Long idChat = Long.valueOf(payload.get("idChat").toString());
         Long idUsuario = Long.valueOf(payload.get("idUsuario").toString());
 
         try {
-            chatService.marcarMensajesComoLeidos(idChat, idUsuario);
+            LecturaResponseDTO lectura = chatService.marcarMensajesComoLeidos(idChat, idUsuario);
 
             // Notificar al otro usuario que sus mensajes fueron leídos
             Long idOtroUsuario = chatService.obtenerIdReceptor(idChat, idUsuario);
@@ -68,6 +101,7 @@ public class WebSocketChatController {
 
             Map<String, Object> notificacion = new HashMap<>();
             notificacion.put("idChat", idChat);
+            notificacion.put("leidoHasta", lectura.getLeidoHasta());
             notificacion.put("timestamp", LocalDateTime.now());
             notificacion.put("mensaje", "Tus mensajes han sido leídos");
 
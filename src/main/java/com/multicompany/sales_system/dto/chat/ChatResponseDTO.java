@@ -3,6 +3,7 @@ package com.multicompany.sales_system.dto.chat;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
 import java.util.List;
 import com.multicompany.sales_system.dto.message.MensajeResponseDTO;
 
@@ -16,4 +17,15 @@ public class ChatResponseDTO {
     private Long idUsuario2;
     private String nombreUsuario2;
     private List<MensajeResponseDTO> mensajes;
+
+    // Resumen para la bandeja de entrada (relativo al usuario que consulta)
+    private Long idContraparte;
+    private String nombreContraparte;
+    private Long idUltimoMensaje;
+    private String ultimoMensaje;
+    private Long idEmisorUltimoMensaje;
+    private LocalDateTime fechaUltimoMensaje;
+    private Integer noLeidos;
+    /** Último mensaje leído por la contraparte (para mostrar los mensajes propios como leídos). */
+    private Long leidoHastaContraparte;
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.multicompany.sales_system.dto.chat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Resultado de marcar un chat como leído: cuántos mensajes pasaron a leídos y hasta qué
+ * mensaje ha leído el usuario (todo mensaje con id menor o igual está leído).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LecturaResponseDTO {
+    private Long idChat;
+    private Long idUsuario;
+    private int marcados;
+    private Long leidoHasta;
+}
@@ -0,0 +1,22 @@
+package com.multicompany.sales_system.dto.common;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de resultados con paginación por cursor (keyset): sin total de elementos.
+ * Para pedir la siguiente página se envía {@code nextCursor} tal cual.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> content;
+    /** Cursor opaco de la siguiente página (null si no hay más). */
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+}
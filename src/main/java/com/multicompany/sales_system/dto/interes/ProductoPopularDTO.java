@@ -0,0 +1,20 @@
+package com.multicompany.sales_system.dto.interes;
+
+import com.multicompany.sales_system.dto.product.ProductResponseDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Producto del ranking de populares/tendencias con sus contadores de interés.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductoPopularDTO {
+    private ProductResponseDTO producto;
+    /** Total de usuarios con "me interesa" en el producto */
+    private long totalIntereses;
+    /** Intereses recientes con decaimiento exponencial (vida media configurable) */
+    private double puntajeTendencia;
+}
@@ -8,7 +8,19 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 @AllArgsConstructor
 public class PhotoResponseDTO {
+    private static final String RUTA_IMAGEN = "/api/photos/image/";
+
     private Long idFoto;
     private String url;
     private Long idProducto;
-}
\ No newline at end of file
+
+    /** Versión de 160px para listas compactas (GET /api/photos/image/{url}?size=thumb). */
+    public String getUrlMiniatura() {
+        return url != null ? RUTA_IMAGEN + url + "?size=thumb" : null;
+    }
+
+    /** Versión de 480px para las tarjetas de los listados (GET /api/photos/image/{url}?size=card). */
+    public String getUrlTarjeta() {
+        return url != null ? RUTA_IMAGEN + url + "?size=card" : null;
+    }
+}
@@ -0,0 +1,14 @@
+package com.multicompany.sales_system.dto.product;
+
+/**
+ * Orden de los listados paginados por cursor. El ID del producto siempre
+ * desempata, así que el orden es total y estable.
+ */
+public enum OrdenListado {
+    /** fechaPublicacion descendente */
+    RECIENTES,
+    /** precio ascendente (sin precio cuenta como 0) */
+    PRECIO_ASC,
+    /** precio descendente (sin precio cuenta como 0) */
+    PRECIO_DESC
+}
@@ -0,0 +1,11 @@
+package com.multicompany.sales_system.event;
+
+import lombok.Value;
+
+/**
+ * Publicado por CategoriaService al crear, editar, activar/desactivar o eliminar una categoría.
+ */
+@Value
+public class CategoriaModificadaEvent {
+    Long idCategoria;
+}
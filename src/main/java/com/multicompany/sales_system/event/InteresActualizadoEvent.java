@@ -0,0 +1,12 @@
+package com.multicompany.sales_system.event;
+
+import lombok.Value;
+
+/**
+ * Publicado por ProductoInteresadoService al marcar o desmarcar "me interesa".
+ */
+@Value
+public class InteresActualizadoEvent {
+    Long idProducto;
+    boolean agregado;
+}
@@ -0,0 +1,15 @@
+package com.multicompany.sales_system.event;
+
+import lombok.Value;
+
+/**
+ * Publicado por ChatService al guardar un mensaje. Los oyentes transaccionales lo reciben
+ * después del commit.
+ */
+@Value
+public class MensajeEnviadoEvent {
+    Long idChat;
+    Long idMensaje;
+    Long idEmisor;
+    Long idReceptor;
+}
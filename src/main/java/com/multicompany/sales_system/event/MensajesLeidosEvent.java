@@ -0,0 +1,14 @@
+package com.multicompany.sales_system.event;
+
+import lombok.Value;
+
+/**
+ * Publicado por ChatService cuando un participante marca como leídos los mensajes de un chat.
+ * {@code leidoHasta} es el id del último mensaje leído (null si el chat no tiene mensajes).
+ */
+@Value
+public class MensajesLeidosEvent {
+    Long idChat;
+    Long idUsuario;
+    Long leidoHasta;
+}
@@ -0,0 +1,14 @@
+package com.multicompany.sales_system.event;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Publicado por ConfiguracionService cuando cambia la lista de palabras prohibidas.
+ * Lleva la lista completa ya guardada para que los oyentes no tengan que releerla.
+ */
+@Value
+public class PalabrasProhibidasActualizadasEvent {
+    List<String> palabras;
+}
@@ -0,0 +1,12 @@
+package com.multicompany.sales_system.event;
+
+import lombok.Value;
+
+/**
+ * Publicado cuando cambian los datos visibles de un producto (alta, edición, cambio de
+ * estado, fotos o eliminación). Los oyentes transaccionales lo reciben tras el commit.
+ */
+@Value
+public class ProductoModificadoEvent {
+    Long idProducto;
+}
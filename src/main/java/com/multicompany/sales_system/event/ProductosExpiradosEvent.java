@@ -0,0 +1,14 @@
+package com.multicompany.sales_system.event;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Publicado por cada lote de productos marcados como expirados (estado ELIMINADO).
+ * Los oyentes transaccionales lo reciben después del commit del lote.
+ */
+@Value
+public class ProductosExpiradosEvent {
+    List<Long> idsProductos;
+}
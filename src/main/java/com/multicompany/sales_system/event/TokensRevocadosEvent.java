@@ -0,0 +1,15 @@
+package com.multicompany.sales_system.event;
+
+import java.time.LocalDateTime;
+
+import lombok.Value;
+
+/**
+ * Publicado por UsuarioService cuando cambian el estado o el rol de un usuario: los tokens
+ * emitidos antes de {@code antesDe} llevan claims que ya no son válidos.
+ */
+@Value
+public class TokensRevocadosEvent {
+    Long idUsuario;
+    LocalDateTime antesDe;
+}
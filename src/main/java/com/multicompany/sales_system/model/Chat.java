@@ -3,11 +3,14 @@ package com.multicompany.sales_system.model;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
 @Entity
-@Table(name = "chat")
+@Table(name = "chat",
+       // Los participantes se guardan como (menor, mayor): un único chat por pareja
+       uniqueConstraints = @UniqueConstraint(name = "uk_chat_usuarios", columnNames = { "id_usuario1", "id_usuario2" }))
 public class Chat {
 
     @Id
@@ -24,4 +27,25 @@ public class Chat {
 
     @OneToMany(mappedBy = "chat", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Mensaje> mensajes;
+
+    // Resumen para la bandeja de entrada: se actualiza al enviar y al leer mensajes,
+    // así la bandeja no depende del tamaño del historial
+    private Long idUltimoMensaje;
+
+    private String ultimoMensaje;
+
+    private Long idEmisorUltimoMensaje;
+
+    private LocalDateTime fechaUltimoMensaje;
+
+    @Column(columnDefinition = "integer not null default 0")
+    private Integer noLeidosUsuario1 = 0;
+
+    @Column(columnDefinition = "integer not null default 0")
+    private Integer noLeidosUsuario2 = 0;
+
+    // Id del último mensaje leído por cada participante (todo lo anterior también está leído)
+    private Long leidoHastaUsuario1;
+
+    private Long leidoHastaUsuario2;
 }
@@ -6,18 +6,22 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "mensaje")
+@Table(name = "mensaje",
+       indexes = {
+               @Index(name = "ix_mensaje_chat_fecha", columnList = "id_chat, fecha_envio, id_mensaje"),
+               @Index(name = "ix_mensaje_chat_id", columnList = "id_chat, id_mensaje")
+       })
 public class Mensaje {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long idMensaje;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_chat")
     private Chat chat;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_emisor")
     private Usuario emisor;
 
@@ -89,6 +89,10 @@ public class Usuario {
     @Column(name = "fecha_registro", nullable = false)
     private LocalDateTime fechaRegistro = LocalDateTime.now();
 
+    // Los tokens emitidos antes de esta fecha ya no son válidos (suspensión, eliminación, cambio de rol)
+    @Column(name = "tokens_revocados_antes_de")
+    private LocalDateTime tokensRevocadosAntesDe;
+
     @PrePersist
     protected void onCreate() {
         if (fechaRegistro == null) fechaRegistro = LocalDateTime.now();
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -50,6 +51,14 @@ public interface CategoriaRepository extends JpaRepository<Categoria, Long> {
     @Query("SELECT COUNT(p) FROM Producto p WHERE p.categoria.idCategoria = :categoriaId")
     Long countProductosByCategoriaId(@Param("categoriaId") Long categoriaId);
 
+    /**
+     * Contar productos de varias categorías en una sola consulta: [idCategoria, cantidad].
+     * Las categorías sin productos no aparecen.
+     */
+    @Query("SELECT p.categoria.idCategoria, COUNT(p) FROM Producto p " +
+            "WHERE p.categoria.idCategoria IN :categoriaIds GROUP BY p.categoria.idCategoria")
+    List<Object[]> countProductosByCategoriaIds(@Param("categoriaIds") Collection<Long> categoriaIds);
+
     /**
      * Verificar si una categoría tiene productos asociados
      */
@@ -2,19 +2,136 @@ package com.multicompany.sales_system.repository;
 
 import com.multicompany.sales_system.model.Chat;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ChatRepository extends JpaRepository<Chat, Long> {
 
-    @Query("SELECT c FROM Chat c WHERE (c.usuario1.idUsuario = :idUsuario1 AND c.usuario2.idUsuario = :idUsuario2) OR (c.usuario1.idUsuario = :idUsuario2 AND c.usuario2.idUsuario = :idUsuario1)")
-    Optional<Chat> findByUsuarios(@Param("idUsuario1") Long idUsuario1, @Param("idUsuario2") Long idUsuario2);
+    /**
+     * Chat entre dos usuarios. Los participantes se guardan como (menor, mayor), así que
+     * basta una búsqueda por el índice único
+     */
+    @Query("SELECT c FROM Chat c JOIN FETCH c.usuario1 JOIN FETCH c.usuario2 " +
+            "WHERE c.usuario1.idUsuario = :menor AND c.usuario2.idUsuario = :mayor")
+    Optional<Chat> findByParticipantes(@Param("menor") Long menor, @Param("mayor") Long mayor);
+
+    @Query("SELECT c.idChat FROM Chat c WHERE c.usuario1.idUsuario = :menor AND c.usuario2.idUsuario = :mayor")
+    Optional<Long> findIdByParticipantes(@Param("menor") Long menor, @Param("mayor") Long mayor);
+
+    /**
+     * Crear el chat entre (menor, mayor) si no existe. Dos peticiones simultáneas no crean
+     * chats duplicados: la segunda no inserta nada
+     */
+    @Modifying
+    @Query(value = "INSERT INTO chat (id_usuario1, id_usuario2, no_leidos_usuario1, no_leidos_usuario2) " +
+            "VALUES (:menor, :mayor, 0, 0) ON CONFLICT (id_usuario1, id_usuario2) DO NOTHING", nativeQuery = true)
+    int crearSiNoExiste(@Param("menor") Long menor, @Param("mayor") Long mayor);
+
+    /**
+     * Ordenar los participantes de los chats antiguos como (menor, mayor), con sus contadores
+     * y marcas de lectura. Si ya existe el chat en el otro orden se deja como está
+     */
+    @Modifying
+    @Query(value = "UPDATE chat c SET id_usuario1 = c.id_usuario2, id_usuario2 = c.id_usuario1, " +
+            "no_leidos_usuario1 = c.no_leidos_usuario2, no_leidos_usuario2 = c.no_leidos_usuario1, " +
+            "leido_hasta_usuario1 = c.leido_hasta_usuario2, leido_hasta_usuario2 = c.leido_hasta_usuario1 " +
+            "WHERE c.id_usuario1 > c.id_usuario2 AND NOT EXISTS (SELECT 1 FROM chat o " +
+            "    WHERE o.id_usuario1 = c.id_usuario2 AND o.id_usuario2 = c.id_usuario1)", nativeQuery = true)
+    int normalizarParticipantes();
 
     @Query("SELECT c FROM Chat c WHERE c.usuario1.idUsuario = :idUsuario OR c.usuario2.idUsuario = :idUsuario")
     List<Chat> findByUsuarioId(@Param("idUsuario") Long idUsuario);
+
+    /**
+     * Participantes de un chat: [idUsuario1, nombre1, idUsuario2, nombre2]
+     */
+    @Query("SELECT u1.idUsuario, u1.nombre, u2.idUsuario, u2.nombre FROM Chat c " +
+            "JOIN c.usuario1 u1 JOIN c.usuario2 u2 WHERE c.idChat = :idChat")
+    List<Object[]> findParticipantes(@Param("idChat") Long idChat);
+
+    /**
+     * Bandeja de entrada: chats del usuario con ambos participantes, el más activo primero
+     */
+    @Query("SELECT c FROM Chat c JOIN FETCH c.usuario1 JOIN FETCH c.usuario2 " +
+            "WHERE c.usuario1.idUsuario = :idUsuario OR c.usuario2.idUsuario = :idUsuario " +
+            "ORDER BY c.fechaUltimoMensaje DESC NULLS LAST, c.idChat DESC")
+    List<Chat> findBandejaByUsuario(@Param("idUsuario") Long idUsuario);
+
+    /**
+     * Registrar un mensaje nuevo como último mensaje del chat. Un mensaje que confirma tarde
+     * no reemplaza a uno más nuevo. El orden es (fecha de envío, id), como en el historial:
+     * cada instancia reserva sus propios bloques de ids. Los no leídos los mantiene
+     * ContadoresNoLeidos.
+     */
+    @Modifying
+    @Query("UPDATE Chat c SET " +
+            "c.ultimoMensaje = :contenido, c.idEmisorUltimoMensaje = :idEmisor, " +
+            "c.fechaUltimoMensaje = :fechaEnvio, c.idUltimoMensaje = :idMensaje " +
+            "WHERE c.idChat = :idChat AND (c.fechaUltimoMensaje IS NULL OR c.fechaUltimoMensaje < :fechaEnvio " +
+            "OR (c.fechaUltimoMensaje = :fechaEnvio AND c.idUltimoMensaje < :idMensaje))")
+    int registrarMensaje(@Param("idChat") Long idChat,
+            @Param("idMensaje") Long idMensaje,
+            @Param("contenido") String contenido,
+            @Param("idEmisor") Long idEmisor,
+            @Param("fechaEnvio") LocalDateTime fechaEnvio);
+
+    /**
+     * No leídos de cada chat del usuario: [idChat, noLeidos]
+     */
+    @Query("SELECT c.idChat, CASE WHEN c.usuario1.idUsuario = :idUsuario " +
+            "THEN c.noLeidosUsuario1 ELSE c.noLeidosUsuario2 END FROM Chat c " +
+            "WHERE c.usuario1.idUsuario = :idUsuario OR c.usuario2.idUsuario = :idUsuario")
+    List<Object[]> findNoLeidosByUsuario(@Param("idUsuario") Long idUsuario);
+
+    /**
+     * Estado de lectura de un participante: [idUltimoMensaje, fechaUltimoMensaje, leidoHasta del usuario]
+     */
+    @Query("SELECT c.idUltimoMensaje, c.fechaUltimoMensaje, CASE WHEN c.usuario1.idUsuario = :idUsuario " +
+            "THEN c.leidoHastaUsuario1 ELSE c.leidoHastaUsuario2 END FROM Chat c " +
+            "WHERE c.idChat = :idChat AND (c.usuario1.idUsuario = :idUsuario OR c.usuario2.idUsuario = :idUsuario)")
+    List<Object[]> findEstadoLectura(@Param("idChat") Long idChat, @Param("idUsuario") Long idUsuario);
+
+    /**
+     * Poner a cero los no leídos de un participante al marcar el chat como leído
+     */
+    @Modifying
+    @Query("UPDATE Chat c SET " +
+            "c.noLeidosUsuario1 = CASE WHEN c.usuario1.idUsuario = :idUsuario THEN 0 ELSE c.noLeidosUsuario1 END, " +
+            "c.noLeidosUsuario2 = CASE WHEN c.usuario2.idUsuario = :idUsuario THEN 0 ELSE c.noLeidosUsuario2 END " +
+            "WHERE c.idChat = :idChat")
+    int reiniciarNoLeidos(@Param("idChat") Long idChat, @Param("idUsuario") Long idUsuario);
+
+    /**
+     * Poner la marca de lectura de un participante en el último mensaje del chat. Los ids no
+     * se comparan entre sí: no siguen el orden de envío entre instancias.
+     */
+    @Modifying
+    @Query("UPDATE Chat c SET " +
+            "c.leidoHastaUsuario1 = CASE WHEN c.usuario1.idUsuario = :idUsuario THEN :hasta ELSE c.leidoHastaUsuario1 END, " +
+            "c.leidoHastaUsuario2 = CASE WHEN c.usuario2.idUsuario = :idUsuario THEN :hasta ELSE c.leidoHastaUsuario2 END " +
+            "WHERE c.idChat = :idChat")
+    int actualizarLeidoHasta(@Param("idChat") Long idChat, @Param("idUsuario") Long idUsuario,
+            @Param("hasta") Long hasta);
+
+    /**
+     * Completar el resumen de los chats creados antes de que existiera (una sola vez por chat)
+     */
+    @Modifying
+    @Query(value = "UPDATE chat c SET id_ultimo_mensaje = m.id_mensaje, ultimo_mensaje = m.contenido, " +
+            "id_emisor_ultimo_mensaje = m.id_emisor, fecha_ultimo_mensaje = m.fecha_envio, " +
+            "no_leidos_usuario1 = (SELECT COUNT(*) FROM mensaje x WHERE x.id_chat = c.id_chat " +
+            "    AND x.leido = false AND x.id_emisor <> c.id_usuario1), " +
+            "no_leidos_usuario2 = (SELECT COUNT(*) FROM mensaje x WHERE x.id_chat = c.id_chat " +
+            "    AND x.leido = false AND x.id_emisor <> c.id_usuario2) " +
+            "FROM (SELECT DISTINCT ON (id_chat) id_chat, id_mensaje, contenido, id_emisor, fecha_envio " +
+            "      FROM mensaje ORDER BY id_chat, fecha_envio DESC, id_mensaje DESC) m " +
+            "WHERE m.id_chat = c.id_chat AND c.id_ultimo_mensaje IS NULL", nativeQuery = true)
+    int completarResumenes();
 }
\ No newline at end of file
@@ -1,22 +1,60 @@
 package com.multicompany.sales_system.repository;
 
 import com.multicompany.sales_system.model.Mensaje;
+import com.multicompany.sales_system.repository.projection.MensajeResumen;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface MensajeRepository extends JpaRepository<Mensaje, Long> {
 
-    List<Mensaje> findByChatIdChatOrderByFechaEnvioAsc(Long chatId);
+    String SELECT_RESUMEN = "SELECT m.idMensaje AS idMensaje, m.chat.idChat AS idChat, " +
+            "e.idUsuario AS idEmisor, e.nombre AS nombreEmisor, m.contenido AS contenido, " +
+            "m.fechaEnvio AS fechaEnvio, m.leido AS leido " +
+            "FROM Mensaje m JOIN m.emisor e ";
 
-    List<Mensaje> findByChatIdChatAndLeidoFalseAndEmisorIdUsuarioNot(Long chatId, Long emisorId);
+    /**
+     * Historial completo de un chat en orden cronológico
+     */
+    @Query(SELECT_RESUMEN + "WHERE m.chat.idChat = :idChat ORDER BY m.fechaEnvio ASC, m.idMensaje ASC")
+    List<MensajeResumen> findResumenesByChat(@Param("idChat") Long idChat);
 
-    @Query("SELECT COUNT(m) FROM Mensaje m WHERE m.leido = false AND " +
-            "((m.chat.usuario1.idUsuario = :idUsuario OR m.chat.usuario2.idUsuario = :idUsuario) AND " +
-            "m.emisor.idUsuario != :idUsuario)")
-    Integer countMensajesNoLeidosPorUsuario(@Param("idUsuario") Long idUsuario);
-}
\ No newline at end of file
+    /**
+     * Página de historial, del más reciente al más antiguo, anterior al mensaje
+     * {@code antesDe} (null = desde el último). Usa el índice (id_chat, fecha_envio, id_mensaje).
+     */
+    @Query(SELECT_RESUMEN + "WHERE m.chat.idChat = :idChat AND (:fechaCursor IS NULL " +
+            "OR m.fechaEnvio < :fechaCursor " +
+            "OR (m.fechaEnvio = :fechaCursor AND m.idMensaje < :antesDe)) " +
+            "ORDER BY m.fechaEnvio DESC, m.idMensaje DESC")
+    List<MensajeResumen> findResumenesByChatAntesDe(@Param("idChat") Long idChat,
+            @Param("fechaCursor") LocalDateTime fechaCursor,
+            @Param("antesDe") Long antesDe,
+            Pageable pageable);
+
+    @Query("SELECT m.fechaEnvio FROM Mensaje m WHERE m.idMensaje = :idMensaje AND m.chat.idChat = :idChat")
+    Optional<LocalDateTime> findFechaEnvio(@Param("idChat") Long idChat, @Param("idMensaje") Long idMensaje);
+
+    /**
+     * Marcar como leídos, en una sola sentencia, los mensajes recibidos por el usuario enviados
+     * hasta {@code hasta} (la fecha del último mensaje del chat). No se parte de la marca de
+     * lectura anterior: un mensaje anterior puede confirmarse después de ella y también debe
+     * quedar leído. La condición {@code leido = false} la resuelve el índice parcial
+     * ix_mensaje_chat_no_leido (creado en ChatServiceImpl), así que solo se recorren los
+     * mensajes aún no leídos del chat.
+     */
+    @Modifying
+    @Query("UPDATE Mensaje m SET m.leido = true WHERE m.chat.idChat = :idChat " +
+            "AND m.fechaEnvio <= :hasta AND m.leido = false AND m.emisor.idUsuario <> :idUsuario")
+    int marcarLeidos(@Param("idChat") Long idChat,
+            @Param("idUsuario") Long idUsuario,
+            @Param("hasta") LocalDateTime hasta);
+}
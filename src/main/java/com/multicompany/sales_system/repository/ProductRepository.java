@@ -2,11 +2,13 @@ package com.multicompany.sales_system.repository;
 
 import com.multicompany.sales_system.model.Producto;
 import com.multicompany.sales_system.model.enums.TipoProducto;
+import com.multicompany.sales_system.repository.projection.ProductoResumen;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,38 +34,59 @@ public interface ProductRepository extends JpaRepository<Producto, Long> {
         @Query("SELECT p FROM Producto p WHERE p.tipo = :tipo AND p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO")
         List<Producto> findByTipoAndActive(@Param("tipo") TipoProducto tipo);
 
-        // NUEVOS MÉTODOS CON FILTROS Y PAGINACIÓN
+        // LISTADOS (proyección ProductoResumen: columnas de la tarjeta + primera foto)
+
+        String SELECT_RESUMEN = "SELECT p.idProducto AS idProducto, p.codigo AS codigo, p.nombre AS nombre, " +
+                        "p.descripcion AS descripcion, p.precio AS precio, p.ubicacion AS ubicacion, " +
+                        "p.disponibilidad AS disponibilidad, p.tipo AS tipo, p.estado AS estado, " +
+                        "p.fechaPublicacion AS fechaPublicacion, " +
+                        "v.idUsuario AS idVendedor, v.nombre AS nombreVendedor, " +
+                        "c.idCategoria AS idCategoria, c.nombre AS nombreCategoria, " +
+                        "f.idFoto AS idFotoPrincipal, f.url AS urlFotoPrincipal " +
+                        "FROM Producto p LEFT JOIN p.vendedor v LEFT JOIN p.categoria c " +
+                        "LEFT JOIN FotoProducto f ON f.idFoto = " +
+                        "    (SELECT MIN(f2.idFoto) FROM FotoProducto f2 WHERE f2.producto = p) ";
+
+        String ACTIVO = "p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO ";
+
+        // Todos los productos (cualquier estado)
+        @Query(value = SELECT_RESUMEN, countQuery = "SELECT COUNT(p) FROM Producto p")
+        Page<ProductoResumen> findAllResumenes(Pageable pageable);
+
+        // Resúmenes de los IDs indicados (sin orden garantizado)
+        @Query(SELECT_RESUMEN + "WHERE p.idProducto IN :ids")
+        List<ProductoResumen> findResumenesByIdIn(@Param("ids") Collection<Long> ids);
+
+        // Productos de un vendedor
+        @Query(SELECT_RESUMEN + "WHERE v.idUsuario = :vendedorId")
+        List<ProductoResumen> findResumenesByVendedor(@Param("vendedorId") Long vendedorId);
 
         // Filtrar por rango de precio
-        @Query("SELECT p FROM Producto p WHERE p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO "
-                        +
-                        "AND p.precio BETWEEN :minPrice AND :maxPrice")
-        Page<Producto> findByPrecioBetween(@Param("minPrice") Double minPrice, @Param("maxPrice") Double maxPrice,
-                        Pageable pageable);
+        @Query(value = SELECT_RESUMEN + "WHERE " + ACTIVO + "AND p.precio BETWEEN :minPrice AND :maxPrice",
+                        countQuery = "SELECT COUNT(p) FROM Producto p WHERE " + ACTIVO
+                                        + "AND p.precio BETWEEN :minPrice AND :maxPrice")
+        Page<ProductoResumen> findByPrecioBetween(@Param("minPrice") Double minPrice,
+                        @Param("maxPrice") Double maxPrice, Pageable pageable);
 
         // Filtrar por precio mínimo
-        @Query("SELECT p FROM Producto p WHERE p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO "
-                        +
-                        "AND p.precio >= :minPrice")
-        Page<Producto> findByPrecioGreaterThanEqual(@Param("minPrice") Double minPrice, Pageable pageable);
+        @Query(value = SELECT_RESUMEN + "WHERE " + ACTIVO + "AND p.precio >= :minPrice",
+                        countQuery = "SELECT COUNT(p) FROM Producto p WHERE " + ACTIVO + "AND p.precio >= :minPrice")
+        Page<ProductoResumen> findByPrecioGreaterThanEqual(@Param("minPrice") Double minPrice, Pageable pageable);
 
         // Filtrar por precio máximo
-        @Query("SELECT p FROM Producto p WHERE p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO "
-                        +
-                        "AND p.precio <= :maxPrice")
-        Page<Producto> findByPrecioLessThanEqual(@Param("maxPrice") Double maxPrice, Pageable pageable);
+        @Query(value = SELECT_RESUMEN + "WHERE " + ACTIVO + "AND p.precio <= :maxPrice",
+                        countQuery = "SELECT COUNT(p) FROM Producto p WHERE " + ACTIVO + "AND p.precio <= :maxPrice")
+        Page<ProductoResumen> findByPrecioLessThanEqual(@Param("maxPrice") Double maxPrice, Pageable pageable);
 
         // Filtrar por tipo con paginación
-        @Query("SELECT p FROM Producto p WHERE p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO "
-                        +
-                        "AND p.tipo = :tipo")
-        Page<Producto> findByTipoAndEstadoActivo(@Param("tipo") TipoProducto tipo, Pageable pageable);
+        @Query(value = SELECT_RESUMEN + "WHERE " + ACTIVO + "AND p.tipo = :tipo",
+                        countQuery = "SELECT COUNT(p) FROM Producto p WHERE " + ACTIVO + "AND p.tipo = :tipo")
+        Page<ProductoResumen> findByTipoAndEstadoActivo(@Param("tipo") TipoProducto tipo, Pageable pageable);
 
         // Filtrar por ubicación
-        @Query("SELECT p FROM Producto p WHERE p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO "
-                        +
-                        "AND p.ubicacion LIKE :ubicacion")
-        Page<Producto> findByUbicacionContaining(@Param("ubicacion") String ubicacion, Pageable pageable);
+        @Query(value = SELECT_RESUMEN + "WHERE " + ACTIVO + "AND p.ubicacion LIKE :ubicacion",
+                        countQuery = "SELECT COUNT(p) FROM Producto p WHERE " + ACTIVO + "AND p.ubicacion LIKE :ubicacion")
+        Page<ProductoResumen> findByUbicacionContaining(@Param("ubicacion") String ubicacion, Pageable pageable);
 
         // Búsqueda por texto con paginación
         @Query("SELECT p FROM Producto p WHERE p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO "
@@ -73,8 +96,7 @@ public interface ProductRepository extends JpaRepository<Producto, Long> {
         Page<Producto> findByNombreOrDescripcionContaining(@Param("searchTerm") String searchTerm, Pageable pageable);
 
         // FILTRO COMBINADO AVANZADO
-        @Query("SELECT p FROM Producto p WHERE p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO "
-                        +
+        String FILTROS = "WHERE " + ACTIVO +
                         "AND (:minPrice IS NULL OR p.precio >= :minPrice) " +
                         "AND (:maxPrice IS NULL OR p.precio <= :maxPrice) " +
                         "AND (:tipo IS NULL OR p.tipo = :tipo) " +
@@ -82,8 +104,10 @@ public interface ProductRepository extends JpaRepository<Producto, Long> {
                         "     p.nombre LIKE :searchTerm OR " +
                         "     p.descripcion LIKE :searchTerm) " +
                         "AND (:ubicacion IS NULL OR p.ubicacion LIKE :ubicacion) " +
-                        "AND (:disponibilidad IS NULL OR p.disponibilidad = :disponibilidad)")
-        Page<Producto> findWithFilters(@Param("minPrice") Double minPrice,
+                        "AND (:disponibilidad IS NULL OR p.disponibilidad = :disponibilidad)";
+
+        @Query(value = SELECT_RESUMEN + FILTROS, countQuery = "SELECT COUNT(p) FROM Producto p " + FILTROS)
+        Page<ProductoResumen> findWithFilters(@Param("minPrice") Double minPrice,
                         @Param("maxPrice") Double maxPrice,
                         @Param("tipo") TipoProducto tipo,
                         @Param("searchTerm") String searchTerm,
@@ -91,8 +115,57 @@ public interface ProductRepository extends JpaRepository<Producto, Long> {
                         @Param("disponibilidad") Boolean disponibilidad,
                         Pageable pageable);
 
+        // PAGINACIÓN POR CURSOR (keyset): mismos filtros, sin COUNT ni OFFSET.
+        // El Pageable solo limita el número de filas; el orden lo fija la consulta.
+
+        @Query(SELECT_RESUMEN + FILTROS +
+                        " AND (:fechaCursor IS NULL OR p.fechaPublicacion < :fechaCursor " +
+                        "      OR (p.fechaPublicacion = :fechaCursor AND p.idProducto < :idCursor)) " +
+                        "ORDER BY p.fechaPublicacion DESC, p.idProducto DESC")
+        List<ProductoResumen> findWithFiltersRecientesKeyset(@Param("minPrice") Double minPrice,
+                        @Param("maxPrice") Double maxPrice,
+                        @Param("tipo") TipoProducto tipo,
+                        @Param("searchTerm") String searchTerm,
+                        @Param("ubicacion") String ubicacion,
+                        @Param("disponibilidad") Boolean disponibilidad,
+                        @Param("fechaCursor") java.time.LocalDateTime fechaCursor,
+                        @Param("idCursor") Long idCursor,
+                        Pageable limite);
+
+        @Query(SELECT_RESUMEN + FILTROS +
+                        " AND (:precioCursor IS NULL OR COALESCE(p.precio, 0) > :precioCursor " +
+                        "      OR (COALESCE(p.precio, 0) = :precioCursor AND p.idProducto > :idCursor)) " +
+                        "ORDER BY COALESCE(p.precio, 0) ASC, p.idProducto ASC")
+        List<ProductoResumen> findWithFiltersPrecioAscKeyset(@Param("minPrice") Double minPrice,
+                        @Param("maxPrice") Double maxPrice,
+                        @Param("tipo") TipoProducto tipo,
+                        @Param("searchTerm") String searchTerm,
+                        @Param("ubicacion") String ubicacion,
+                        @Param("disponibilidad") Boolean disponibilidad,
+                        @Param("precioCursor") Double precioCursor,
+                        @Param("idCursor") Long idCursor,
+                        Pageable limite);
+
+        @Query(SELECT_RESUMEN + FILTROS +
+                        " AND (:precioCursor IS NULL OR COALESCE(p.precio, 0) < :precioCursor " +
+                        "      OR (COALESCE(p.precio, 0) = :precioCursor AND p.idProducto < :idCursor)) " +
+                        "ORDER BY COALESCE(p.precio, 0) DESC, p.idProducto DESC")
+        List<ProductoResumen> findWithFiltersPrecioDescKeyset(@Param("minPrice") Double minPrice,
+                        @Param("maxPrice") Double maxPrice,
+                        @Param("tipo") TipoProducto tipo,
+                        @Param("searchTerm") String searchTerm,
+                        @Param("ubicacion") String ubicacion,
+                        @Param("disponibilidad") Boolean disponibilidad,
+                        @Param("precioCursor") Double precioCursor,
+                        @Param("idCursor") Long idCursor,
+                        Pageable limite);
+
         // NUEVOS MÉTODOS PARA GESTIÓN DE ESTADOS Y RESTRICCIONES
 
+        // Estado actual de un producto
+        @Query("SELECT p.estado FROM Producto p WHERE p.idProducto = :id")
+        Optional<com.multicompany.sales_system.model.enums.EstadoProducto> findEstadoById(@Param("id") Long id);
+
         // Buscar productos por estado
         List<Producto> findByEstado(com.multicompany.sales_system.model.enums.EstadoProducto estado);
 
@@ -104,4 +177,76 @@ public interface ProductRepository extends JpaRepository<Producto, Long> {
                         "AND p.fechaExpiracion < :fechaActual " +
                         "AND p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO")
         List<Producto> findProductosExpirados(@Param("fechaActual") java.time.LocalDateTime fechaActual);
+
+        // Marcar como ELIMINADO un lote de productos expirados con un solo UPDATE.
+        // SKIP LOCKED evita esperar filas bloqueadas por otra transacción; RETURNING
+        // devuelve exactamente los IDs afectados (por eso se ejecuta como consulta y no
+        // con @Modifying). Debe llamarse dentro de una transacción de escritura.
+        @Query(value = "UPDATE producto SET estado = 'ELIMINADO' " +
+                        "WHERE id_producto IN (" +
+                        "    SELECT p.id_producto FROM producto p " +
+                        "    WHERE p.fecha_expiracion IS NOT NULL " +
+                        "    AND p.fecha_expiracion < :fechaActual " +
+                        "    AND p.estado = 'ACTIVO' " +
+                        "    ORDER BY p.id_producto " +
+                        "    LIMIT :limite FOR UPDATE SKIP LOCKED) " +
+                        "RETURNING id_producto", nativeQuery = true)
+        List<Long> expirarLote(@Param("fechaActual") java.time.LocalDateTime fechaActual,
+                        @Param("limite") int limite);
+
+        // Marcar como ELIMINADO los productos indicados que sigan ACTIVOS y ya hayan expirado
+        @Query(value = "UPDATE producto SET estado = 'ELIMINADO' " +
+                        "WHERE id_producto IN (:ids) " +
+                        "AND fecha_expiracion IS NOT NULL " +
+                        "AND fecha_expiracion < :fechaActual " +
+                        "AND estado = 'ACTIVO' " +
+                        "RETURNING id_producto", nativeQuery = true)
+        List<Long> expirarPorIds(@Param("ids") Collection<Long> ids,
+                        @Param("fechaActual") java.time.LocalDateTime fechaActual);
+
+        // [idProducto, fechaExpiracion] de productos ACTIVOS que expiran antes de :hasta
+        @Query("SELECT p.idProducto, p.fechaExpiracion FROM Producto p WHERE p.fechaExpiracion IS NOT NULL " +
+                        "AND p.fechaExpiracion <= :hasta " +
+                        "AND p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO")
+        List<Object[]> findExpiracionesHasta(@Param("hasta") java.time.LocalDateTime hasta);
+
+        // BÚSQUEDA DE TEXTO COMPLETO
+
+        // Búsqueda con diccionario español sobre el índice GIN idx_producto_busqueda_fts.
+        // La expresión to_tsvector debe coincidir exactamente con la del índice.
+        @Query(value = "SELECT p.id_producto FROM producto p " +
+                        "WHERE p.estado = 'ACTIVO' " +
+                        "AND to_tsvector('spanish', coalesce(p.nombre, '') || ' ' || coalesce(p.descripcion, '')) " +
+                        "    @@ to_tsquery('spanish', :consulta) " +
+                        "ORDER BY ts_rank(" +
+                        "    setweight(to_tsvector('spanish', coalesce(p.nombre, '')), 'A') || " +
+                        "    setweight(to_tsvector('spanish', coalesce(p.descripcion, '')), 'B'), " +
+                        "    to_tsquery('spanish', :consulta)) DESC, p.id_producto DESC",
+                        countQuery = "SELECT COUNT(*) FROM producto p " +
+                                        "WHERE p.estado = 'ACTIVO' " +
+                                        "AND to_tsvector('spanish', coalesce(p.nombre, '') || ' ' || coalesce(p.descripcion, '')) "
+                                        +
+                                        "    @@ to_tsquery('spanish', :consulta)",
+                        nativeQuery = true)
+        Page<Long> buscarIdsTextoCompleto(@Param("consulta") String consulta, Pageable pageable);
+
+        // Igual que buscarIdsTextoCompleto pero sin filtrar por estado
+        @Query(value = "SELECT p.id_producto FROM producto p " +
+                        "WHERE to_tsvector('spanish', coalesce(p.nombre, '') || ' ' || coalesce(p.descripcion, '')) " +
+                        "    @@ to_tsquery('spanish', :consulta) " +
+                        "ORDER BY ts_rank(" +
+                        "    setweight(to_tsvector('spanish', coalesce(p.nombre, '')), 'A') || " +
+                        "    setweight(to_tsvector('spanish', coalesce(p.descripcion, '')), 'B'), " +
+                        "    to_tsquery('spanish', :consulta)) DESC, p.id_producto DESC",
+                        nativeQuery = true)
+        List<Long> buscarIdsTextoCompletoEnTodos(@Param("consulta") String consulta);
+
+        // Texto indexable [idProducto, nombre, descripcion] sin cargar fotos ni relaciones
+        @Query("SELECT p.idProducto, p.nombre, p.descripcion FROM Producto p")
+        List<Object[]> findTextoIndexable();
+
+        // De un conjunto de IDs, devolver solo los que siguen ACTIVOS
+        @Query("SELECT p.idProducto FROM Producto p WHERE p.idProducto IN :ids " +
+                        "AND p.estado = com.multicompany.sales_system.model.enums.EstadoProducto.ACTIVO")
+        List<Long> findIdsActivosByIdIn(@Param("ids") Collection<Long> ids);
 }
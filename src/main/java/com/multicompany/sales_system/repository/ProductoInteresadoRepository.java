@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -46,6 +47,21 @@ public interface ProductoInteresadoRepository extends JpaRepository<ProductoInte
      */
     List<ProductoInteresado> findByUsuarioIdUsuarioOrderByFechaInteresDesc(Long usuarioId);
 
+    /**
+     * Productos de interés de un usuario paginados por cursor (fechaInteres, id)
+     * descendente; el Pageable solo limita el número de filas
+     */
+    @Query("SELECT pi FROM ProductoInteresado pi JOIN FETCH pi.producto " +
+            "WHERE pi.usuario.idUsuario = :usuarioId " +
+            "AND (:fechaCursor IS NULL OR pi.fechaInteres < :fechaCursor " +
+            "     OR (pi.fechaInteres = :fechaCursor AND pi.idProductoInteresado < :idCursor)) " +
+            "ORDER BY pi.fechaInteres DESC, pi.idProductoInteresado DESC")
+    List<ProductoInteresado> findByUsuarioKeyset(
+            @Param("usuarioId") Long usuarioId,
+            @Param("fechaCursor") LocalDateTime fechaCursor,
+            @Param("idCursor") Long idCursor,
+            Pageable limite);
+
     /**
      * Contar cuántos usuarios han marcado como "me interesa" un producto específico
      */
@@ -73,6 +89,40 @@ public interface ProductoInteresadoRepository extends JpaRepository<ProductoInte
             "ORDER BY total DESC")
     Page<Object[]> findProductosMasPopulares(Pageable pageable);
 
+    /**
+     * Total de intereses por producto, sin productos prohibidos ni eliminados: [idProducto, total]
+     */
+    @Query("SELECT pi.producto.idProducto, COUNT(pi) FROM ProductoInteresado pi " +
+            "WHERE pi.producto.estado NOT IN (com.multicompany.sales_system.model.enums.EstadoProducto.PROHIBIDO, " +
+            "com.multicompany.sales_system.model.enums.EstadoProducto.ELIMINADO) " +
+            "GROUP BY pi.producto.idProducto")
+    List<Object[]> contarInteresesVigentesPorProducto();
+
+    // Puntaje de tendencia calculado en la base de datos: suma de 2^(-edad / vida media) de los
+    // intereses desde :desde. Devuelve una fila por producto en lugar de una por interés.
+    String SUMAR_TENDENCIA = "SELECT pi.id_producto, SUM(power(2, " +
+            "    -CAST(EXTRACT(EPOCH FROM (CAST(:ahora AS timestamp) - pi.fecha_interes)) AS double precision) " +
+            "    / :vidaMediaSeg)) " +
+            "FROM producto_interesado pi JOIN producto p ON p.id_producto = pi.id_producto " +
+            "WHERE pi.fecha_interes >= :desde AND p.estado NOT IN ('PROHIBIDO', 'ELIMINADO') ";
+
+    /**
+     * Puntaje de tendencia de cada producto: [idProducto, puntaje]
+     */
+    @Query(value = SUMAR_TENDENCIA + "GROUP BY pi.id_producto", nativeQuery = true)
+    List<Object[]> sumarTendenciaPorProducto(@Param("ahora") LocalDateTime ahora,
+            @Param("desde") LocalDateTime desde,
+            @Param("vidaMediaSeg") double vidaMediaSeg);
+
+    /**
+     * Puntaje de tendencia de un producto: [idProducto, puntaje] (vacío si no tiene intereses recientes)
+     */
+    @Query(value = SUMAR_TENDENCIA + "AND pi.id_producto = :productoId GROUP BY pi.id_producto", nativeQuery = true)
+    List<Object[]> sumarTendenciaDeProducto(@Param("productoId") Long productoId,
+            @Param("ahora") LocalDateTime ahora,
+            @Param("desde") LocalDateTime desde,
+            @Param("vidaMediaSeg") double vidaMediaSeg);
+
     /**
      * Buscar productos de interés de un usuario filtrados por tipo de producto
      */
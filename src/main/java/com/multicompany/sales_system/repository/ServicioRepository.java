@@ -4,10 +4,20 @@ import com.multicompany.sales_system.model.Servicio;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 
 public interface ServicioRepository extends JpaRepository<Servicio, Long> {
     Page<Servicio> findAll(Pageable pageable);
 
     List<Servicio> findByProductoVendedorIdUsuario(Long vendedorId);
+
+    /**
+     * Obtener pares [idProducto, horario] de los servicios de un lote de productos
+     * en una sola consulta (sin cargar la entidad Producto asociada).
+     */
+    @Query("SELECT s.id, s.horario FROM Servicio s WHERE s.id IN :ids")
+    List<Object[]> findHorariosByProductoIds(@Param("ids") Collection<Long> ids);
 }
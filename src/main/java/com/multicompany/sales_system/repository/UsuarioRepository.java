@@ -1,9 +1,12 @@
 package com.multicompany.sales_system.repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.multicompany.sales_system.model.Usuario;
 import com.multicompany.sales_system.model.Usuario.EstadoUsuario;
@@ -15,5 +18,10 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
     Optional<Usuario> findByCedula(String cedula);
     List<Usuario> findByEstadoNot(EstadoUsuario estado);
 
+    /**
+     * Revocaciones de token aún vigentes: [idUsuario, tokensRevocadosAntesDe]
+     */
+    @Query("SELECT u.idUsuario, u.tokensRevocadosAntesDe FROM Usuario u WHERE u.tokensRevocadosAntesDe > :desde")
+    List<Object[]> findRevocacionesDesde(@Param("desde") LocalDateTime desde);
 
 }
@@ -0,0 +1,24 @@
+package com.multicompany.sales_system.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de un mensaje para el historial del chat.
+ * Solo las columnas del mensaje y el nombre del emisor; sin cargar el Chat ni sus usuarios.
+ */
+public interface MensajeResumen {
+
+    Long getIdMensaje();
+
+    Long getIdChat();
+
+    Long getIdEmisor();
+
+    String getNombreEmisor();
+
+    String getContenido();
+
+    LocalDateTime getFechaEnvio();
+
+    Boolean getLeido();
+}
@@ -0,0 +1,46 @@
+package com.multicompany.sales_system.repository.projection;
+
+import com.multicompany.sales_system.model.enums.EstadoProducto;
+import com.multicompany.sales_system.model.enums.TipoProducto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de un producto para listados (tarjeta del catálogo).
+ * Solo las columnas necesarias más la primera foto; sin cargar la entidad ni su lista de fotos.
+ */
+public interface ProductoResumen {
+
+    Long getIdProducto();
+
+    String getCodigo();
+
+    String getNombre();
+
+    String getDescripcion();
+
+    Double getPrecio();
+
+    String getUbicacion();
+
+    Boolean getDisponibilidad();
+
+    TipoProducto getTipo();
+
+    EstadoProducto getEstado();
+
+    LocalDateTime getFechaPublicacion();
+
+    Long getIdVendedor();
+
+    String getNombreVendedor();
+
+    Long getIdCategoria();
+
+    String getNombreCategoria();
+
+    /** Foto con menor ID del producto (null si no tiene fotos). */
+    Long getIdFotoPrincipal();
+
+    String getUrlFotoPrincipal();
+}
@@ -1,5 +1,6 @@
 package com.multicompany.sales_system.scheduler;
 
+import com.multicompany.sales_system.service.ExpiracionProgramador;
 import com.multicompany.sales_system.service.ProductoRestriccionService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,34 +19,27 @@ import org.springframework.stereotype.Component;
 public class ProductScheduler {
 
     private final ProductoRestriccionService productoRestriccionService;
+    private final ExpiracionProgramador expiracionProgramador;
 
     /**
-     * Procesa automáticamente los productos que han expirado.
-     * 
-     * Se ejecuta cada 2 minutos para:
-     * - Identificar productos cuya fechaExpiracion ha pasado
-     * - Cambiar su estado a ELIMINADO
-     * - Marcarlos como no disponibles
-     * 
-     * Configuración del cron: "0 0 * * * *"
-     * - Segundo: 0 (en punto)
-     * - Minuto: 0 (en putno )
-     * - Hora: * (todas las horas)
-     * - Día del mes: * (todos los días)
-     * - Mes: * (todos los meses)
-     * - Día de la semana: * (todos los días de la semana)
-     * 
-     * Resultado: Se ejecuta cada 2 minutos (00:00, 00:02, 00:04, 00:06, etc.)
+     * Barrido de seguridad de productos expirados.
+     *
+     * La expiración normal la hace ExpiracionProgramador a los pocos segundos del
+     * vencimiento. Este barrido (por defecto cada hora, {@code app.expiracion.barrido-cron})
+     * recoge lo que se haya escapado de la cola (por ejemplo productos reactivados o
+     * errores de base de datos) y recarga el horizonte de la cola.
      */
-    @Scheduled(cron = "0 0 * * * *")
+    @Scheduled(cron = "${app.expiracion.barrido-cron:0 0 * * * *}")
     public void procesarProductosExpirados() {
         log.info("Iniciando proceso automático de productos expirados...");
         
         try {
-            int productosAfectados = productoRestriccionService.procesarProductosExpirados();
+            ProductoRestriccionService.ResultadoExpiracion resultado = productoRestriccionService.expirarProductos();
+            int productosAfectados = resultado.getProcesados();
             
             if (productosAfectados > 0) {
-                log.info("Proceso completado: {} producto(s) marcado(s) como expirado(s)", productosAfectados);
+                log.info("Proceso completado: {} producto(s) marcado(s) como expirado(s) en {} ms",
+                        productosAfectados, resultado.getDuracionMs());
             } else {
                 log.debug("Proceso completado: No hay productos expirados en este momento");
             }
@@ -54,6 +48,12 @@ public class ProductScheduler {
             log.error("Error al procesar productos expirados: {}", e.getMessage(), e);
             // No relanzamos la excepción para que el scheduler continúe en la siguiente ejecución
         }
+
+        try {
+            expiracionProgramador.recargarHorizonte();
+        } catch (Exception e) {
+            log.error("Error al recargar la cola de expiración: {}", e.getMessage(), e);
+        }
     }
 
 }
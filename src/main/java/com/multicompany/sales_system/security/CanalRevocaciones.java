@@ -0,0 +1,20 @@
+package com.multicompany.sales_system.security;
+
+import java.util.function.Consumer;
+
+/**
+ * Canal entre instancias de la aplicación para las revocaciones de token.
+ *
+ * Una implementación debe entregar cada revocación a todos los suscriptores, incluido el
+ * publicador. Aplicar una revocación dos veces no tiene efecto, así que no hace falta
+ * entrega exactamente una vez.
+ */
+public interface CanalRevocaciones {
+
+    void publicar(Revocacion revocacion);
+
+    /**
+     * Registrar el receptor de las revocaciones. Devuelve una acción para cancelar la suscripción.
+     */
+    Runnable suscribir(Consumer<Revocacion> receptor);
+}
@@ -0,0 +1,31 @@
+package com.multicompany.sales_system.security;
+
+import java.util.function.Consumer;
+
+import com.multicompany.sales_system.service.BusLocal;
+
+/**
+ * Canal en memoria sobre el {@link BusLocal}: todas las instancias creadas con el mismo bus y
+ * nombre de cluster comparten revocaciones. Sirve para una sola instancia o varios nodos en
+ * una máquina (pruebas, desarrollo); no comunica procesos distintos.
+ */
+public class CanalRevocacionesLocal implements CanalRevocaciones {
+
+    private final BusLocal bus;
+    private final String tema;
+
+    public CanalRevocacionesLocal(BusLocal bus, String nombreCluster) {
+        this.bus = bus;
+        this.tema = "revocaciones." + nombreCluster;
+    }
+
+    @Override
+    public void publicar(Revocacion revocacion) {
+        bus.publicar(tema, revocacion);
+    }
+
+    @Override
+    public Runnable suscribir(Consumer<Revocacion> receptor) {
+        return bus.suscribir(tema, revocacion -> receptor.accept((Revocacion) revocacion));
+    }
+}
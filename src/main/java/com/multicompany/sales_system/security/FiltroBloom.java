@@ -0,0 +1,62 @@
+package com.multicompany.sales_system.security;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de ids de usuario. {@link #puedeContener(long)} nunca da un falso negativo:
+ * si devuelve false, el id no se agregó. Agregar y consultar son seguros entre hilos.
+ */
+final class FiltroBloom {
+
+    private static final int FUNCIONES = 3;
+
+    private final AtomicLongArray bits;
+    private final int mascara;
+
+    /**
+     * @param bitsMinimos tamaño mínimo en bits; se redondea a la siguiente potencia de dos
+     */
+    FiltroBloom(int bitsMinimos) {
+        int tamano = Integer.highestOneBit(Math.max(64, bitsMinimos - 1)) << 1;
+        this.bits = new AtomicLongArray(tamano / 64);
+        this.mascara = tamano - 1;
+    }
+
+    void agregar(long id) {
+        long h = mezclar(id);
+        for (int i = 0; i < FUNCIONES; i++) {
+            int bit = posicion(h, i);
+            int palabra = bit >>> 6;
+            long marca = 1L << bit;
+            long actual;
+            do {
+                actual = bits.get(palabra);
+            } while ((actual & marca) == 0 && !bits.compareAndSet(palabra, actual, actual | marca));
+        }
+    }
+
+    boolean puedeContener(long id) {
+        long h = mezclar(id);
+        for (int i = 0; i < FUNCIONES; i++) {
+            int bit = posicion(h, i);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Doble hashing: h1 + i·h2 sobre las dos mitades de un hash de 64 bits
+    private int posicion(long h, int i) {
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        return (h1 + i * h2) & mascara;
+    }
+
+    // Finalizador de SplitMix64: ids consecutivos quedan bien repartidos
+    private static long mezclar(long x) {
+        x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+        x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+        return x ^ (x >>> 31);
+    }
+}
@@ -7,7 +7,6 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -18,11 +17,16 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 
-@Component
+/**
+ * Valida el token Bearer una vez por petición y deja un {@link UsuarioAutenticado} como principal.
+ * Lo registra SecurityConfig en la cadena de seguridad; no es un bean para que el contenedor
+ * no lo vuelva a ejecutar como filtro de servlet.
+ */
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
 
     private final JwtService jwt;
+    private final RevocacionesToken revocaciones;
 
     @Override
     protected void doFilterInternal(
@@ -39,11 +43,11 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         String token = header.substring(7);
         try {
-            if (jwt.isTokenValid(token)) {
-                Claims claims = jwt.claims(token);
-                String username = claims.getSubject();
-                String role = (String) claims.get("role");
-                String estado = (String) claims.get("estado");
+            // Una sola verificación: claims cacheados o null si el token no es válido
+            Claims claims = jwt.claimsValidos(token);
+            if (claims != null) {
+                UsuarioAutenticado usuario = UsuarioAutenticado.desde(claims);
+                String estado = usuario.getEstado();
 
                 // Verificar si el usuario está suspendido o eliminado
                 if ("SUSPENDIDO".equals(estado) || "ELIMINADO".equals(estado)) {
@@ -53,8 +57,16 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                     return;
                 }
 
-                var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role));
-                var auth = new UsernamePasswordAuthenticationToken(username, null, authorities);
+                // Estado o rol cambiados después de emitir el token (consulta en memoria)
+                if (revocaciones.estaRevocado(usuario.getIdUsuario(), claims.getIssuedAt())) {
+                    SecurityContextHolder.clearContext();
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    response.getWriter().write("{\"error\": \"Sesión revocada. Inicia sesión de nuevo.\"}");
+                    return;
+                }
+
+                var authorities = List.of(new SimpleGrantedAuthority("ROLE_" + usuario.getRol()));
+                var auth = new UsernamePasswordAuthenticationToken(usuario, null, authorities);
                 SecurityContextHolder.getContext().setAuthentication(auth);
             }
         } catch (Exception e) {
@@ -1,5 +1,9 @@
 package com.multicompany.sales_system.security;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -9,23 +13,38 @@ import javax.crypto.SecretKey;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.multicompany.sales_system.service.CacheLocal;
+
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
 
+/**
+ * Emisión y validación de tokens JWT.
+ *
+ * La clave y el parser se construyen una sola vez. Los claims de cada token verificado se
+ * guardan (por hash SHA-256 del token) hasta que el token expira, así una petición, o
+ * varias con el mismo token, verifican la firma una sola vez.
+ */
 @Service
 public class JwtService {
 
-    @Value("${app.jwt.secret}")
-    private String secret;               
-    @Value("${app.jwt.exp-minutes:60}")
-    private int expMinutes;
-
-    private SecretKey key() {
-        byte[] bytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(bytes);
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final int expMinutes;
+    private final CacheLocal<String, Claims> verificados;
+
+    public JwtService(@Value("${app.jwt.secret}") String secret,
+                      @Value("${app.jwt.exp-minutes:60}") int expMinutes,
+                      @Value("${app.jwt.cache-max:10000}") int maxVerificados) {
+        this.key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.expMinutes = expMinutes;
+        // Ningún token vive más que exp-minutes; además cada acierto comprueba su propia expiración
+        this.verificados = new CacheLocal<>("jwt-verificados", maxVerificados, expMinutes * 60_000L);
     }
 
     public String generateToken(Long userId, String cedula, String email, String role, String estado) {
@@ -43,25 +62,50 @@ public class JwtService {
                 .setSubject(email)
                 .setIssuedAt(issuedAt)
                 .setExpiration(expiresAt)
-                .signWith(key(), SignatureAlgorithm.HS256)
+                .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     public boolean isTokenValid(String token) {
+        return claimsValidos(token) != null;
+    }
+
+    /**
+     * Claims del token, o null si es inválido o ha expirado.
+     */
+    public Claims claimsValidos(String token) {
         try {
-            claims(token); // lanza excepción si es inválido/expirado
-            return true;
+            return claims(token);
         } catch (Exception ex) {
-            return false;
+            return null;
         }
     }
 
+    /**
+     * Claims del token; lanza excepción si es inválido o ha expirado.
+     */
     public Claims claims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        String hash = hash(token);
+        Claims claims = verificados.get(hash);
+        if (claims != null) {
+            if (claims.getExpiration() == null || claims.getExpiration().getTime() > System.currentTimeMillis()) {
+                return claims;
+            }
+            // Expirado: se quita y el parser lanza la excepción correspondiente
+            verificados.invalidar(hash);
+        }
+        claims = parser.parseClaimsJws(token).getBody();
+        verificados.put(hash, claims);
+        return claims;
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
 
     public Long getUserId(String token) {
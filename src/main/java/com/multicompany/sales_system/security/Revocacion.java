@@ -0,0 +1,13 @@
+package com.multicompany.sales_system.security;
+
+import lombok.Value;
+
+/**
+ * Revocación tal como viaja entre instancias: los tokens del usuario emitidos antes de
+ * {@code antesDeMs} (epoch en milisegundos) se rechazan.
+ */
+@Value
+public class Revocacion {
+    Long idUsuario;
+    long antesDeMs;
+}
@@ -0,0 +1,136 @@
+package com.multicompany.sales_system.security;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.multicompany.sales_system.event.TokensRevocadosEvent;
+import com.multicompany.sales_system.repository.UsuarioRepository;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tokens revocados, consultados en cada petición sin ir a la base de datos.
+ *
+ * Una revocación invalida todos los tokens de un usuario emitidos antes de un instante. Un
+ * filtro de Bloom descarta en O(1) y sin bloqueos a los usuarios sin revocaciones (casi
+ * todos); solo los positivos consultan el mapa exacto usuario -> instante. Las revocaciones
+ * llegan por {@link CanalRevocaciones}, así que se aplican en todas las instancias, y se
+ * recargan de la tabla usuario al arrancar. Cuando han pasado exp-minutes ya no queda ningún
+ * token afectado y la revocación se olvida.
+ */
+@Service
+@Slf4j
+public class RevocacionesToken {
+
+    private static final int BITS_FILTRO = 1 << 16;
+
+    private final CanalRevocaciones canal;
+    private final UsuarioRepository usuarioRepository;
+    private final long vidaTokenMs;
+
+    private final Map<Long, Long> antesDePorUsuario = new ConcurrentHashMap<>();
+    private volatile FiltroBloom filtro = new FiltroBloom(BITS_FILTRO);
+    private Runnable cancelarSuscripcion;
+
+    private final ScheduledExecutorService limpiador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "revocaciones-token");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public RevocacionesToken(CanalRevocaciones canal,
+                             UsuarioRepository usuarioRepository,
+                             @Value("${app.jwt.exp-minutes:60}") int expMinutes) {
+        this.canal = canal;
+        this.usuarioRepository = usuarioRepository;
+        this.vidaTokenMs = expMinutes * 60_000L;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        cancelarSuscripcion = canal.suscribir(this::aplicar);
+        limpiador.scheduleWithFixedDelay(this::purgar, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Recargar las revocaciones que aún afectan a tokens sin expirar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        LocalDateTime desde = LocalDateTime.now().minusNanos(vidaTokenMs * 1_000_000L);
+        int cargadas = 0;
+        for (Object[] fila : usuarioRepository.findRevocacionesDesde(desde)) {
+            aplicar(new Revocacion((Long) fila[0], aMillis((LocalDateTime) fila[1])));
+            cargadas++;
+        }
+        if (cargadas > 0) {
+            log.info("Revocaciones de token cargadas: {}", cargadas);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokensRevocados(TokensRevocadosEvent event) {
+        Revocacion revocacion = new Revocacion(event.getIdUsuario(), aMillis(event.getAntesDe()));
+        // Se aplica aquí aunque el canal no devuelva la publicación a su propio nodo
+        aplicar(revocacion);
+        canal.publicar(revocacion);
+    }
+
+    /**
+     * ¿El token del usuario, emitido en {@code emitidoEn}, está revocado? Sin fecha de
+     * emisión se considera revocado si el usuario tiene alguna revocación.
+     */
+    public boolean estaRevocado(Long idUsuario, Date emitidoEn) {
+        if (idUsuario == null || !filtro.puedeContener(idUsuario)) {
+            return false;
+        }
+        Long antesDe = antesDePorUsuario.get(idUsuario);
+        // iat tiene precisión de segundos: un token del mismo segundo que la revocación también cae
+        return antesDe != null && (emitidoEn == null || emitidoEn.getTime() <= antesDe);
+    }
+
+    synchronized void aplicar(Revocacion revocacion) {
+        antesDePorUsuario.merge(revocacion.getIdUsuario(), revocacion.getAntesDeMs(), Math::max);
+        filtro.agregar(revocacion.getIdUsuario());
+    }
+
+    /**
+     * Olvidar las revocaciones que ya no afectan a ningún token y reconstruir el filtro.
+     * Devuelve cuántas se olvidaron.
+     */
+    synchronized int purgar() {
+        long limite = System.currentTimeMillis() - vidaTokenMs;
+        int antes = antesDePorUsuario.size();
+        antesDePorUsuario.values().removeIf(antesDe -> antesDe < limite);
+        FiltroBloom nuevo = new FiltroBloom(BITS_FILTRO);
+        antesDePorUsuario.keySet().forEach(nuevo::agregar);
+        filtro = nuevo;
+        return antes - antesDePorUsuario.size();
+    }
+
+    private static long aMillis(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (cancelarSuscripcion != null) {
+            cancelarSuscripcion.run();
+        }
+        limpiador.shutdownNow();
+    }
+}
@@ -0,0 +1,38 @@
+package com.multicompany.sales_system.security;
+
+import java.security.Principal;
+
+import io.jsonwebtoken.Claims;
+import lombok.Value;
+
+/**
+ * Usuario de la petición actual, construido por {@link JwtAuthFilter} a partir de los claims
+ * del token. Los controladores lo reciben como parámetro (ver {@link UsuarioActualArgumentResolver})
+ * en lugar de volver a leer la cabecera Authorization.
+ */
+@Value
+public class UsuarioAutenticado implements Principal {
+
+    Long idUsuario;
+    String cedula;
+    String correo;
+    String rol;
+    String estado;
+
+    static UsuarioAutenticado desde(Claims claims) {
+        Object uid = claims.get("uid");
+        Long idUsuario = uid == null ? null
+                : uid instanceof Number ? ((Number) uid).longValue() : Long.valueOf(uid.toString());
+        return new UsuarioAutenticado(idUsuario,
+                claims.get("cedula", String.class),
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.get("estado", String.class));
+    }
+
+    /** Nombre del principal: el correo, como antes en la autenticación. */
+    @Override
+    public String getName() {
+        return correo;
+    }
+}
@@ -0,0 +1,255 @@
+package com.multicompany.sales_system.service;
+
+import lombok.Value;
+
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Autómata Aho–Corasick inmutable para buscar muchas palabras en una sola pasada.
+ *
+ * Reproduce la semántica de {@code \b + Pattern.quote(palabra) + \b} con
+ * {@code CASE_INSENSITIVE | UNICODE_CASE}: comparación sin distinguir mayúsculas
+ * carácter a carácter y límites de palabra a ambos lados de cada coincidencia.
+ * Texto y palabras se normalizan a NFC; los offsets se refieren al texto normalizado
+ * (idéntico al original cuando este ya está en NFC, que es el caso habitual).
+ */
+public final class AhoCorasickMatcher {
+
+    private static final AhoCorasickMatcher VACIO = new AhoCorasickMatcher(List.of());
+
+    private final List<String> palabras;
+    private final int[] longitudes;
+
+    // Trie: transiciones por nodo como claves ordenadas + destinos (búsqueda binaria)
+    private final char[][] claves;
+    private final int[][] destinos;
+    private final int[] fallo;
+    // Índice de palabra que termina en el nodo (-1 si ninguna)
+    private final int[] salida;
+    // Nodo más cercano en la cadena de fallos con salida (0 si ninguno)
+    private final int[] enlaceSalida;
+
+    private AhoCorasickMatcher(List<String> palabras) {
+        this.palabras = List.copyOf(palabras);
+        this.longitudes = new int[palabras.size()];
+
+        List<Map<Character, Integer>> hijos = new ArrayList<>();
+        List<Integer> salidas = new ArrayList<>();
+        hijos.add(new HashMap<>());
+        salidas.add(-1);
+
+        for (int p = 0; p < palabras.size(); p++) {
+            String palabra = plegar(palabras.get(p));
+            longitudes[p] = palabra.length();
+            int nodo = 0;
+            for (int i = 0; i < palabra.length(); i++) {
+                Integer siguiente = hijos.get(nodo).get(palabra.charAt(i));
+                if (siguiente == null) {
+                    siguiente = hijos.size();
+                    hijos.get(nodo).put(palabra.charAt(i), siguiente);
+                    hijos.add(new HashMap<>());
+                    salidas.add(-1);
+                }
+                nodo = siguiente;
+            }
+            if (salidas.get(nodo) < 0) {
+                salidas.set(nodo, p);
+            }
+        }
+
+        int n = hijos.size();
+        claves = new char[n][];
+        destinos = new int[n][];
+        salida = new int[n];
+        for (int i = 0; i < n; i++) {
+            TreeMap<Character, Integer> ordenado = new TreeMap<>(hijos.get(i));
+            claves[i] = new char[ordenado.size()];
+            destinos[i] = new int[ordenado.size()];
+            int j = 0;
+            for (Map.Entry<Character, Integer> e : ordenado.entrySet()) {
+                claves[i][j] = e.getKey();
+                destinos[i][j] = e.getValue();
+                j++;
+            }
+            salida[i] = salidas.get(i);
+        }
+
+        // Enlaces de fallo por recorrido en anchura
+        fallo = new int[n];
+        enlaceSalida = new int[n];
+        Deque<Integer> cola = new ArrayDeque<>();
+        for (int hijo : destinos[0]) {
+            cola.add(hijo);
+        }
+        while (!cola.isEmpty()) {
+            int nodo = cola.poll();
+            for (int j = 0; j < claves[nodo].length; j++) {
+                char c = claves[nodo][j];
+                int hijo = destinos[nodo][j];
+                int f = fallo[nodo];
+                while (f != 0 && transicion(f, c) < 0) {
+                    f = fallo[f];
+                }
+                int t = transicion(f, c);
+                fallo[hijo] = t >= 0 ? t : 0;
+                enlaceSalida[hijo] = salida[fallo[hijo]] >= 0 ? fallo[hijo] : enlaceSalida[fallo[hijo]];
+                cola.add(hijo);
+            }
+        }
+    }
+
+    /**
+     * Compilar el autómata. Se ignoran palabras vacías y duplicadas; el orden de la
+     * lista define el orden de {@link #palabrasEncontradas(String)}.
+     */
+    public static AhoCorasickMatcher compilar(Collection<String> palabras) {
+        LinkedHashSet<String> unicas = new LinkedHashSet<>();
+        for (String palabra : palabras) {
+            if (palabra != null && !palabra.isBlank()) {
+                unicas.add(Normalizer.normalize(palabra, Normalizer.Form.NFC));
+            }
+        }
+        return unicas.isEmpty() ? VACIO : new AhoCorasickMatcher(new ArrayList<>(unicas));
+    }
+
+    public int size() {
+        return palabras.size();
+    }
+
+    /** Indica si el texto contiene al menos una de las palabras. */
+    public boolean contieneAlguna(String texto) {
+        if (palabras.isEmpty() || texto == null || texto.isEmpty()) {
+            return false;
+        }
+        return recorrer(Normalizer.normalize(texto, Normalizer.Form.NFC), null);
+    }
+
+    /** Todas las coincidencias con sus offsets, en orden de aparición. */
+    public List<Coincidencia> buscar(String texto) {
+        if (palabras.isEmpty() || texto == null || texto.isEmpty()) {
+            return List.of();
+        }
+        List<Coincidencia> coincidencias = new ArrayList<>();
+        recorrer(Normalizer.normalize(texto, Normalizer.Form.NFC), coincidencias);
+        coincidencias.sort(Comparator.comparingInt(Coincidencia::getInicio)
+                .thenComparingInt(Coincidencia::getFin));
+        return coincidencias;
+    }
+
+    /**
+     * Texto de la primera coincidencia de cada palabra (en minúsculas, sin duplicados),
+     * en el orden en que se compilaron las palabras.
+     */
+    public List<String> palabrasEncontradas(String texto) {
+        if (palabras.isEmpty() || texto == null || texto.isEmpty()) {
+            return List.of();
+        }
+        List<Coincidencia> coincidencias = new ArrayList<>();
+        recorrer(Normalizer.normalize(texto, Normalizer.Form.NFC), coincidencias);
+
+        Coincidencia[] primeras = new Coincidencia[palabras.size()];
+        for (Coincidencia c : coincidencias) {
+            Coincidencia actual = primeras[c.getIndice()];
+            if (actual == null || c.getInicio() < actual.getInicio()) {
+                primeras[c.getIndice()] = c;
+            }
+        }
+        LinkedHashSet<String> encontradas = new LinkedHashSet<>();
+        for (Coincidencia c : primeras) {
+            if (c != null) {
+                encontradas.add(c.getTexto().toLowerCase());
+            }
+        }
+        return new ArrayList<>(encontradas);
+    }
+
+    /**
+     * Una sola pasada sobre el texto. Si {@code destino} es null se detiene en la
+     * primera coincidencia válida.
+     */
+    private boolean recorrer(String texto, List<Coincidencia> destino) {
+        int nodo = 0;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = plegar(texto.charAt(i));
+            int t;
+            while ((t = transicion(nodo, c)) < 0 && nodo != 0) {
+                nodo = fallo[nodo];
+            }
+            nodo = t >= 0 ? t : 0;
+
+            int o = salida[nodo] >= 0 ? nodo : enlaceSalida[nodo];
+            while (o != 0) {
+                int p = salida[o];
+                int fin = i + 1;
+                int inicio = fin - longitudes[p];
+                if (esLimite(texto, inicio) && esLimite(texto, fin)) {
+                    if (destino == null) {
+                        return true;
+                    }
+                    destino.add(new Coincidencia(p, palabras.get(p), texto.substring(inicio, fin), inicio, fin));
+                }
+                o = enlaceSalida[o];
+            }
+        }
+        return destino != null && !destino.isEmpty();
+    }
+
+    private int transicion(int nodo, char c) {
+        int j = Arrays.binarySearch(claves[nodo], c);
+        return j >= 0 ? destinos[nodo][j] : -1;
+    }
+
+    /** Equivalente a {@code \b}: cambia la condición de carácter de palabra. */
+    private static boolean esLimite(String texto, int i) {
+        boolean antes = i > 0 && esCaracterPalabra(texto, i - Character.charCount(Character.codePointBefore(texto, i)));
+        boolean despues = i < texto.length() && esCaracterPalabra(texto, i);
+        return antes != despues;
+    }
+
+    /**
+     * Misma definición que java.util.regex: letra, dígito o '_', o una marca no
+     * espaciadora unida a un carácter base que lo sea.
+     */
+    private static boolean esCaracterPalabra(String texto, int i) {
+        int cp = texto.codePointAt(i);
+        if (cp == '_' || Character.isLetterOrDigit(cp)) {
+            return true;
+        }
+        if (Character.getType(cp) != Character.NON_SPACING_MARK) {
+            return false;
+        }
+        for (int j = i - 1; j >= 0; j--) {
+            int base = texto.charAt(j);
+            if (Character.getType(base) != Character.NON_SPACING_MARK) {
+                return base == '_' || Character.isLetterOrDigit(base);
+            }
+        }
+        return false;
+    }
+
+    /** Plegado de mayúsculas carácter a carácter (no cambia la longitud del texto). */
+    private static char plegar(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static String plegar(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = plegar(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Coincidencia de una palabra en el texto: [inicio, fin).
+     */
+    @Value
+    public static class Coincidencia {
+        int indice;
+        String palabra;
+        String texto;
+        int inicio;
+        int fin;
+    }
+}
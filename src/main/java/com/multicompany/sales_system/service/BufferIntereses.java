@@ -0,0 +1,270 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.event.InteresActualizadoEvent;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Buffer de escritura diferida para los "me interesa".
+ *
+ * Cada clic solo anota en memoria el estado deseado del par (usuario, producto); varios
+ * clics sobre el mismo par se reducen al último. Cada {@code app.intereses.flush-ms} los
+ * cambios netos se escriben en una transacción propia (nunca la del llamador, que suele ser
+ * de solo lectura) con dos lotes: INSERT ... ON CONFLICT DO NOTHING y DELETE. Ambos son idempotentes, así que reintentar un lote fallido es seguro.
+ *
+ * Mientras un cambio no llega a la base de datos, {@link #pendiente(Long, Long)} lo
+ * devuelve para que el propio usuario lea su estado. Al apagar la aplicación de forma
+ * ordenada se vacía el buffer; una caída abrupta pierde como máximo un intervalo.
+ */
+@Service
+@Slf4j
+public class BufferIntereses {
+
+    // Solo inserta si usuario y producto existen: una fila inválida no aborta el lote
+    private static final String INSERTAR = "INSERT INTO producto_interesado (id_usuario, id_producto, fecha_interes) "
+            + "SELECT ?, ?, ? WHERE EXISTS (SELECT 1 FROM usuario WHERE id_usuario = ?) "
+            + "AND EXISTS (SELECT 1 FROM producto WHERE id_producto = ?) "
+            + "ON CONFLICT (id_usuario, id_producto) DO NOTHING";
+
+    private static final String BORRAR = "DELETE FROM producto_interesado WHERE id_usuario = ? AND id_producto = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean habilitado;
+    private final long flushMs;
+    private final int maxPendientes;
+
+    // Cambios aún no escritos y cambios del lote en curso (visibles para las lecturas)
+    private final ConcurrentHashMap<Clave, Cambio> pendientes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Clave, Cambio> enVuelo = new ConcurrentHashMap<>();
+    private final Object bloqueoVaciado = new Object();
+    private final AtomicBoolean vaciadoSolicitado = new AtomicBoolean();
+
+    private final LongAdder registrados = new LongAdder();
+    private final LongAdder combinados = new LongAdder();
+    private final LongAdder insertados = new LongAdder();
+    private final LongAdder borrados = new LongAdder();
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private volatile long ultimaDuracionMs;
+
+    private final ScheduledExecutorService vaciador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "buffer-intereses");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BufferIntereses(JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${app.intereses.write-behind.enabled:true}") boolean habilitado,
+                           @Value("${app.intereses.flush-ms:250}") long flushMs,
+                           @Value("${app.intereses.max-pendientes:10000}") int maxPendientes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Transacción propia: quien llama suele estar en una de solo lectura (listados, toggles)
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.habilitado = habilitado;
+        this.flushMs = flushMs;
+        this.maxPendientes = maxPendientes;
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (habilitado) {
+            vaciador.scheduleWithFixedDelay(this::vaciarSinError, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Anotar el estado deseado de un par. Sin escritura diferida se escribe en el acto.
+     */
+    public void registrar(Long usuarioId, Long productoId, boolean interesado) {
+        registrados.increment();
+        Cambio anterior = pendientes.put(new Clave(usuarioId, productoId),
+                new Cambio(interesado, LocalDateTime.now()));
+        if (anterior != null) {
+            combinados.increment();
+        }
+        if (!habilitado) {
+            vaciar();
+        } else if (pendientes.size() >= maxPendientes && vaciadoSolicitado.compareAndSet(false, true)) {
+            // No esperar al siguiente intervalo si el buffer se llenó
+            vaciador.execute(this::vaciarSinError);
+        }
+    }
+
+    /**
+     * Estado aún no escrito del par: true/false, o null si la base de datos está al día
+     */
+    public Boolean pendiente(Long usuarioId, Long productoId) {
+        Clave clave = new Clave(usuarioId, productoId);
+        Cambio cambio = pendientes.get(clave);
+        if (cambio == null) {
+            cambio = enVuelo.get(clave);
+        }
+        return cambio != null ? cambio.interesado : null;
+    }
+
+    /**
+     * Escribir ya los cambios de un usuario (para listados que leen de la base de datos)
+     */
+    public void asegurarEscrito(Long usuarioId) {
+        boolean tiene = pendientes.keySet().stream().anyMatch(c -> c.usuarioId.equals(usuarioId));
+        if (tiene) {
+            vaciar();
+        }
+    }
+
+    /**
+     * Escribir todos los cambios pendientes. Devuelve cuántos pares se procesaron.
+     */
+    public int vaciar() {
+        synchronized (bloqueoVaciado) {
+            vaciadoSolicitado.set(false);
+            if (pendientes.isEmpty()) {
+                return 0;
+            }
+            // Pasar cada par al lote antes de quitarlo del buffer, para que las lecturas lo sigan
+            // viendo; si llegó un clic más reciente, se queda en el buffer para el siguiente lote
+            for (Clave clave : new ArrayList<>(pendientes.keySet())) {
+                Cambio cambio = pendientes.get(clave);
+                if (cambio != null) {
+                    enVuelo.put(clave, cambio);
+                    pendientes.remove(clave, cambio);
+                }
+            }
+            long inicio = System.nanoTime();
+            try {
+                escribirLote(new ArrayList<>(enVuelo.entrySet()));
+                lotes.increment();
+                return enVuelo.size();
+            } catch (RuntimeException e) {
+                errores.increment();
+                // Devolver al buffer lo que no fue reemplazado por un clic más reciente
+                enVuelo.forEach(pendientes::putIfAbsent);
+                throw e;
+            } finally {
+                enVuelo.clear();
+                ultimaDuracionMs = (System.nanoTime() - inicio) / 1_000_000;
+            }
+        }
+    }
+
+    public int getPendientes() {
+        return pendientes.size();
+    }
+
+    /**
+     * Clics recibidos, clics combinados en memoria, filas escritas y duración del último lote
+     */
+    public Map<String, Object> getEstadisticas() {
+        long recibidos = registrados.sum();
+        long escritos = insertados.sum() + borrados.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("habilitado", habilitado);
+        stats.put("pendientes", pendientes.size());
+        stats.put("registrados", recibidos);
+        stats.put("combinados", combinados.sum());
+        stats.put("insertados", insertados.sum());
+        stats.put("borrados", borrados.sum());
+        stats.put("lotes", lotes.sum());
+        stats.put("errores", errores.sum());
+        stats.put("escriturasPorClic", recibidos == 0 ? 0.0 : (double) escritos / recibidos);
+        stats.put("ultimaDuracionMs", ultimaDuracionMs);
+        return stats;
+    }
+
+    private void escribirLote(List<Map.Entry<Clave, Cambio>> cambios) {
+        List<Object[]> altas = new ArrayList<>();
+        List<Clave> clavesAltas = new ArrayList<>();
+        List<Object[]> bajas = new ArrayList<>();
+        List<Clave> clavesBajas = new ArrayList<>();
+        for (Map.Entry<Clave, Cambio> e : cambios) {
+            Clave c = e.getKey();
+            if (e.getValue().interesado) {
+                altas.add(new Object[] { c.usuarioId, c.productoId, Timestamp.valueOf(e.getValue().fecha),
+                        c.usuarioId, c.productoId });
+                clavesAltas.add(c);
+            } else {
+                bajas.add(new Object[] { c.usuarioId, c.productoId });
+                clavesBajas.add(c);
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Solo las filas que cambiaron de verdad actualizan el índice de popularidad (tras el commit)
+            if (!altas.isEmpty()) {
+                publicarCambios(jdbcTemplate.batchUpdate(INSERTAR, altas), clavesAltas, true);
+            }
+            if (!bajas.isEmpty()) {
+                publicarCambios(jdbcTemplate.batchUpdate(BORRAR, bajas), clavesBajas, false);
+            }
+        });
+        log.debug("Lote de intereses escrito: {} alta(s), {} baja(s)", altas.size(), bajas.size());
+    }
+
+    private void publicarCambios(int[] filas, List<Clave> claves, boolean agregado) {
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] > 0) {
+                (agregado ? insertados : borrados).increment();
+                eventPublisher.publishEvent(new InteresActualizadoEvent(claves.get(i).productoId, agregado));
+            }
+        }
+    }
+
+    private void vaciarSinError() {
+        try {
+            vaciar();
+        } catch (Exception e) {
+            log.error("Error al escribir el lote de intereses, se reintentará: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        vaciador.shutdown();
+        try {
+            vaciador.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int escritos = vaciar();
+        log.info("Buffer de intereses vaciado al apagar: {} cambio(s) escritos", escritos);
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class Clave {
+        private final Long usuarioId;
+        private final Long productoId;
+    }
+
+    @AllArgsConstructor
+    private static final class Cambio {
+        private final boolean interesado;
+        private final LocalDateTime fecha;
+    }
+}
@@ -0,0 +1,48 @@
+package com.multicompany.sales_system.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Publicación/suscripción en memoria por tema, compartida por los canales "local" entre
+ * instancias (relay de cluster del chat, revocaciones de token). Solo une a los nodos que
+ * comparten este bean, es decir, los de un mismo contexto de Spring; no comunica procesos
+ * distintos.
+ *
+ * La entrega es síncrona en el hilo del publicador, así que conserva su orden. Un receptor
+ * que falla no impide la entrega a los demás.
+ */
+@Service
+@Slf4j
+public class BusLocal {
+
+    private final ConcurrentHashMap<String, List<Consumer<Object>>> temas = new ConcurrentHashMap<>();
+
+    public void publicar(String tema, Object mensaje) {
+        List<Consumer<Object>> receptores = temas.get(tema);
+        if (receptores == null) {
+            return;
+        }
+        for (Consumer<Object> receptor : receptores) {
+            try {
+                receptor.accept(mensaje);
+            } catch (Exception e) {
+                log.warn("Error al entregar un mensaje del tema {}: {}", tema, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Registrar un receptor del tema. Devuelve una acción para cancelar la suscripción.
+     */
+    public Runnable suscribir(String tema, Consumer<Object> receptor) {
+        List<Consumer<Object>> receptores = temas.computeIfAbsent(tema, t -> new CopyOnWriteArrayList<>());
+        receptores.add(receptor);
+        return () -> receptores.remove(receptor);
+    }
+}
@@ -0,0 +1,254 @@
+package com.multicompany.sales_system.service;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Caché en memoria acotada por tamaño y por tiempo de vida, con admisión estilo W-TinyLFU.
+ *
+ * Las entradas nuevas entran en una ventana LRU pequeña (~1% de la capacidad). Cuando la
+ * ventana se llena, su entrada más antigua compite con la víctima LRU de la zona principal
+ * y se queda la que tenga más accesos estimados (count-min sketch con envejecimiento).
+ * Así una ráfaga de claves de un solo uso no desplaza a las claves populares.
+ *
+ * Las invalidaciones incrementan una generación: una carga que empezó antes de una
+ * invalidación no guarda su resultado (evita volver a cachear datos viejos).
+ */
+public final class CacheLocal<K, V> {
+
+    private final String nombre;
+    private final int maxEntradas;
+    private final int maxVentana;
+    private final long ttlNanos;
+    private final LongSupplier reloj;
+
+    private final LinkedHashMap<K, Entrada<V>> ventana = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Entrada<V>> principal = new LinkedHashMap<>(16, 0.75f, true);
+    private final Frecuencias frecuencias;
+    private long generacion;
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder desalojos = new LongAdder();
+    private final LongAdder expiradas = new LongAdder();
+    private final LongAdder invalidaciones = new LongAdder();
+
+    public CacheLocal(String nombre, int maxEntradas, long ttlMs) {
+        this(nombre, maxEntradas, ttlMs, System::nanoTime);
+    }
+
+    CacheLocal(String nombre, int maxEntradas, long ttlMs, LongSupplier relojNanos) {
+        if (maxEntradas < 1 || ttlMs < 1) {
+            throw new IllegalArgumentException("Tamaño y tiempo de vida de la caché deben ser positivos");
+        }
+        this.nombre = nombre;
+        this.maxEntradas = maxEntradas;
+        this.maxVentana = Math.max(1, maxEntradas / 100);
+        this.ttlNanos = ttlMs * 1_000_000L;
+        this.reloj = relojNanos;
+        this.frecuencias = new Frecuencias(maxEntradas);
+    }
+
+    /** Valor vigente o null (cuenta como acierto o fallo). */
+    public synchronized V get(K clave) {
+        frecuencias.registrar(clave);
+        Entrada<V> entrada = ventana.get(clave);
+        if (entrada == null) {
+            entrada = principal.get(clave);
+        }
+        if (entrada == null) {
+            fallos.increment();
+            return null;
+        }
+        if (reloj.getAsLong() - entrada.creadaEn >= ttlNanos) {
+            ventana.remove(clave);
+            principal.remove(clave);
+            expiradas.increment();
+            fallos.increment();
+            return null;
+        }
+        aciertos.increment();
+        return entrada.valor;
+    }
+
+    /**
+     * Valor cacheado o el que devuelva {@code cargar} (que se ejecuta fuera del bloqueo).
+     * Los resultados null no se guardan.
+     */
+    public V obtener(K clave, Function<? super K, ? extends V> cargar) {
+        long generacionInicial;
+        synchronized (this) {
+            V valor = get(clave);
+            if (valor != null) {
+                return valor;
+            }
+            generacionInicial = generacion;
+        }
+        V valor = cargar.apply(clave);
+        if (valor != null) {
+            synchronized (this) {
+                if (generacion == generacionInicial) {
+                    guardar(clave, valor);
+                }
+            }
+        }
+        return valor;
+    }
+
+    public synchronized void put(K clave, V valor) {
+        frecuencias.registrar(clave);
+        guardar(clave, valor);
+    }
+
+    public synchronized void invalidar(K clave) {
+        generacion++;
+        if (ventana.remove(clave) != null | principal.remove(clave) != null) {
+            invalidaciones.increment();
+        }
+    }
+
+    public synchronized void invalidarSi(Predicate<? super K> condicion) {
+        generacion++;
+        int antes = ventana.size() + principal.size();
+        ventana.keySet().removeIf(condicion);
+        principal.keySet().removeIf(condicion);
+        invalidaciones.add(antes - ventana.size() - principal.size());
+    }
+
+    public synchronized void invalidarTodo() {
+        generacion++;
+        invalidaciones.add(ventana.size() + principal.size());
+        ventana.clear();
+        principal.clear();
+    }
+
+    public synchronized int size() {
+        return ventana.size() + principal.size();
+    }
+
+    /** Métricas acumuladas desde el arranque. */
+    public Map<String, Object> getEstadisticas() {
+        long hits = aciertos.sum();
+        long misses = fallos.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nombre", nombre);
+        stats.put("tamano", size());
+        stats.put("maxEntradas", maxEntradas);
+        stats.put("aciertos", hits);
+        stats.put("fallos", misses);
+        stats.put("tasaAciertos", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        stats.put("desalojos", desalojos.sum());
+        stats.put("expiradas", expiradas.sum());
+        stats.put("invalidaciones", invalidaciones.sum());
+        return stats;
+    }
+
+    private void guardar(K clave, V valor) {
+        Entrada<V> entrada = new Entrada<>(valor, reloj.getAsLong());
+        if (principal.containsKey(clave)) {
+            principal.put(clave, entrada);
+            return;
+        }
+        ventana.put(clave, entrada);
+        if (ventana.size() <= maxVentana) {
+            return;
+        }
+
+        // La más antigua de la ventana pasa a la zona principal si gana a la víctima
+        Map.Entry<K, Entrada<V>> candidata = ventana.entrySet().iterator().next();
+        ventana.remove(candidata.getKey());
+        if (principal.size() < maxEntradas - maxVentana) {
+            principal.put(candidata.getKey(), candidata.getValue());
+            return;
+        }
+        if (principal.isEmpty()) {
+            // Capacidad mínima: no hay zona principal con la que competir
+            desalojos.increment();
+            return;
+        }
+        Map.Entry<K, Entrada<V>> victima = principal.entrySet().iterator().next();
+        if (frecuencias.estimar(candidata.getKey()) > frecuencias.estimar(victima.getKey())) {
+            principal.remove(victima.getKey());
+            principal.put(candidata.getKey(), candidata.getValue());
+        }
+        desalojos.increment();
+    }
+
+    private static final class Entrada<V> {
+        final V valor;
+        final long creadaEn;
+
+        Entrada(V valor, long creadaEn) {
+            this.valor = valor;
+            this.creadaEn = creadaEn;
+        }
+    }
+
+    /**
+     * Count-min sketch de 4 filas con contadores saturados en 15. Cada 10 × capacidad
+     * registros todos los contadores se dividen a la mitad, para olvidar la popularidad vieja.
+     */
+    private static final class Frecuencias {
+        private static final int FILAS = 4;
+        private static final int MAXIMO = 15;
+        private static final int[] SEMILLAS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+        private final int[][] contadores;
+        private final int mascara;
+        private final int periodo;
+        private int registros;
+
+        Frecuencias(int capacidad) {
+            int ancho = Integer.highestOneBit(Math.max(16, capacidad * 2 - 1)) << 1;
+            this.contadores = new int[FILAS][ancho];
+            this.mascara = ancho - 1;
+            this.periodo = Math.max(100, capacidad * 10);
+        }
+
+        void registrar(Object clave) {
+            int hash = mezclar(clave);
+            for (int f = 0; f < FILAS; f++) {
+                int i = indice(hash, f);
+                if (contadores[f][i] < MAXIMO) {
+                    contadores[f][i]++;
+                }
+            }
+            if (++registros >= periodo) {
+                envejecer();
+            }
+        }
+
+        int estimar(Object clave) {
+            int hash = mezclar(clave);
+            int minimo = MAXIMO;
+            for (int f = 0; f < FILAS; f++) {
+                minimo = Math.min(minimo, contadores[f][indice(hash, f)]);
+            }
+            return minimo;
+        }
+
+        private void envejecer() {
+            for (int[] fila : contadores) {
+                for (int i = 0; i < fila.length; i++) {
+                    fila[i] >>= 1;
+                }
+            }
+            registros /= 2;
+        }
+
+        private int indice(int hash, int fila) {
+            int h = hash * SEMILLAS[fila];
+            return (h ^ (h >>> 16)) & mascara;
+        }
+
+        private static int mezclar(Object clave) {
+            int h = Objects.hashCode(clave);
+            h ^= h >>> 16;
+            h *= 0x45D9F3B;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.dto.categoria.CategoriaResponseDTO;
+import com.multicompany.sales_system.dto.photo.PhotoResponseDTO;
+import com.multicompany.sales_system.dto.product.ProductResponseDTO;
+import com.multicompany.sales_system.event.CategoriaModificadaEvent;
+import com.multicompany.sales_system.event.ProductoModificadoEvent;
+import com.multicompany.sales_system.event.ProductosExpiradosEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Caché de lecturas públicas del catálogo: detalle de producto, listados filtrados y
+ * categorías activas.
+ *
+ * Se invalida por eventos después del commit: un producto modificado sale del caché de
+ * detalle y, como puede entrar o salir de cualquier filtro, se descartan los listados.
+ * Un cambio de categoría descarta todo (el nombre de la categoría va en cada producto).
+ * Con {@code app.cache.catalogo.enabled=false} todas las lecturas van directas a la base de datos.
+ *
+ * Los DTOs son mutables, así que cada lectura devuelve una copia: lo que un llamador
+ * modifique (p. ej. las fotos) no llega al caché ni a los demás llamadores.
+ */
+@Component
+@Slf4j
+public class CatalogoCache {
+
+    private static final String CLAVE_CATEGORIAS_ACTIVAS = "activas";
+
+    private final boolean habilitada;
+    private final CacheLocal<Long, ProductResponseDTO> productos;
+    private final CacheLocal<Object, Page<ProductResponseDTO>> listados;
+    private final CacheLocal<String, List<CategoriaResponseDTO>> categorias;
+
+    public CatalogoCache(@Value("${app.cache.catalogo.enabled:true}") boolean habilitada,
+                         @Value("${app.cache.catalogo.max-productos:10000}") int maxProductos,
+                         @Value("${app.cache.catalogo.max-listados:2000}") int maxListados,
+                         @Value("${app.cache.catalogo.ttl-ms:60000}") long ttlMs) {
+        this.habilitada = habilitada;
+        this.productos = new CacheLocal<>("productos", maxProductos, ttlMs);
+        this.listados = new CacheLocal<>("listados", maxListados, ttlMs);
+        this.categorias = new CacheLocal<>("categorias", 1, ttlMs);
+        log.info("Caché del catálogo {}", habilitada ? "habilitada" : "deshabilitada");
+    }
+
+    public ProductResponseDTO producto(Long idProducto, Supplier<ProductResponseDTO> cargar) {
+        return habilitada ? copiar(productos.obtener(idProducto, id -> cargar.get())) : cargar.get();
+    }
+
+    /**
+     * @param clave debe identificar filtros, página y orden (equals/hashCode por valor)
+     */
+    public Page<ProductResponseDTO> listado(Object clave, Supplier<Page<ProductResponseDTO>> cargar) {
+        if (!habilitada) {
+            return cargar.get();
+        }
+        Page<ProductResponseDTO> pagina = listados.obtener(clave, c -> cargar.get());
+        if (pagina == null) {
+            return null;
+        }
+        List<ProductResponseDTO> contenido = new ArrayList<>(pagina.getNumberOfElements());
+        pagina.getContent().forEach(p -> contenido.add(copiar(p)));
+        return new PageImpl<>(contenido, pagina.getPageable(), pagina.getTotalElements());
+    }
+
+    public List<CategoriaResponseDTO> categoriasActivas(Supplier<List<CategoriaResponseDTO>> cargar) {
+        if (!habilitada) {
+            return cargar.get();
+        }
+        List<CategoriaResponseDTO> activas = categorias.obtener(CLAVE_CATEGORIAS_ACTIVAS, c -> cargar.get());
+        if (activas == null) {
+            return null;
+        }
+        List<CategoriaResponseDTO> copia = new ArrayList<>(activas.size());
+        for (CategoriaResponseDTO c : activas) {
+            copia.add(new CategoriaResponseDTO(c.getIdCategoria(), c.getNombre(), c.getDescripcion(), c.getActivo(),
+                    c.getFechaCreacion(), c.getCantidadProductos()));
+        }
+        return copia;
+    }
+
+    private static ProductResponseDTO copiar(ProductResponseDTO p) {
+        if (p == null) {
+            return null;
+        }
+        List<PhotoResponseDTO> fotos = null;
+        if (p.getFotos() != null) {
+            fotos = new ArrayList<>(p.getFotos().size());
+            for (PhotoResponseDTO f : p.getFotos()) {
+                fotos.add(new PhotoResponseDTO(f.getIdFoto(), f.getUrl(), f.getIdProducto()));
+            }
+        }
+        return new ProductResponseDTO(p.getIdProducto(), p.getCodigo(), p.getNombre(), p.getDescripcion(),
+                p.getPrecio(), p.getUbicacion(), p.getDisponibilidad(), p.getTipo(), p.getEstado(),
+                p.getFechaPublicacion(), p.getIdVendedor(), p.getNombreVendedor(), p.getIdCategoria(),
+                p.getNombreCategoria(), fotos, p.getHorario());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductoModificado(ProductoModificadoEvent event) {
+        productos.invalidar(event.getIdProducto());
+        listados.invalidarTodo();
+        // El número de productos por categoría puede haber cambiado
+        categorias.invalidarTodo();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductosExpirados(ProductosExpiradosEvent event) {
+        event.getIdsProductos().forEach(productos::invalidar);
+        listados.invalidarTodo();
+        categorias.invalidarTodo();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoriaModificada(CategoriaModificadaEvent event) {
+        productos.invalidarTodo();
+        listados.invalidarTodo();
+        categorias.invalidarTodo();
+    }
+
+    /**
+     * Aciertos, fallos, desalojos, expiradas e invalidaciones de cada caché
+     */
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("habilitada", habilitada);
+        stats.put("productos", productos.getEstadisticas());
+        stats.put("listados", listados.getEstadisticas());
+        stats.put("categorias", categorias.getEstadisticas());
+        return stats;
+    }
+}
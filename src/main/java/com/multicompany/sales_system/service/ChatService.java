@@ -1,7 +1,8 @@
 package com.multicompany.sales_system.service;
 
 import com.multicompany.sales_system.dto.chat.ChatResponseDTO;
-import com.multicompany.sales_system.dto.message.MensajeRequestDTO;
+import com.multicompany.sales_system.dto.chat.LecturaResponseDTO;
+import com.multicompany.sales_system.dto.common.CursorPageDTO;
 import com.multicompany.sales_system.dto.message.MensajeResponseDTO;
 
 import java.util.List;
@@ -11,11 +12,19 @@ public interface ChatService {
 
     List<ChatResponseDTO> obtenerChatsPorUsuario(Long idUsuario);
 
-    MensajeResponseDTO enviarMensaje(MensajeRequestDTO mensajeRequest);
-
     List<MensajeResponseDTO> obtenerMensajesPorChat(Long idChat);
 
-    void marcarMensajesComoLeidos(Long idChat, Long idUsuario);
+    /**
+     * Página del historial, del mensaje más reciente al más antiguo. {@code antesDe} es el id
+     * del mensaje más antiguo ya cargado (null para la primera página); el siguiente cursor
+     * es el id del último mensaje devuelto.
+     */
+    CursorPageDTO<MensajeResponseDTO> obtenerMensajesPorChat(Long idChat, Long antesDe, int limite);
+
+    /**
+     * Marcar como leído todo lo recibido hasta el último mensaje del chat
+     */
+    LecturaResponseDTO marcarMensajesComoLeidos(Long idChat, Long idUsuario);
 
     Long obtenerIdReceptor(Long idChat, Long idEmisor);
 
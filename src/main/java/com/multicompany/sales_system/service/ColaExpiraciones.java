@@ -0,0 +1,88 @@
+package com.multicompany.sales_system.service;
+
+import java.util.*;
+
+/**
+ * Cola de vencimientos agrupados por ranura de tiempo (resolución fija).
+ *
+ * Cada id tiene como máximo una ranura: volver a programarlo reemplaza la anterior.
+ * La ranura de un vencimiento es siempre estrictamente posterior a él, así que todo
+ * lo que devuelve {@link #extraerVencidos(long)} ya venció en ese instante.
+ * Segura para varios hilos (métodos sincronizados; las operaciones son O(log n)).
+ */
+public final class ColaExpiraciones {
+
+    private final long resolucionMs;
+
+    // ranura (epoch ms) -> ids que vencen en ella
+    private final NavigableMap<Long, Set<Long>> ranuras = new TreeMap<>();
+    // id -> ranura asignada (para reprogramar o cancelar)
+    private final Map<Long, Long> ranuraPorId = new HashMap<>();
+
+    public ColaExpiraciones(long resolucionMs) {
+        if (resolucionMs <= 0) {
+            throw new IllegalArgumentException("La resolución debe ser mayor que cero");
+        }
+        this.resolucionMs = resolucionMs;
+    }
+
+    /** Programar (o reprogramar) el vencimiento de un id. */
+    public synchronized void programar(Long id, long vencimientoMs) {
+        long ranura = Math.floorDiv(vencimientoMs, resolucionMs) * resolucionMs + resolucionMs;
+        Long anterior = ranuraPorId.put(id, ranura);
+        if (anterior != null) {
+            if (anterior == ranura) {
+                return;
+            }
+            quitarDeRanura(anterior, id);
+        }
+        ranuras.computeIfAbsent(ranura, k -> new HashSet<>()).add(id);
+    }
+
+    /** Cancelar el vencimiento de un id (no hace nada si no estaba programado). */
+    public synchronized void cancelar(Long id) {
+        Long ranura = ranuraPorId.remove(id);
+        if (ranura != null) {
+            quitarDeRanura(ranura, id);
+        }
+    }
+
+    /** Sacar de la cola todos los ids cuya ranura ya pasó. */
+    public synchronized List<Long> extraerVencidos(long ahoraMs) {
+        NavigableMap<Long, Set<Long>> vencidas = ranuras.headMap(ahoraMs, true);
+        if (vencidas.isEmpty()) {
+            return List.of();
+        }
+        List<Long> ids = new ArrayList<>();
+        for (Set<Long> grupo : vencidas.values()) {
+            ids.addAll(grupo);
+        }
+        vencidas.clear();
+        ids.forEach(ranuraPorId::remove);
+        return ids;
+    }
+
+    /** Instante (epoch ms) de la próxima ranura con vencimientos, o null si está vacía. */
+    public synchronized Long proximaRanura() {
+        return ranuras.isEmpty() ? null : ranuras.firstKey();
+    }
+
+    public synchronized int size() {
+        return ranuraPorId.size();
+    }
+
+    public synchronized void limpiar() {
+        ranuras.clear();
+        ranuraPorId.clear();
+    }
+
+    private void quitarDeRanura(Long ranura, Long id) {
+        Set<Long> grupo = ranuras.get(ranura);
+        if (grupo != null) {
+            grupo.remove(id);
+            if (grupo.isEmpty()) {
+                ranuras.remove(ranura);
+            }
+        }
+    }
+}
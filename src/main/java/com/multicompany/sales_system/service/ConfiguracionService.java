@@ -1,31 +1,53 @@
 package com.multicompany.sales_system.service;
 
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import com.multicompany.sales_system.event.PalabrasProhibidasActualizadasEvent;
 import com.multicompany.sales_system.model.Configuracion;
 import com.multicompany.sales_system.repository.ConfiguracionRepository;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
+/**
+ * Configuración del sistema.
+ *
+ * Las lecturas se sirven desde un snapshot inmutable en memoria, cargado al arrancar,
+ * recargado después de cada escritura hecha por este servicio y reconciliado
+ * periódicamente con la base de datos (para converger cuando hay varias instancias).
+ * Cada recarga toma un número de versión antes de leer y solo reemplaza snapshots de
+ * versión menor, así una recarga lenta no pisa a otra que leyó datos más recientes.
+ */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ConfiguracionService {
+    private static final int DIAS_EXPIRACION_DEFECTO = 30;
+
     private final ConfiguracionRepository configuracionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final AtomicReference<ConfiguracionSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong versiones = new AtomicLong();
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
 
     /**
      * Devuelve la lista de palabras prohibidas, limpias y en minúsculas.
      */
     public List<String> getPalabrasProhibidas() {
-        return configuracionRepository.findByOpcion(Configuracion.Opcion.FILTRO_PALABRAS) // ✅ Usar enum
-                .map(Configuracion::getValor)
-                .map(v -> Arrays.stream(v.split(","))
-                        .map(String::trim)
-                        .filter(s -> !s.isEmpty())
-                        .map(String::toLowerCase)
-                        .collect(Collectors.toList()))
-                .orElse(List.of());
+        return getSnapshot().getPalabrasProhibidas();
     }
 
     /**
@@ -33,16 +55,115 @@ public class ConfiguracionService {
      * Por defecto retorna 30 días si no hay configuración regfistrada.
      */
     public int getDiasExpiracion() {
-        return configuracionRepository.findByOpcion(Configuracion.Opcion.EXPIRACION_CONFIG)
-                .map(Configuracion::getValor)
-                .map(valor -> {
-                    try {
-                        return Integer.parseInt(valor.trim());
-                    } catch (NumberFormatException e) {
-                        return 30; 
-                    }
-                })
-                .orElse(30); 
+        return getSnapshot().getDiasExpiracion();
+    }
+
+    /**
+     * Valor crudo de una opción de configuración (vacío si no está registrada).
+     */
+    public Optional<String> getValor(Configuracion.Opcion opcion) {
+        return Optional.ofNullable(getSnapshot().getValores().get(opcion));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        recargar();
+    }
+
+    /**
+     * Reconciliación periódica con la base de datos. Si otra instancia cambió las
+     * palabras prohibidas, se avisa al detector igual que en una escritura local.
+     */
+    @Scheduled(fixedDelayString = "${app.config.refresh-ms:30000}",
+            initialDelayString = "${app.config.refresh-ms:30000}")
+    public void reconciliar() {
+        try {
+            ConfiguracionSnapshot anterior = snapshot.get();
+            ConfiguracionSnapshot nuevo = recargar();
+            if (anterior != null && !anterior.getPalabrasProhibidas().equals(nuevo.getPalabrasProhibidas())) {
+                log.info("Palabras prohibidas modificadas externamente, notificando al detector");
+                eventPublisher.publishEvent(new PalabrasProhibidasActualizadasEvent(nuevo.getPalabrasProhibidas()));
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo reconciliar la configuración: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Métricas del snapshot: aciertos, fallos (lecturas que tuvieron que cargar de la
+     * base de datos), tasa de aciertos y antigüedad del snapshot vigente.
+     */
+    public Map<String, Object> getEstadisticasCache() {
+        long hits = aciertos.get();
+        long misses = fallos.get();
+        ConfiguracionSnapshot actual = snapshot.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("aciertos", hits);
+        stats.put("fallos", misses);
+        stats.put("tasaAciertos", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        stats.put("cargadoEn", actual != null ? actual.getCargadoEn().toString() : null);
+        stats.put("antiguedadMs", actual != null
+                ? Duration.between(actual.getCargadoEn(), Instant.now()).toMillis()
+                : null);
+        return stats;
+    }
+
+    private ConfiguracionSnapshot getSnapshot() {
+        ConfiguracionSnapshot actual = snapshot.get();
+        if (actual != null) {
+            aciertos.incrementAndGet();
+            return actual;
+        }
+        fallos.incrementAndGet();
+        return recargar();
+    }
+
+    private ConfiguracionSnapshot recargar() {
+        // La versión se toma antes de leer: una recarga posterior ve al menos lo mismo
+        long version = versiones.incrementAndGet();
+        Map<Configuracion.Opcion, String> valores = new EnumMap<>(Configuracion.Opcion.class);
+        for (Configuracion config : configuracionRepository.findAll()) {
+            if (config.getOpcion() != null && config.getValor() != null) {
+                valores.putIfAbsent(config.getOpcion(), config.getValor());
+            }
+        }
+        ConfiguracionSnapshot nuevo = new ConfiguracionSnapshot(
+                Collections.unmodifiableMap(valores),
+                parsearPalabras(valores.get(Configuracion.Opcion.FILTRO_PALABRAS)),
+                parsearDias(valores.get(Configuracion.Opcion.EXPIRACION_CONFIG)),
+                Instant.now(),
+                version);
+        ConfiguracionSnapshot actual;
+        do {
+            actual = snapshot.get();
+            if (actual != null && actual.getVersion() > version) {
+                return actual;
+            }
+        } while (!snapshot.compareAndSet(actual, nuevo));
+        return nuevo;
+    }
+
+    private static List<String> parsearPalabras(String valor) {
+        if (valor == null) {
+            return List.of();
+        }
+        return Arrays.stream(valor.split(","))
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(String::toLowerCase)
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    private static int parsearDias(String valor) {
+        if (valor == null) {
+            return DIAS_EXPIRACION_DEFECTO;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            return DIAS_EXPIRACION_DEFECTO;
+        }
     }
 
     /**
@@ -67,7 +188,8 @@ public class ConfiguracionService {
         
         config.setValor(String.valueOf(dias));
         configuracionRepository.save(config);
-        
+        recargar();
+
         return dias;
     }
 
@@ -110,9 +232,14 @@ public class ConfiguracionService {
         String nuevoValor = String.join(",", palabrasSet);
         config.setValor(nuevoValor);
         configuracionRepository.save(config);
+        recargar();
+
+        // Avisar al detector para que recompile sus reglas
+        List<String> actualizadas = new ArrayList<>(palabrasSet);
+        eventPublisher.publishEvent(new PalabrasProhibidasActualizadasEvent(List.copyOf(actualizadas)));
 
         // Retornar lista actualizada
-        return new ArrayList<>(palabrasSet);
+        return actualizadas;
     }
 
     /**
@@ -156,9 +283,14 @@ public class ConfiguracionService {
         String nuevoValor = String.join(",", palabrasSet);
         config.setValor(nuevoValor);
         configuracionRepository.save(config);
+        recargar();
+
+        // Avisar al detector para que recompile sus reglas
+        List<String> actualizadas = new ArrayList<>(palabrasSet);
+        eventPublisher.publishEvent(new PalabrasProhibidasActualizadasEvent(List.copyOf(actualizadas)));
 
         // Retornar lista actualizada
-        return new ArrayList<>(palabrasSet);
+        return actualizadas;
     }
 
     /**
@@ -168,18 +300,18 @@ public class ConfiguracionService {
      * @return lista de palabras prohibidas
      */
     public List<String> obtenerPalabrasProhibidasAdmin() {
-        return configuracionRepository.findByOpcion(Configuracion.Opcion.FILTRO_PALABRAS)
-                .map(Configuracion::getValor)
-                .map(v -> {
-                    if (v == null || v.trim().isEmpty()) {
-                        return List.<String>of();
-                    }
-                    return Arrays.stream(v.split(","))
-                            .map(String::trim)
-                            .map(String::toLowerCase)  // Normalizar a minúsculas
-                            .filter(s -> !s.isEmpty())
-                            .collect(Collectors.toList());
-                })
-                .orElse(List.of());
+        return getPalabrasProhibidas();
+    }
+
+    /**
+     * Valores de configuración tipados e inmutables, indexados por opción.
+     */
+    @Value
+    public static class ConfiguracionSnapshot {
+        Map<Configuracion.Opcion, String> valores;
+        List<String> palabrasProhibidas;
+        int diasExpiracion;
+        Instant cargadoEn;
+        long version;
     }
-}
\ No newline at end of file
+}
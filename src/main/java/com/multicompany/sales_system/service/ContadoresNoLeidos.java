@@ -0,0 +1,199 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.event.MensajeEnviadoEvent;
+import com.multicompany.sales_system.event.MensajesLeidosEvent;
+import com.multicompany.sales_system.repository.ChatRepository;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mensajes no leídos por (chat, usuario), mantenidos en memoria.
+ *
+ * Los contadores de un usuario se cargan desde la tabla chat la primera vez que se consultan
+ * y se guardan en una caché acotada ({@code app.chat.no-leidos.max-usuarios}) que caduca cada
+ * {@code app.chat.no-leidos.ttl-ms}, así se vuelven a leer los cambios de otras instancias.
+ * Un mensaje enviado suma uno al receptor y marcar como leído los pone a cero. Cada cambio se
+ * envía al usuario por /queue/no-leidos.{idUsuario}, así el cliente no necesita consultar el
+ * contador.
+ *
+ * A la tabla chat solo se escriben incrementos ({@code no_leidos = no_leidos + ?}), cada
+ * {@code app.chat.no-leidos.flush-ms} y al apagar la aplicación: varias instancias pueden
+ * sumar sobre el mismo chat sin pisarse. La puesta a cero la hace ChatServiceImpl en la misma
+ * transacción que marca los mensajes como leídos.
+ */
+@Service
+@Slf4j
+public class ContadoresNoLeidos {
+
+    private static final String GUARDAR = "UPDATE chat SET "
+            + "no_leidos_usuario1 = no_leidos_usuario1 + CASE WHEN id_usuario1 = ? THEN ? ELSE 0 END, "
+            + "no_leidos_usuario2 = no_leidos_usuario2 + CASE WHEN id_usuario2 = ? THEN ? ELSE 0 END "
+            + "WHERE id_chat = ?";
+
+    private final ChatRepository chatRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final long flushMs;
+
+    // usuario -> (chat -> no leídos)
+    private final CacheLocal<Long, ConcurrentHashMap<Long, AtomicInteger>> porUsuario;
+    // Mensajes recibidos desde el último guardado, pendientes de sumar en la tabla chat
+    private final ConcurrentHashMap<Clave, Integer> pendientes = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService guardador = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "contadores-no-leidos");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ContadoresNoLeidos(ChatRepository chatRepository,
+                              JdbcTemplate jdbcTemplate,
+                              SimpMessagingTemplate messagingTemplate,
+                              @Value("${app.chat.no-leidos.flush-ms:1000}") long flushMs,
+                              @Value("${app.chat.no-leidos.max-usuarios:50000}") int maxUsuarios,
+                              @Value("${app.chat.no-leidos.ttl-ms:600000}") long ttlMs) {
+        this.chatRepository = chatRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.messagingTemplate = messagingTemplate;
+        this.flushMs = flushMs;
+        this.porUsuario = new CacheLocal<>("no-leidos", maxUsuarios, ttlMs);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        guardador.scheduleWithFixedDelay(this::guardarSinError, flushMs, flushMs, TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMensajeEnviado(MensajeEnviadoEvent event) {
+        int noLeidos = contador(event.getIdReceptor(), event.getIdChat()).incrementAndGet();
+        pendientes.merge(new Clave(event.getIdChat(), event.getIdReceptor()), 1, Integer::sum);
+        notificar(event.getIdReceptor(), event.getIdChat(), noLeidos);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMensajesLeidos(MensajesLeidosEvent event) {
+        // La tabla chat ya quedó a cero al marcar: lo pendiente de sumar se descarta
+        pendientes.remove(new Clave(event.getIdChat(), event.getIdUsuario()));
+        contador(event.getIdUsuario(), event.getIdChat()).set(0);
+        // Se notifica siempre: otras pestañas del mismo usuario actualizan su contador
+        notificar(event.getIdUsuario(), event.getIdChat(), 0);
+    }
+
+    public int noLeidos(Long idUsuario, Long idChat) {
+        AtomicInteger contador = delUsuario(idUsuario).get(idChat);
+        return contador != null ? contador.get() : 0;
+    }
+
+    public int totalNoLeidos(Long idUsuario) {
+        int total = 0;
+        for (AtomicInteger contador : delUsuario(idUsuario).values()) {
+            total += contador.get();
+        }
+        return total;
+    }
+
+    /**
+     * Sumar en la tabla chat los mensajes recibidos desde el último guardado. Devuelve cuántos
+     * contadores se actualizaron.
+     */
+    public synchronized int guardar() {
+        if (pendientes.isEmpty()) {
+            return 0;
+        }
+        Map<Clave, Integer> lote = new HashMap<>();
+        List<Object[]> filas = new ArrayList<>();
+        for (Clave clave : new ArrayList<>(pendientes.keySet())) {
+            // Quitar de forma atómica: un mensaje posterior empieza un incremento nuevo
+            Integer delta = pendientes.remove(clave);
+            if (delta == null) {
+                continue;
+            }
+            lote.put(clave, delta);
+            filas.add(new Object[] { clave.idUsuario, delta, clave.idUsuario, delta, clave.idChat });
+        }
+        try {
+            jdbcTemplate.batchUpdate(GUARDAR, filas);
+        } catch (RuntimeException e) {
+            lote.forEach((clave, delta) -> pendientes.merge(clave, delta, Integer::sum));
+            throw e;
+        }
+        return filas.size();
+    }
+
+    private ConcurrentHashMap<Long, AtomicInteger> delUsuario(Long idUsuario) {
+        return porUsuario.obtener(idUsuario, this::cargar);
+    }
+
+    private ConcurrentHashMap<Long, AtomicInteger> cargar(Long idUsuario) {
+        ConcurrentHashMap<Long, AtomicInteger> cargados = new ConcurrentHashMap<>();
+        for (Object[] fila : chatRepository.findNoLeidosByUsuario(idUsuario)) {
+            cargados.put((Long) fila[0], new AtomicInteger(((Number) fila[1]).intValue()));
+        }
+        // Lo que esta instancia aún no guardó no está en la tabla
+        pendientes.forEach((clave, delta) -> {
+            if (clave.idUsuario.equals(idUsuario)) {
+                cargados.computeIfAbsent(clave.idChat, id -> new AtomicInteger()).addAndGet(delta);
+            }
+        });
+        return cargados;
+    }
+
+    private AtomicInteger contador(Long idUsuario, Long idChat) {
+        return delUsuario(idUsuario).computeIfAbsent(idChat, id -> new AtomicInteger());
+    }
+
+    private void notificar(Long idUsuario, Long idChat, int noLeidosChat) {
+        try {
+            Map<String, Object> notificacion = new HashMap<>();
+            notificacion.put("idChat", idChat);
+            notificacion.put("noLeidosChat", noLeidosChat);
+            notificacion.put("totalNoLeidos", totalNoLeidos(idUsuario));
+            messagingTemplate.convertAndSend("/queue/no-leidos." + idUsuario, notificacion);
+        } catch (Exception e) {
+            log.warn("No se pudo notificar no leídos al usuario {}: {}", idUsuario, e.getMessage());
+        }
+    }
+
+    private void guardarSinError() {
+        try {
+            guardar();
+        } catch (Exception e) {
+            log.error("Error al guardar contadores de no leídos, se reintentará: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        guardador.shutdown();
+        try {
+            guardador.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int guardados = guardar();
+        log.info("Contadores de no leídos guardados al apagar: {}", guardados);
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class Clave {
+        private final Long idChat;
+        private final Long idUsuario;
+    }
+}
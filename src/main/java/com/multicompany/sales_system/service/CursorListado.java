@@ -0,0 +1,61 @@
+package com.multicompany.sales_system.service;
+
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Cursor opaco de paginación keyset: (orden, clave de orden, id) codificado en Base64 URL.
+ * El orden va dentro del cursor para rechazar cursores usados con otro orden.
+ */
+@Value
+public class CursorListado {
+
+    private static final String SEPARADOR = "|";
+
+    String orden;
+    String clave;
+    Long id;
+
+    public static String codificar(String orden, Object clave, Long id) {
+        String plano = orden + SEPARADOR + clave + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodificar un cursor; null o vacío significa primera página (devuelve null).
+     */
+    public static CursorListado decodificar(String cursor, String ordenEsperado) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] partes = plano.split("\\|", -1);
+            if (partes.length != 3 || !partes[0].equals(ordenEsperado)) {
+                throw new IllegalArgumentException();
+            }
+            return new CursorListado(partes[0], partes[1], Long.valueOf(partes[2]));
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Cursor inválido para el orden " + ordenEsperado);
+        }
+    }
+
+    public LocalDateTime getClaveFecha() {
+        try {
+            return LocalDateTime.parse(clave);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Cursor inválido");
+        }
+    }
+
+    public Double getClavePrecio() {
+        try {
+            return Double.valueOf(clave);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("Cursor inválido");
+        }
+    }
+}
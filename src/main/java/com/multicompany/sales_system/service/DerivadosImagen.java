@@ -0,0 +1,318 @@
+package com.multicompany.sales_system.service;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import jakarta.annotation.PreDestroy;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Versiones reducidas de las fotos de producto (miniatura, tarjeta y detalle) en JPEG.
+ *
+ * Los derivados se generan solo en un pool acotado: al subir una foto y, si falta alguno,
+ * en la primera petición que lo pide, que mientras tanto recibe el original. Cada original
+ * se decodifica una sola vez para todos sus tamaños (varias peticiones simultáneas esperan a
+ * la misma tarea), leyendo antes sus dimensiones de la cabecera: una imagen de más de
+ * {@code app.imagenes.derivados.max-pixeles} no se decodifica, y el resto se submuestrea al
+ * leerla hasta el doble del derivado más ancho. Si un derivado no existirá (imagen ilegible,
+ * demasiado grande o ya más estrecha) se recuerda, para servir el original sin volver a
+ * abrirlo. Los derivados se guardan en {@code derivados/{tamano}/} dentro del directorio de
+ * almacenamiento y se escriben con un renombrado atómico, así nunca se sirve un archivo a
+ * medio escribir.
+ */
+@Service
+@Slf4j
+public class DerivadosImagen {
+
+    @Getter
+    public enum Tamano {
+        MINIATURA("thumb", 160),
+        TARJETA("card", 480),
+        DETALLE("detail", 1080);
+
+        private final String nombre;
+        private final int ancho;
+
+        Tamano(String nombre, int ancho) {
+            this.nombre = nombre;
+            this.ancho = ancho;
+        }
+
+        public static Tamano desde(String nombre) {
+            for (Tamano tamano : values()) {
+                if (tamano.nombre.equalsIgnoreCase(nombre)) {
+                    return tamano;
+                }
+            }
+            throw new RuntimeException("Tamaño de imagen no válido: " + nombre + " (thumb, card o detail)");
+        }
+    }
+
+    // Los originales nunca se sobrescriben (el nombre lleva un UUID): el resultado no caduca pronto
+    private static final int MAX_SIN_DERIVADO = 10_000;
+    private static final long TTL_SIN_DERIVADO_MS = 3_600_000;
+
+    private final Path directorio;
+    private final float calidad;
+    private final long maxPixeles;
+    private final ThreadPoolExecutor pool;
+    // Original -> tarea que genera sus derivados
+    private final ConcurrentHashMap<Path, CompletableFuture<Void>> enCurso = new ConcurrentHashMap<>();
+    // Rutas de derivados que no se generarán: se sirve el original
+    private final CacheLocal<Path, Boolean> sinDerivado =
+            new CacheLocal<>("imagenes-sin-derivado", MAX_SIN_DERIVADO, TTL_SIN_DERIVADO_MS);
+
+    private final LongAdder generados = new LongAdder();
+    private final LongAdder coalescidos = new LongAdder();
+    private final LongAdder descartados = new LongAdder();
+    private final LongAdder sinGenerar = new LongAdder();
+
+    public DerivadosImagen(FileStorageService fileStorageService,
+                           @Value("${app.imagenes.derivados.hilos:2}") int hilos,
+                           @Value("${app.imagenes.derivados.cola:200}") int cola,
+                           @Value("${app.imagenes.derivados.calidad:0.8}") float calidad,
+                           @Value("${app.imagenes.derivados.max-pixeles:40000000}") long maxPixeles) {
+        this.directorio = fileStorageService.getStorageLocation().resolve("derivados");
+        this.calidad = calidad;
+        this.maxPixeles = maxPixeles;
+        this.pool = new ThreadPoolExecutor(hilos, hilos, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola), r -> {
+                    Thread t = new Thread(r, "derivados-imagen");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Programar los derivados que le falten a una foto. No bloquea: la tarea devuelta termina
+     * cuando están escritos. Si el pool está lleno se descarta y se reintenta en la siguiente
+     * petición.
+     */
+    public CompletableFuture<Void> programar(Path original) {
+        CompletableFuture<Void> nueva = new CompletableFuture<>();
+        CompletableFuture<Void> existente = enCurso.putIfAbsent(original, nueva);
+        if (existente != null) {
+            coalescidos.increment();
+            return existente;
+        }
+        try {
+            pool.execute(() -> {
+                try {
+                    generar(original);
+                    nueva.complete(null);
+                } catch (Exception e) {
+                    log.warn("No se pudieron generar los derivados de {}: {}", original.getFileName(), e.getMessage());
+                    nueva.completeExceptionally(e);
+                } finally {
+                    enCurso.remove(original, nueva);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            descartados.increment();
+            enCurso.remove(original, nueva);
+            nueva.completeExceptionally(e);
+        }
+        return nueva;
+    }
+
+    /**
+     * Derivado del tamaño pedido si ya existe, o el original si no habrá derivado. Devuelve
+     * null si aún no está: queda programado y mientras tanto se puede enviar el original.
+     * Nunca decodifica la imagen en el hilo que llama.
+     */
+    public Path obtener(Path original, Tamano tamano) {
+        Path derivado = ruta(original, tamano);
+        if (Files.isRegularFile(derivado)) {
+            return derivado;
+        }
+        if (sinDerivado.get(derivado) != null) {
+            return original;
+        }
+        programar(original);
+        return null;
+    }
+
+    public void eliminar(String filename) {
+        for (Tamano tamano : Tamano.values()) {
+            Path derivado = ruta(directorio.resolve(filename), tamano);
+            sinDerivado.invalidar(derivado);
+            try {
+                Files.deleteIfExists(derivado);
+            } catch (IOException e) {
+                log.warn("No se pudo eliminar el derivado {} de {}: {}", tamano.nombre, filename, e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("generados", generados.sum());
+        stats.put("coalescidos", coalescidos.sum());
+        stats.put("descartados", descartados.sum());
+        stats.put("sinGenerar", sinGenerar.sum());
+        stats.put("pendientes", pool.getQueue().size());
+        return stats;
+    }
+
+    private void generar(Path original) throws IOException {
+        List<Tamano> faltan = new ArrayList<>();
+        for (Tamano tamano : Tamano.values()) {
+            Path derivado = ruta(original, tamano);
+            if (!Files.isRegularFile(derivado) && sinDerivado.get(derivado) == null) {
+                faltan.add(tamano);
+            }
+        }
+        if (faltan.isEmpty()) {
+            return;
+        }
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> lectores = entrada != null ? ImageIO.getImageReaders(entrada) : null;
+            if (lectores == null || !lectores.hasNext()) {
+                // Formato sin lector (p. ej. WebP)
+                marcarSinDerivado(original, faltan);
+                return;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                int ancho = lector.getWidth(0);
+                int alto = lector.getHeight(0);
+                if ((long) ancho * alto > maxPixeles) {
+                    log.warn("{} mide {}x{} px, no se generan derivados", original.getFileName(), ancho, alto);
+                    marcarSinDerivado(original, faltan);
+                    return;
+                }
+                List<Tamano> reducibles = new ArrayList<>();
+                for (Tamano tamano : faltan) {
+                    if (ancho > tamano.ancho) {
+                        reducibles.add(tamano);
+                    } else {
+                        marcarSinDerivado(original, List.of(tamano));
+                    }
+                }
+                if (reducibles.isEmpty()) {
+                    return;
+                }
+                // Basta con decodificar al doble del derivado más ancho; los pasos a la mitad suavizan el resto
+                int mayor = reducibles.stream().mapToInt(Tamano::getAncho).max().getAsInt();
+                int paso = Math.max(1, ancho / (mayor * 2));
+                ImageReadParam parametros = lector.getDefaultReadParam();
+                parametros.setSourceSubsampling(paso, paso, 0, 0);
+                BufferedImage imagen = lector.read(0, parametros);
+                for (Tamano tamano : reducibles) {
+                    escribir(reducir(imagen, tamano.ancho), ruta(original, tamano));
+                }
+            } catch (IIOException e) {
+                // Datos corruptos o variante no soportada: volver a intentarlo daría lo mismo
+                log.warn("No se pudo decodificar {}: {}", original.getFileName(), e.getMessage());
+                marcarSinDerivado(original, faltan);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    private void marcarSinDerivado(Path original, List<Tamano> tamanos) {
+        for (Tamano tamano : tamanos) {
+            sinDerivado.put(ruta(original, tamano), Boolean.TRUE);
+            sinGenerar.increment();
+        }
+    }
+
+    private void escribir(BufferedImage reducida, Path derivado) throws IOException {
+        Files.createDirectories(derivado.getParent());
+        Path temporal = Files.createTempFile(derivado.getParent(), "derivado", ".tmp");
+        try {
+            escribirJpeg(reducida, temporal);
+            Files.move(temporal, derivado, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+        generados.increment();
+    }
+
+    /**
+     * Reducir a la mitad mientras se pueda y terminar con un paso bilineal: evita el
+     * aliasing de un solo paso grande sin el coste de un filtro de área.
+     */
+    static BufferedImage reducir(BufferedImage imagen, int ancho) {
+        BufferedImage actual = imagen;
+        int w = imagen.getWidth();
+        int h = imagen.getHeight();
+        boolean primero = true;
+        do {
+            int siguienteW = Math.max(ancho, w / 2);
+            int siguienteH = Math.max(1, (int) Math.round((double) h * siguienteW / w));
+            // RGB sin alfa: el JPEG no lo admite y las transparencias quedan sobre blanco
+            BufferedImage paso = new BufferedImage(siguienteW, siguienteH, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = paso.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                if (primero) {
+                    g.setColor(Color.WHITE);
+                    g.fillRect(0, 0, siguienteW, siguienteH);
+                }
+                g.drawImage(actual, 0, 0, siguienteW, siguienteH, null);
+            } finally {
+                g.dispose();
+            }
+            actual = paso;
+            w = siguienteW;
+            h = siguienteH;
+            primero = false;
+        } while (w > ancho);
+        return actual;
+    }
+
+    private void escribirJpeg(BufferedImage imagen, Path destino) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream salida = ImageIO.createImageOutputStream(destino.toFile())) {
+            writer.setOutput(salida);
+            ImageWriteParam parametros = writer.getDefaultWriteParam();
+            parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            parametros.setCompressionQuality(calidad);
+            parametros.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private Path ruta(Path original, Tamano tamano) {
+        String nombre = original.getFileName().toString();
+        int punto = nombre.lastIndexOf('.');
+        String base = punto > 0 ? nombre.substring(0, punto) : nombre;
+        return directorio.resolve(tamano.nombre).resolve(base + ".jpg");
+    }
+
+    @PreDestroy
+    public void detener() {
+        pool.shutdownNow();
+    }
+}
@@ -1,63 +1,127 @@
 package com.multicompany.sales_system.service;
 
+import com.multicompany.sales_system.event.PalabrasProhibidasActualizadasEvent;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import jakarta.annotation.PreDestroy;
 import java.util.*;
-import java.util.regex.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class DetectorService {
 
     private final ConfiguracionService configuracionService;
-    // Cache simple de patrones para evitar recompilar en cada llamada.
-    private volatile List<Pattern> patronesCache = null;
+
+    // Versión vigente de las reglas. Cada verificación lee la referencia una sola vez,
+    // así que una recompilación en curso nunca afecta a las verificaciones en vuelo.
+    private final AtomicReference<ReglasSnapshot> snapshot = new AtomicReference<>();
+    private final AtomicLong versiones = new AtomicLong();
+
+    // Las recompilaciones se hacen fuera del hilo de la petición, en orden de llegada.
+    private final ExecutorService compilador = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "detector-reglas");
+        t.setDaemon(true);
+        return t;
+    });
 
     private void cargarPatrones() {
-        List<String> palabras = configuracionService.getPalabrasProhibidas();
-        List<Pattern> patrones = palabras.stream()
-                .filter(s -> !s.isBlank())
-                .map(p -> "\\b" + Pattern.quote(p) + "\\b")
-                .map(regex -> Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE))
-                .collect(Collectors.toList());
-        patronesCache = patrones;
+        publicar(versiones.incrementAndGet(), configuracionService.getPalabrasProhibidas());
     }
 
-    private List<Pattern> getPatrones() {
-        if (patronesCache == null) {
+    private AhoCorasickMatcher getMatcher() {
+        ReglasSnapshot actual = snapshot.get();
+        if (actual == null) {
+            // Solo la primera carga es síncrona; después siempre hay un snapshot disponible
             synchronized (this) {
-                if (patronesCache == null) cargarPatrones();
+                if (snapshot.get() == null) cargarPatrones();
             }
+            actual = snapshot.get();
         }
-        return patronesCache;
+        return actual.getMatcher();
     }
 
     /** Indica si el texto contiene al menos una palabra prohibida. */
     public boolean containsProhibited(String texto) {
         if (texto == null || texto.isBlank()) return false;
-        for (Pattern p : getPatrones()) {
-            if (p.matcher(texto).find()) return true;
-        }
-        return false;
+        return getMatcher().contieneAlguna(texto);
     }
 
     /** Devuelve las palabras encontradas (sin duplicados). */
     public List<String> findMatchedWords(String texto) {
         if (texto == null || texto.isBlank()) return List.of();
-        LinkedHashSet<String> found = new LinkedHashSet<>();
-        for (Pattern p : getPatrones()) {
-            Matcher m = p.matcher(texto);
-            if (m.find()) {
-                found.add(m.group().toLowerCase());
-            }
-        }
-        return new ArrayList<>(found);
+        return getMatcher().palabrasEncontradas(texto);
+    }
+
+    /** Devuelve todas las coincidencias con su posición en el texto. */
+    public List<AhoCorasickMatcher.Coincidencia> findMatches(String texto) {
+        if (texto == null || texto.isBlank()) return List.of();
+        return getMatcher().buscar(texto);
+    }
+
+    /** Versión de las reglas vigentes (0 si aún no se han cargado). */
+    public long getVersionReglas() {
+        ReglasSnapshot actual = snapshot.get();
+        return actual == null ? 0 : actual.getVersion();
     }
 
     /** Forzar recarga (por ejemplo admin actualizó el banco de palabras) */
     public void reload() {
         cargarPatrones();
     }
-}
\ No newline at end of file
+
+    /**
+     * El banco de palabras cambió: recompilar en segundo plano y publicar la nueva
+     * versión de forma atómica cuando esté lista.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPalabrasActualizadas(PalabrasProhibidasActualizadasEvent event) {
+        long version = versiones.incrementAndGet();
+        compilador.execute(() -> {
+            try {
+                publicar(version, event.getPalabras());
+            } catch (Exception e) {
+                log.error("Error al recompilar las palabras prohibidas (versión {}): {}", version, e.getMessage(), e);
+            }
+        });
+    }
+
+    private void publicar(long version, List<String> palabras) {
+        List<String> normalizadas = palabras.stream()
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .map(String::toLowerCase)
+                .collect(Collectors.toList());
+        ReglasSnapshot nuevo = new ReglasSnapshot(version, AhoCorasickMatcher.compilar(normalizadas));
+
+        // Nunca reemplazar una versión más reciente por una más antigua
+        ReglasSnapshot vigente = snapshot.accumulateAndGet(nuevo,
+                (actual, candidato) -> actual == null || candidato.getVersion() > actual.getVersion() ? candidato : actual);
+        if (vigente == nuevo) {
+            log.info("Reglas de palabras prohibidas actualizadas: versión {} con {} palabras", version, nuevo.getMatcher().size());
+        }
+    }
+
+    @PreDestroy
+    void detenerCompilador() {
+        compilador.shutdownNow();
+    }
+
+    /**
+     * Reglas compiladas e inmutables asociadas a una versión.
+     */
+    @Value
+    private static class ReglasSnapshot {
+        long version;
+        AhoCorasickMatcher matcher;
+    }
+}
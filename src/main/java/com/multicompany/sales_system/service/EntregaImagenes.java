@@ -0,0 +1,187 @@
+package com.multicompany.sales_system.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Envío de imágenes almacenadas por HTTP.
+ *
+ * Los nombres de archivo llevan un UUID y nunca se sobrescriben, así que las respuestas se
+ * marcan como inmutables por un año. Responde 304 a If-None-Match / If-Modified-Since,
+ * admite un rango de bytes (Range / If-Range) y envía el archivo sin pasar por el heap:
+ * con sendfile de Tomcat cuando el conector lo ofrece y, si no, con FileChannel.transferTo.
+ */
+@Service
+public class EntregaImagenes {
+
+    static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    // Para lo que se sirve en lugar de un archivo que aún no existe (p. ej. un derivado en curso)
+    public static final String CACHE_CONTROL_PROVISIONAL = "public, max-age=60";
+
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    public void entregar(Path archivo, String contentType, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        entregar(archivo, contentType, request, response, CACHE_CONTROL);
+    }
+
+    public void entregar(Path archivo, String contentType, HttpServletRequest request,
+                         HttpServletResponse response, String cacheControl) throws IOException {
+        BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+        long tamano = atributos.size();
+        // Las fechas HTTP tienen precisión de segundos
+        long modificado = atributos.lastModifiedTime().toMillis() / 1000 * 1000;
+        String etag = "\"" + Long.toHexString(tamano) + "-" + Long.toHexString(modificado) + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, modificado);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (noModificado(request, etag, modificado)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long inicio = 0;
+        long fin = tamano - 1;
+        String rango = request.getHeader(HttpHeaders.RANGE);
+        if (rango != null && rangoAplicable(request, etag, modificado)) {
+            long[] limites = parsearRango(rango, tamano);
+            if (limites == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamano);
+                return;
+            }
+            if (limites.length == 2) {
+                inicio = limites[0];
+                fin = limites[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + tamano);
+            }
+        }
+
+        long longitud = fin - inicio + 1;
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + archivo.getFileName() + "\"");
+        response.setContentLengthLong(longitud);
+        if ("HEAD".equals(request.getMethod()) || longitud == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            // Tomcat copia el archivo al socket desde el kernel al terminar la petición
+            request.setAttribute(SENDFILE_ARCHIVO, archivo.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, fin + 1);
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long posicion = inicio;
+            long restante = longitud;
+            while (restante > 0) {
+                long enviados = canal.transferTo(posicion, restante, salida);
+                if (enviados <= 0) {
+                    break;
+                }
+                posicion += enviados;
+                restante -= enviados;
+            }
+        }
+    }
+
+    /**
+     * If-None-Match tiene prioridad; If-Modified-Since solo se mira si no viene ETag.
+     */
+    private static boolean noModificado(HttpServletRequest request, String etag, long modificado) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return coincideEtag(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = fechaCabecera(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && modificado <= ifModifiedSince;
+    }
+
+    /**
+     * Con If-Range, el rango solo se aplica si el cliente tiene la misma versión del archivo.
+     */
+    private static boolean rangoAplicable(HttpServletRequest request, String etag, long modificado) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        return fechaCabecera(request, HttpHeaders.IF_RANGE) == modificado;
+    }
+
+    private static boolean coincideEtag(String cabecera, String etag) {
+        for (String candidato : cabecera.split(",")) {
+            String valor = candidato.trim();
+            if (valor.equals("*") || valor.equals(etag) || valor.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long fechaCabecera(HttpServletRequest request, String nombre) {
+        try {
+            return request.getDateHeader(nombre);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Un solo rango "bytes=a-b", "bytes=a-" o "bytes=-n". Devuelve {inicio, fin}, un arreglo
+     * vacío si hay que ignorar el rango (varios rangos o sintaxis inválida: se envía el archivo
+     * completo) o null si no se puede satisfacer.
+     */
+    static long[] parsearRango(String rango, long tamano) {
+        if (!rango.startsWith("bytes=") || rango.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String especificacion = rango.substring(6).trim();
+        int guion = especificacion.indexOf('-');
+        if (guion < 0) {
+            return new long[0];
+        }
+        try {
+            String desde = especificacion.substring(0, guion).trim();
+            String hasta = especificacion.substring(guion + 1).trim();
+            if (desde.isEmpty()) {
+                // Sufijo: los últimos n bytes
+                long n = Long.parseLong(hasta);
+                if (n <= 0 || tamano == 0) {
+                    return null;
+                }
+                return new long[] { Math.max(0, tamano - n), tamano - 1 };
+            }
+            long inicio = Long.parseLong(desde);
+            long fin = hasta.isEmpty() ? tamano - 1 : Math.min(Long.parseLong(hasta), tamano - 1);
+            if (inicio >= tamano) {
+                return null;
+            }
+            return inicio <= fin ? new long[] { inicio, fin } : new long[0];
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.dto.message.MensajeRequestDTO;
+import com.multicompany.sales_system.dto.message.MensajeResponseDTO;
+import com.multicompany.sales_system.event.MensajeEnviadoEvent;
+import com.multicompany.sales_system.repository.ChatRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Envío de mensajes de chat por WebSocket sin esperar a la base de datos.
+ *
+ * {@link #aceptar(MensajeRequestDTO, String)} valida el emisor contra {@link ParticipantesChat},
+ * asigna id y fecha y devuelve el mensaje listo para difundir, sin ir a la base de datos. Los
+ * ids salen de bloques de {@code app.chat.envio.bloque-ids} valores de la secuencia de la
+ * tabla mensaje, reservados con una sola consulta por bloque y repuestos en segundo plano
+ * antes de agotarse. Son definitivos, pero dos instancias reparten bloques distintos: el
+ * orden de los mensajes es (fecha de envío, id), que es el que usan el historial, el resumen
+ * del chat y la lectura.
+ *
+ * Id, fecha y posición en la cola se asignan bajo un bloqueo por chat (repartido en franjas),
+ * así que chats distintos no se esperan entre sí. Un único hilo escritor guarda los mensajes
+ * por lotes en el orden de la cola, lo que mantiene el orden dentro de cada chat.
+ *
+ * Emisor y receptor salen de los participantes en memoria, guardados como (menor, mayor):
+ * aceptar un mensaje no consulta la tabla chat. Si un lote falla tras los reintentos, cada
+ * emisor recibe el error en /user/queue/errors y sus chats se quitan de la memoria.
+ */
+@Service
+@Slf4j
+public class EnvioMensajesChat {
+
+    private static final int MAX_CONTENIDO = 255;
+
+    private static final int FRANJAS_BLOQUEO = 64;
+
+    // Un bloque de ids en una sola ida y vuelta
+    private static final String RESERVAR_IDS = "SELECT nextval(pg_get_serial_sequence('mensaje', 'id_mensaje')) "
+            + "FROM generate_series(1, ?)";
+
+    // ON CONFLICT: reintentar un lote que sí llegó a confirmarse no duplica mensajes
+    private static final String INSERTAR = "INSERT INTO mensaje (id_mensaje, id_chat, id_emisor, contenido, fecha_envio, leido) "
+            + "VALUES (?, ?, ?, ?, ?, false) ON CONFLICT (id_mensaje) DO NOTHING";
+
+    private final ParticipantesChat participantesChat;
+    private final ChatRepository chatRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final int tamanoLote;
+    private final int reintentos;
+    private final int bloqueIds;
+
+    private final BlockingQueue<Pendiente> cola = new LinkedBlockingQueue<>();
+    private final Object[] bloqueosChat = new Object[FRANJAS_BLOQUEO];
+    // Ids reservados aún sin usar, en orden creciente
+    private final BlockingQueue<Long> idsReservados = new LinkedBlockingQueue<>();
+    private final Object bloqueoReserva = new Object();
+    private final AtomicBoolean reponiendo = new AtomicBoolean();
+    private volatile boolean activo = true;
+
+    private final LongAdder aceptados = new LongAdder();
+    private final LongAdder guardados = new LongAdder();
+    private final LongAdder lotes = new LongAdder();
+    private final LongAdder fallidos = new LongAdder();
+    private final LongAdder bloquesReservados = new LongAdder();
+    private volatile long ultimaLatenciaGuardadoMs;
+
+    private final ExecutorService escritor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "escritor-mensajes-chat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final ExecutorService reservador = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "reserva-ids-chat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public EnvioMensajesChat(ParticipantesChat participantesChat,
+                             ChatRepository chatRepository,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             ApplicationEventPublisher eventPublisher,
+                             SimpMessagingTemplate messagingTemplate,
+                             @Value("${app.chat.envio.tamano-lote:500}") int tamanoLote,
+                             @Value("${app.chat.envio.reintentos:3}") int reintentos,
+                             @Value("${app.chat.envio.bloque-ids:1000}") int bloqueIds) {
+        this.participantesChat = participantesChat;
+        this.chatRepository = chatRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.messagingTemplate = messagingTemplate;
+        this.tamanoLote = tamanoLote;
+        this.reintentos = reintentos;
+        this.bloqueIds = Math.max(1, bloqueIds);
+        for (int i = 0; i < FRANJAS_BLOQUEO; i++) {
+            bloqueosChat[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        escritor.execute(this::escribirContinuamente);
+    }
+
+    /**
+     * Validar y aceptar un mensaje. El mensaje devuelto ya tiene su id y fecha definitivos
+     * y se guardará en el siguiente lote. {@code usuarioSesion} es el nombre del principal
+     * STOMP del emisor (su correo), al que se avisa si el guardado falla.
+     */
+    public MensajeAceptado aceptar(MensajeRequestDTO request, String usuarioSesion) {
+        if (request.getContenido() == null || request.getContenido().isBlank()) {
+            throw new RuntimeException("El contenido no puede estar vacío");
+        }
+        if (request.getContenido().length() > MAX_CONTENIDO) {
+            throw new RuntimeException("El mensaje no puede superar " + MAX_CONTENIDO + " caracteres");
+        }
+        ParticipantesChat.Participantes participantes = participantesChat.obtener(request.getIdChat());
+        if (!participantes.incluye(request.getIdEmisor())) {
+            throw new RuntimeException("El usuario no pertenece a este chat");
+        }
+        Long idReceptor = participantes.otro(request.getIdEmisor());
+
+        Pendiente pendiente = null;
+        while (pendiente == null) {
+            synchronized (bloqueosChat[Math.floorMod(request.getIdChat().hashCode(), FRANJAS_BLOQUEO)]) {
+                // Id, fecha y posición en la cola se asignan juntos: dentro del chat siguen el mismo orden
+                Long id = idsReservados.poll();
+                if (id != null) {
+                    pendiente = new Pendiente(id, request.getIdChat(), request.getIdEmisor(), idReceptor,
+                            usuarioSesion, request.getContenido(), LocalDateTime.now(), System.nanoTime());
+                    cola.add(pendiente);
+                }
+            }
+            if (pendiente == null) {
+                // Reserva agotada: la ida y vuelta se hace fuera del bloqueo
+                reservarIds();
+            }
+        }
+        if (idsReservados.size() < bloqueIds / 2 && reponiendo.compareAndSet(false, true)) {
+            reservador.execute(this::reponerIds);
+        }
+        aceptados.increment();
+
+        MensajeResponseDTO mensaje = new MensajeResponseDTO(pendiente.id, pendiente.idChat, pendiente.idEmisor,
+                participantes.nombre(pendiente.idEmisor), pendiente.contenido, pendiente.fechaEnvio, false);
+        return new MensajeAceptado(mensaje, idReceptor);
+    }
+
+    public Map<String, Object> getEstadisticas() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendientes", cola.size());
+        stats.put("aceptados", aceptados.sum());
+        stats.put("guardados", guardados.sum());
+        stats.put("lotes", lotes.sum());
+        stats.put("fallidos", fallidos.sum());
+        stats.put("idsReservados", idsReservados.size());
+        stats.put("bloquesIds", bloquesReservados.sum());
+        stats.put("ultimaLatenciaGuardadoMs", ultimaLatenciaGuardadoMs);
+        return stats;
+    }
+
+    /**
+     * Reservar un bloque de ids si la reserva bajó de la mitad. Los valores de un bloque son
+     * mayores que los de cualquier bloque anterior de esta instancia.
+     */
+    private void reservarIds() {
+        synchronized (bloqueoReserva) {
+            if (idsReservados.size() >= bloqueIds / 2 && !idsReservados.isEmpty()) {
+                return;
+            }
+            List<Long> ids = new ArrayList<>(jdbcTemplate.queryForList(RESERVAR_IDS, Long.class, bloqueIds));
+            if (ids.isEmpty()) {
+                throw new RuntimeException("No se pudieron reservar ids de mensaje");
+            }
+            Collections.sort(ids);
+            idsReservados.addAll(ids);
+            bloquesReservados.increment();
+        }
+    }
+
+    private void reponerIds() {
+        try {
+            reservarIds();
+        } catch (Exception e) {
+            log.warn("No se pudo reponer la reserva de ids de mensaje: {}", e.getMessage());
+        } finally {
+            reponiendo.set(false);
+        }
+    }
+
+    private void escribirContinuamente() {
+        List<Pendiente> lote = new ArrayList<>(tamanoLote);
+        while (activo || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                cola.drainTo(lote, tamanoLote - 1);
+                escribirConReintentos(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void escribirConReintentos(List<Pendiente> lote) throws InterruptedException {
+        for (int intento = 1; ; intento++) {
+            try {
+                escribirLote(lote);
+                return;
+            } catch (Exception e) {
+                if (intento >= reintentos) {
+                    log.error("No se pudo guardar un lote de {} mensaje(s): {}", lote.size(), e.getMessage(), e);
+                    notificarFallidos(lote, e);
+                    return;
+                }
+                log.warn("Error al guardar lote de mensajes (intento {}), se reintentará: {}", intento, e.getMessage());
+                Thread.sleep(50L * intento);
+            }
+        }
+    }
+
+    private void escribirLote(List<Pendiente> lote) {
+        List<Object[]> filas = new ArrayList<>(lote.size());
+        Map<Long, Pendiente> ultimoPorChat = new LinkedHashMap<>();
+        for (Pendiente p : lote) {
+            filas.add(new Object[] { p.id, p.idChat, p.idEmisor, p.contenido, Timestamp.valueOf(p.fechaEnvio) });
+            ultimoPorChat.put(p.idChat, p);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERTAR, filas);
+            for (Pendiente p : ultimoPorChat.values()) {
+                chatRepository.registrarMensaje(p.idChat, p.id, p.contenido, p.idEmisor, p.fechaEnvio);
+            }
+            // Los contadores de no leídos se actualizan tras el commit
+            for (Pendiente p : lote) {
+                eventPublisher.publishEvent(new MensajeEnviadoEvent(p.idChat, p.id, p.idEmisor, p.idReceptor));
+            }
+        });
+        guardados.add(lote.size());
+        lotes.increment();
+        ultimaLatenciaGuardadoMs = (System.nanoTime() - lote.get(0).aceptadoEn) / 1_000_000;
+    }
+
+    private void notificarFallidos(List<Pendiente> lote, Exception error) {
+        fallidos.add(lote.size());
+        // Si el chat ya no es el que está en memoria, el siguiente mensaje lo vuelve a validar en la tabla
+        lote.stream().map(p -> p.idChat).distinct().forEach(participantesChat::invalidar);
+        for (Pendiente p : lote) {
+            if (p.usuarioSesion == null) {
+                log.warn("Mensaje {} del usuario {} sin guardar y sin sesión a la que avisar", p.id, p.idEmisor);
+                continue;
+            }
+            try {
+                messagingTemplate.convertAndSendToUser(p.usuarioSesion, "/queue/errors",
+                        "No se pudo guardar el mensaje " + p.id + ": " + error.getMessage());
+            } catch (Exception e) {
+                log.warn("No se pudo notificar el error al usuario {}: {}", p.idEmisor, e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        // El escritor vacía la cola antes de terminar
+        activo = false;
+        reservador.shutdownNow();
+        escritor.shutdown();
+        try {
+            if (!escritor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Quedaron {} mensaje(s) sin guardar al apagar", cola.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Mensaje aceptado: listo para difundir al chat y al receptor. */
+    @Getter
+    @AllArgsConstructor
+    public static class MensajeAceptado {
+        private final MensajeResponseDTO mensaje;
+        private final Long idReceptor;
+    }
+
+    @AllArgsConstructor
+    private static final class Pendiente {
+        private final Long id;
+        private final Long idChat;
+        private final Long idEmisor;
+        private final Long idReceptor;
+        private final String usuarioSesion;
+        private final String contenido;
+        private final LocalDateTime fechaEnvio;
+        private final long aceptadoEn;
+    }
+}
@@ -0,0 +1,119 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.model.Producto;
+import com.multicompany.sales_system.model.enums.EstadoProducto;
+import com.multicompany.sales_system.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expira productos a los pocos segundos de su fechaExpiracion.
+ *
+ * Mantiene en memoria los vencimientos de las próximas {@code app.expiracion.horizonte-horas}
+ * horas y los revisa cada {@code app.expiracion.tick-ms}. Al arrancar (y tras cada barrido
+ * de ProductScheduler) se recarga el horizonte desde la base de datos, así que no hace falta
+ * persistir nada: un reinicio solo reconstruye la cola. Las entradas obsoletas son inofensivas
+ * porque el UPDATE vuelve a comprobar estado y fecha.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExpiracionProgramador {
+
+    private final ProductRepository productRepository;
+    private final ProductoRestriccionService productoRestriccionService;
+
+    @Value("${app.expiracion.horizonte-horas:6}")
+    private long horizonteHoras;
+
+    @Value("${app.expiracion.tick-ms:1000}")
+    private long tickMs;
+
+    private final ColaExpiraciones cola = new ColaExpiraciones(1000);
+
+    private final ScheduledExecutorService reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "expiracion-productos");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        recargarHorizonte();
+        reloj.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Volver a cargar desde la base de datos los vencimientos dentro del horizonte
+     */
+    public void recargarHorizonte() {
+        LocalDateTime hasta = LocalDateTime.now().plusHours(horizonteHoras);
+        List<Object[]> filas = productRepository.findExpiracionesHasta(hasta);
+        for (Object[] fila : filas) {
+            cola.programar((Long) fila[0], aEpochMs((LocalDateTime) fila[1]));
+        }
+        log.info("Cola de expiración cargada: {} producto(s) vencen antes de {}", filas.size(), hasta);
+    }
+
+    /**
+     * Programar (o cancelar) la expiración de un producto tras crearlo o editarlo
+     */
+    public void programar(Producto producto) {
+        if (producto == null || producto.getIdProducto() == null) {
+            return;
+        }
+        LocalDateTime fecha = producto.getFechaExpiracion();
+        if (producto.getEstado() != EstadoProducto.ACTIVO || fecha == null) {
+            cola.cancelar(producto.getIdProducto());
+        } else if (!fecha.isAfter(LocalDateTime.now().plusHours(horizonteHoras))) {
+            cola.programar(producto.getIdProducto(), aEpochMs(fecha));
+        } else {
+            // Fuera del horizonte: lo recogerá una recarga posterior
+            cola.cancelar(producto.getIdProducto());
+        }
+    }
+
+    public void cancelar(Long idProducto) {
+        cola.cancelar(idProducto);
+    }
+
+    /** Productos pendientes en la cola (para monitoreo). */
+    public int getPendientes() {
+        return cola.size();
+    }
+
+    void tick() {
+        List<Long> vencidos = cola.extraerVencidos(System.currentTimeMillis());
+        if (vencidos.isEmpty()) {
+            return;
+        }
+        try {
+            List<Long> expirados = productoRestriccionService.expirarProductos(vencidos);
+            log.info("Expirados {} de {} producto(s) vencidos en la cola", expirados.size(), vencidos.size());
+        } catch (Exception e) {
+            // El barrido periódico de ProductScheduler los recogerá
+            log.error("Error al expirar productos de la cola: {}", e.getMessage(), e);
+        }
+    }
+
+    private static long aEpochMs(LocalDateTime fecha) {
+        return fecha.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @PreDestroy
+    public void detener() {
+        reloj.shutdownNow();
+    }
+}
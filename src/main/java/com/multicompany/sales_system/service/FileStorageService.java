@@ -25,6 +25,14 @@ public interface FileStorageService {
      */
     Resource loadFileAsResource(String filename) throws IOException;
 
+    /**
+     * Ruta de un archivo almacenado, validando que exista y que no salga del directorio
+     * 
+     * @param filename Nombre del archivo
+     * @return Ruta absoluta del archivo
+     */
+    Path resolverArchivo(String filename);
+
     /**
      * Eliminar un archivo
      * 
@@ -0,0 +1,218 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.event.InteresActualizadoEvent;
+import com.multicompany.sales_system.event.ProductoModificadoEvent;
+import com.multicompany.sales_system.event.ProductosExpiradosEvent;
+import com.multicompany.sales_system.model.enums.EstadoProducto;
+import com.multicompany.sales_system.repository.ProductRepository;
+import com.multicompany.sales_system.repository.ProductoInteresadoRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Contadores de interés por producto mantenidos en memoria.
+ *
+ * Cada producto lleva el total de "me interesa" y un puntaje de tendencia que decae a la
+ * mitad cada {@code app.popularidad.vida-media-horas}. Se reconstruye desde la base de datos
+ * al arrancar (con consultas agregadas: una fila por producto) y se actualiza tras el commit
+ * de cada alta/baja de interés. Los productos prohibidos, eliminados o expirados salen del
+ * índice. Los rankings se calculan con un heap acotado de tamaño K (O(n log K)) sin
+ * consultar la base de datos.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IndicePopularidad {
+
+    private final ProductoInteresadoRepository productoInteresadoRepository;
+    private final ProductRepository productRepository;
+
+    @Value("${app.popularidad.vida-media-horas:24}")
+    private double vidaMediaHoras;
+
+    private final ConcurrentHashMap<Long, Contador> contadores = new ConcurrentHashMap<>();
+
+    // Reloj en milisegundos (reemplazable en pruebas)
+    private LongSupplier reloj = System::currentTimeMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        long ahora = reloj.getAsLong();
+        Map<Long, Contador> nuevos = new HashMap<>();
+        for (Object[] fila : productoInteresadoRepository.contarInteresesVigentesPorProducto()) {
+            nuevos.computeIfAbsent((Long) fila[0], id -> new Contador()).total = (Long) fila[1];
+        }
+        for (Object[] fila : productoInteresadoRepository.sumarTendenciaPorProducto(
+                fecha(ahora), desdeTendencia(ahora), vidaMediaHoras * 3600)) {
+            nuevos.computeIfAbsent(((Number) fila[0]).longValue(), id -> new Contador())
+                    .sumarTendencia(((Number) fila[1]).doubleValue(), ahora, vidaMediaMs());
+        }
+        contadores.clear();
+        contadores.putAll(nuevos);
+        log.info("Índice de popularidad reconstruido con {} productos", nuevos.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInteresActualizado(InteresActualizadoEvent event) {
+        long ahora = reloj.getAsLong();
+        Contador contador = event.isAgregado()
+                ? contadores.computeIfAbsent(event.getIdProducto(), id -> new Contador())
+                : contadores.get(event.getIdProducto());
+        if (contador == null) {
+            // Baja de un producto que ya no está en el índice
+            return;
+        }
+        synchronized (contador) {
+            if (event.isAgregado()) {
+                contador.total++;
+                contador.sumarTendencia(1, ahora, vidaMediaMs());
+            } else {
+                contador.total = Math.max(0, contador.total - 1);
+                contador.sumarTendencia(-1, ahora, vidaMediaMs());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductosExpirados(ProductosExpiradosEvent event) {
+        event.getIdsProductos().forEach(contadores::remove);
+    }
+
+    /**
+     * Un producto prohibido o eliminado sale del índice. Si vuelve a estar activo (p. ej.
+     * tras una apelación) sus contadores se recargan desde la base de datos.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductoModificado(ProductoModificadoEvent event) {
+        Long idProducto = event.getIdProducto();
+        EstadoProducto estado = productRepository.findEstadoById(idProducto).orElse(null);
+        if (estado == null || estado == EstadoProducto.PROHIBIDO || estado == EstadoProducto.ELIMINADO) {
+            contadores.remove(idProducto);
+        } else if (!contadores.containsKey(idProducto)) {
+            recargarProducto(idProducto);
+        }
+    }
+
+    /** IDs con más intereses totales (desempate: ID más reciente primero). */
+    public List<Entrada> topPopulares(int k) {
+        return top(k, Entrada::getTotal);
+    }
+
+    /** IDs con mayor puntaje de tendencia en este momento. */
+    public List<Entrada> topTendencias(int k) {
+        return top(k, Entrada::getTendencia);
+    }
+
+    public int size() {
+        return contadores.size();
+    }
+
+    void setReloj(LongSupplier reloj) {
+        this.reloj = reloj;
+    }
+
+    void setVidaMediaHoras(double vidaMediaHoras) {
+        this.vidaMediaHoras = vidaMediaHoras;
+    }
+
+    private List<Entrada> top(int k, ToDoubleFunction<Entrada> puntaje) {
+        if (k <= 0) {
+            return List.of();
+        }
+        long ahora = reloj.getAsLong();
+        Comparator<Entrada> orden = Comparator.comparingDouble(puntaje)
+                .thenComparing(Entrada::getIdProducto);
+        // Min-heap: la raíz es la peor de las K mejores
+        PriorityQueue<Entrada> heap = new PriorityQueue<>(k + 1, orden);
+        contadores.forEach((id, contador) -> {
+            Entrada entrada;
+            synchronized (contador) {
+                entrada = new Entrada(id, contador.total, contador.tendenciaEn(ahora, vidaMediaMs()));
+            }
+            if (puntaje.applyAsDouble(entrada) <= 0) {
+                return;
+            }
+            if (heap.size() < k) {
+                heap.add(entrada);
+            } else if (orden.compare(entrada, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entrada);
+            }
+        });
+        List<Entrada> resultado = new ArrayList<>(heap);
+        resultado.sort(orden.reversed());
+        return resultado;
+    }
+
+    private void recargarProducto(Long idProducto) {
+        long total = productoInteresadoRepository.countInteresesByProducto(idProducto);
+        if (total == 0) {
+            return;
+        }
+        long ahora = reloj.getAsLong();
+        Contador contador = new Contador();
+        contador.total = total;
+        for (Object[] fila : productoInteresadoRepository.sumarTendenciaDeProducto(
+                idProducto, fecha(ahora), desdeTendencia(ahora), vidaMediaHoras * 3600)) {
+            contador.sumarTendencia(((Number) fila[1]).doubleValue(), ahora, vidaMediaMs());
+        }
+        // Si entretanto llegó un interés, su contador ya está al día
+        contadores.putIfAbsent(idProducto, contador);
+    }
+
+    /** Más allá de ~20 vidas medias el aporte a la tendencia es despreciable. */
+    private LocalDateTime desdeTendencia(long ahora) {
+        return fecha(ahora).minusMinutes((long) (vidaMediaHoras * 60 * 20));
+    }
+
+    private static LocalDateTime fecha(long epochMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault());
+    }
+
+    private double vidaMediaMs() {
+        return vidaMediaHoras * 3_600_000d;
+    }
+
+    /** Posición de un producto en un ranking. */
+    @Getter
+    @AllArgsConstructor
+    public static class Entrada {
+        private final Long idProducto;
+        private final long total;
+        private final double tendencia;
+    }
+
+    private static final class Contador {
+        long total;
+        double tendencia;
+        long actualizado;
+
+        /** Decae el puntaje hasta {@code ahora} y suma {@code delta} (nunca queda negativo). */
+        void sumarTendencia(double delta, long ahora, double vidaMediaMs) {
+            tendencia = Math.max(0, tendenciaEn(ahora, vidaMediaMs) + delta);
+            actualizado = Math.max(actualizado, ahora);
+        }
+
+        double tendenciaEn(long ahora, double vidaMediaMs) {
+            if (tendencia == 0) {
+                return 0;
+            }
+            return tendencia * Math.pow(2, -Math.max(0, ahora - actualizado) / vidaMediaMs);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.model.Chat;
+import com.multicompany.sales_system.repository.ChatRepository;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Participantes de cada chat en memoria, en los dos sentidos: chat -> (usuario1, usuario2)
+ * para validar el emisor y obtener el receptor, y (usuario, usuario) -> chat para abrir un
+ * chat sin consultar la base de datos. Se cargan bajo demanda y al crear un chat; los
+ * participantes de un chat no cambian, así que solo caducan para refrescar los nombres.
+ */
+@Service
+public class ParticipantesChat {
+
+    private final ChatRepository chatRepository;
+    private final CacheLocal<Long, Participantes> porChat;
+    private final CacheLocal<Par, Long> porPar;
+
+    public ParticipantesChat(ChatRepository chatRepository,
+                             @Value("${app.chat.participantes.max:50000}") int maxChats,
+                             @Value("${app.chat.participantes.ttl-ms:3600000}") long ttlMs) {
+        this.chatRepository = chatRepository;
+        this.porChat = new CacheLocal<>("participantes-chat", maxChats, ttlMs);
+        this.porPar = new CacheLocal<>("chat-por-participantes", maxChats, ttlMs);
+    }
+
+    public Participantes obtener(Long idChat) {
+        Participantes participantes = porChat.obtener(idChat, this::cargar);
+        if (participantes == null) {
+            throw new RuntimeException("Chat no encontrado");
+        }
+        return participantes;
+    }
+
+    /**
+     * Id del chat entre dos usuarios (en cualquier orden), o null si aún no existe.
+     */
+    public Long buscarChat(Long idUsuarioA, Long idUsuarioB) {
+        Par par = Par.de(idUsuarioA, idUsuarioB);
+        return porPar.obtener(par, p -> chatRepository.findIdByParticipantes(p.menor, p.mayor).orElse(null));
+    }
+
+    /**
+     * Registrar un chat recién creado o cargado, para no consultarlo de nuevo.
+     */
+    public void registrar(Chat chat) {
+        Participantes participantes = new Participantes(chat.getIdChat(),
+                chat.getUsuario1().getIdUsuario(), chat.getUsuario1().getNombre(),
+                chat.getUsuario2().getIdUsuario(), chat.getUsuario2().getNombre());
+        porChat.put(chat.getIdChat(), participantes);
+        porPar.put(Par.de(participantes.idUsuario1, participantes.idUsuario2), chat.getIdChat());
+    }
+
+    public void invalidar(Long idChat) {
+        Participantes participantes = porChat.get(idChat);
+        porChat.invalidar(idChat);
+        if (participantes != null) {
+            porPar.invalidar(Par.de(participantes.idUsuario1, participantes.idUsuario2));
+        }
+    }
+
+    private Participantes cargar(Long idChat) {
+        List<Object[]> filas = chatRepository.findParticipantes(idChat);
+        if (filas.isEmpty()) {
+            return null;
+        }
+        Object[] fila = filas.get(0);
+        Participantes participantes = new Participantes(idChat, (Long) fila[0], (String) fila[1], (Long) fila[2],
+                (String) fila[3]);
+        porPar.put(Par.de(participantes.idUsuario1, participantes.idUsuario2), idChat);
+        return participantes;
+    }
+
+    /** Par de usuarios en orden normalizado (menor, mayor), igual que en la tabla chat. */
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class Par {
+        private final Long menor;
+        private final Long mayor;
+
+        static Par de(Long idUsuarioA, Long idUsuarioB) {
+            return idUsuarioA <= idUsuarioB ? new Par(idUsuarioA, idUsuarioB) : new Par(idUsuarioB, idUsuarioA);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Participantes {
+        private final Long idChat;
+        private final Long idUsuario1;
+        private final String nombreUsuario1;
+        private final Long idUsuario2;
+        private final String nombreUsuario2;
+
+        public boolean incluye(Long idUsuario) {
+            return idUsuario1.equals(idUsuario) || idUsuario2.equals(idUsuario);
+        }
+
+        /** El otro participante del chat. */
+        public Long otro(Long idUsuario) {
+            return idUsuario1.equals(idUsuario) ? idUsuario2 : idUsuario1;
+        }
+
+        public String nombre(Long idUsuario) {
+            return idUsuario1.equals(idUsuario) ? nombreUsuario1 : nombreUsuario2;
+        }
+    }
+}
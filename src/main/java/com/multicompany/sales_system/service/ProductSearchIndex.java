@@ -0,0 +1,44 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.model.Producto;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Índice de búsqueda de texto sobre nombre y descripción de productos.
+ *
+ * La implementación se elige con la propiedad {@code app.search.engine}:
+ * {@code postgres} (por defecto, tsvector + GIN con diccionario español) o
+ * {@code memory} (índice invertido en memoria, útil para pruebas sin base de datos).
+ */
+public interface ProductSearchIndex {
+
+    /**
+     * Buscar productos ACTIVOS que coincidan con el término.
+     *
+     * @param termino  texto ingresado por el usuario
+     * @param pageable página solicitada (el orden lo define la relevancia)
+     * @return IDs de producto ordenados por relevancia
+     */
+    Page<Long> buscar(String termino, Pageable pageable);
+
+    /**
+     * Buscar productos en cualquier estado, como hacía la búsqueda simple (/search) con LIKE.
+     *
+     * @param termino texto ingresado por el usuario
+     * @return IDs de producto ordenados por relevancia
+     */
+    List<Long> buscarEnTodos(String termino);
+
+    /**
+     * Registrar o actualizar el texto indexado de un producto.
+     */
+    void indexar(Producto producto);
+
+    /**
+     * Quitar un producto del índice.
+     */
+    void eliminar(Long idProducto);
+}
@@ -1,5 +1,7 @@
 package com.multicompany.sales_system.service;
 
+import com.multicompany.sales_system.dto.common.CursorPageDTO;
+import com.multicompany.sales_system.dto.product.OrdenListado;
 import com.multicompany.sales_system.dto.product.ProductRequestDTO;
 import com.multicompany.sales_system.dto.product.ProductResponseDTO;
 import com.multicompany.sales_system.model.enums.TipoProducto;
@@ -18,6 +20,12 @@ public interface ProductService {
 
     List<ProductResponseDTO> getProductsByVendedor(Long vendedorId);
 
+    /**
+     * Tarjetas de listado de los productos indicados, en el mismo orden (los IDs
+     * inexistentes se omiten)
+     */
+    List<ProductResponseDTO> getProductsByIds(List<Long> ids);
+
     ProductResponseDTO updateProduct(Long id, ProductRequestDTO productRequestDTO);
 
     void deleteProduct(Long id);
@@ -58,6 +66,23 @@ public interface ProductService {
             Boolean disponibilidad,
             Pageable pageable);
 
+    /**
+     * Filtro combinado con paginación por cursor (keyset): sin COUNT ni OFFSET y estable
+     * aunque se publiquen productos mientras se pagina. Cubre también los filtros
+     * específicos (precio, tipo, ubicación), que son casos particulares de este.
+     *
+     * @param cursor null o vacío para la primera página; luego el nextCursor recibido
+     */
+    CursorPageDTO<ProductResponseDTO> getProductsWithFiltersCursor(Double minPrice,
+            Double maxPrice,
+            TipoProducto tipo,
+            String searchTerm,
+            String ubicacion,
+            Boolean disponibilidad,
+            OrdenListado orden,
+            String cursor,
+            int size);
+
     // --- Servicios ---
     /**
      * Obtener páginas de servicios (entidades Servicio con horario)
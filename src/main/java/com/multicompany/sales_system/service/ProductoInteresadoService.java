@@ -1,21 +1,25 @@
 package com.multicompany.sales_system.service;
 
+import com.multicompany.sales_system.dto.common.CursorPageDTO;
+import com.multicompany.sales_system.dto.interes.ProductoPopularDTO;
 import com.multicompany.sales_system.dto.product.ProductResponseDTO;
 import com.multicompany.sales_system.model.Producto;
 import com.multicompany.sales_system.model.ProductoInteresado;
 import com.multicompany.sales_system.model.Usuario;
+import com.multicompany.sales_system.model.enums.EstadoProducto;
 import com.multicompany.sales_system.model.enums.TipoProducto;
-import com.multicompany.sales_system.repository.ProductRepository;
 import com.multicompany.sales_system.repository.ProductoInteresadoRepository;
-import com.multicompany.sales_system.repository.UsuarioRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -27,9 +31,17 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ProductoInteresadoService {
 
+    private static final String ORDEN_CURSOR = "INTERES";
+    private static final int MAX_TAMANO_CURSOR = 100;
+    private static final int MAX_RANKING = 100;
+    // Tope de candidatos y de consultas al hidratar un ranking con muchos productos inactivos
+    private static final int MAX_CANDIDATOS_RANKING = MAX_RANKING * 4;
+    private static final int MAX_RONDAS_RANKING = 3;
+
     private final ProductoInteresadoRepository productoInteresadoRepository;
-    private final ProductRepository productRepository;
-    private final UsuarioRepository usuarioRepository;
+    private final IndicePopularidad indicePopularidad;
+    private final ProductService productService;
+    private final BufferIntereses bufferIntereses;
 
     /**
      * Agregar un producto a la lista de "me interesa" del usuario
@@ -37,29 +49,22 @@ public class ProductoInteresadoService {
     public Long getTotalInteresesByVendedor(Long vendedorId) {
         return productoInteresadoRepository.countInteresesByVendedor(vendedorId);
     }
-    @Transactional
+    @Transactional(readOnly = true)
     public boolean agregarInteres(Long usuarioId, Long productoId) {
-        // Verificar si ya existe la relación
-        if (productoInteresadoRepository.existsByUsuarioIdUsuarioAndProductoIdProducto(usuarioId, productoId)) {
+        // Verificar si ya existe la relación (incluidos los clics aún no escritos)
+        if (tieneInteres(usuarioId, productoId)) {
             log.warn("El usuario {} ya tiene marcado como 'me interesa' el producto {}", usuarioId, productoId);
             return false;
         }
 
-        // Buscar usuario y producto
-        Usuario usuario = usuarioRepository.findById(usuarioId)
-                .orElseThrow(() -> new RuntimeException("Usuario no encontrado con ID: " + usuarioId));
-
-        Producto producto = productRepository.findById(productoId)
-                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + productoId));
-
-        // Verificar que el producto esté activo
-        if (!producto.getEstado().isVisible()) {
+        // Verificar que el producto esté activo (lectura desde la caché del catálogo)
+        ProductResponseDTO producto = productService.getProductById(productoId);
+        if (!EstadoProducto.valueOf(producto.getEstado()).isVisible()) {
             throw new RuntimeException("No se puede marcar como 'me interesa' un producto que no está visible");
         }
 
-        // Crear la relación
-        ProductoInteresado productoInteresado = new ProductoInteresado(usuario, producto);
-        productoInteresadoRepository.save(productoInteresado);
+        // La relación se escribe en el siguiente lote del buffer
+        bufferIntereses.registrar(usuarioId, productoId, true);
 
         log.info("Usuario {} agregó producto {} a 'me interesa'", usuarioId, productoId);
         return true;
@@ -68,14 +73,14 @@ public class ProductoInteresadoService {
     /**
      * Quitar un producto de la lista de "me interesa" del usuario
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public boolean quitarInteres(Long usuarioId, Long productoId) {
-        if (!productoInteresadoRepository.existsByUsuarioIdUsuarioAndProductoIdProducto(usuarioId, productoId)) {
+        if (!tieneInteres(usuarioId, productoId)) {
             log.warn("El usuario {} no tiene marcado como 'me interesa' el producto {}", usuarioId, productoId);
             return false;
         }
 
-        productoInteresadoRepository.deleteByUsuarioIdUsuarioAndProductoIdProducto(usuarioId, productoId);
+        bufferIntereses.registrar(usuarioId, productoId, false);
         log.info("Usuario {} quitó producto {} de 'me interesa'", usuarioId, productoId);
         return true;
     }
@@ -85,6 +90,10 @@ public class ProductoInteresadoService {
      */
     @Transactional(readOnly = true)
     public boolean tieneInteres(Long usuarioId, Long productoId) {
+        Boolean pendiente = bufferIntereses.pendiente(usuarioId, productoId);
+        if (pendiente != null) {
+            return pendiente;
+        }
         return productoInteresadoRepository.existsByUsuarioIdUsuarioAndProductoIdProducto(usuarioId, productoId);
     }
 
@@ -93,12 +102,41 @@ public class ProductoInteresadoService {
      */
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> obtenerProductosInteres(Long usuarioId, Pageable pageable) {
+        bufferIntereses.asegurarEscrito(usuarioId);
         Page<ProductoInteresado> productosInteres = productoInteresadoRepository
                 .findByUsuarioIdUsuarioOrderByFechaInteresDesc(usuarioId, pageable);
 
         return productosInteres.map(pi -> convertirAProductResponseDTO(pi.getProducto()));
     }
 
+    /**
+     * Productos de interés de un usuario paginados por cursor (más recientes primero),
+     * sin COUNT ni OFFSET
+     */
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductResponseDTO> obtenerProductosInteresCursor(Long usuarioId, String cursor, int size) {
+        int tamano = Math.max(1, Math.min(size, MAX_TAMANO_CURSOR));
+        CursorListado desde = CursorListado.decodificar(cursor, ORDEN_CURSOR);
+        bufferIntereses.asegurarEscrito(usuarioId);
+        List<ProductoInteresado> filas = productoInteresadoRepository.findByUsuarioKeyset(usuarioId,
+                desde != null ? desde.getClaveFecha() : null,
+                desde != null ? desde.getId() : null,
+                PageRequest.of(0, tamano + 1));
+
+        boolean hayMas = filas.size() > tamano;
+        List<ProductoInteresado> pagina = hayMas ? filas.subList(0, tamano) : filas;
+        String siguiente = null;
+        if (hayMas) {
+            ProductoInteresado ultimo = pagina.get(pagina.size() - 1);
+            siguiente = CursorListado.codificar(ORDEN_CURSOR, ultimo.getFechaInteres(),
+                    ultimo.getIdProductoInteresado());
+        }
+        List<ProductResponseDTO> contenido = pagina.stream()
+                .map(pi -> convertirAProductResponseDTO(pi.getProducto()))
+                .collect(Collectors.toList());
+        return new CursorPageDTO<>(contenido, siguiente, hayMas, contenido.size());
+    }
+
     /**
      * Obtener productos marcados como "me interesa" por un usuario filtrados por
      * tipo
@@ -106,6 +144,7 @@ public class ProductoInteresadoService {
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> obtenerProductosInteresPorTipo(Long usuarioId, TipoProducto tipo,
             Pageable pageable) {
+        bufferIntereses.asegurarEscrito(usuarioId);
         Page<ProductoInteresado> productosInteres = productoInteresadoRepository
                 .findByUsuarioAndTipoProducto(usuarioId, tipo, pageable);
 
@@ -119,6 +158,7 @@ public class ProductoInteresadoService {
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> obtenerProductosInteresPorPrecio(Long usuarioId, Double minPrice, Double maxPrice,
             Pageable pageable) {
+        bufferIntereses.asegurarEscrito(usuarioId);
         Page<ProductoInteresado> productosInteres = productoInteresadoRepository
                 .findByUsuarioAndRangoPrecio(usuarioId, minPrice, maxPrice, pageable);
 
@@ -134,11 +174,52 @@ public class ProductoInteresadoService {
     }
 
     /**
-     * Obtener productos más populares (con más "me interesa")
+     * Obtener productos activos más populares (con más "me interesa"), desde el índice en memoria
      */
     @Transactional(readOnly = true)
-    public Page<Object[]> obtenerProductosMasPopulares(Pageable pageable) {
-        return productoInteresadoRepository.findProductosMasPopulares(pageable);
+    public List<ProductoPopularDTO> obtenerProductosMasPopulares(int limite) {
+        return hidratarRanking(indicePopularidad::topPopulares, limite);
+    }
+
+    /**
+     * Obtener productos activos en tendencia (más intereses recientes)
+     */
+    @Transactional(readOnly = true)
+    public List<ProductoPopularDTO> obtenerProductosTendencia(int limite) {
+        return hidratarRanking(indicePopularidad::topTendencias, limite);
+    }
+
+    /**
+     * Convierte un ranking en tarjetas completas con una sola consulta por ronda. Los
+     * productos que ya no están activos se descartan y se piden más candidatos si faltan,
+     * hasta {@value #MAX_RONDAS_RANKING} rondas y {@value #MAX_CANDIDATOS_RANKING} candidatos:
+     * si aun así faltan, se devuelve un ranking más corto.
+     */
+    private List<ProductoPopularDTO> hidratarRanking(IntFunction<List<IndicePopularidad.Entrada>> ranking,
+            int limite) {
+        int tamano = Math.max(1, Math.min(limite, MAX_RANKING));
+        int candidatos = tamano * 2;
+        for (int ronda = 1; ; ronda++) {
+            List<IndicePopularidad.Entrada> entradas = ranking.apply(candidatos);
+            Map<Long, ProductResponseDTO> tarjetas = productService.getProductsByIds(entradas.stream()
+                    .map(IndicePopularidad.Entrada::getIdProducto)
+                    .collect(Collectors.toList()))
+                    .stream()
+                    .filter(dto -> EstadoProducto.ACTIVO.name().equals(dto.getEstado()))
+                    .collect(Collectors.toMap(ProductResponseDTO::getIdProducto, dto -> dto));
+
+            boolean sinMas = entradas.size() < candidatos || candidatos >= MAX_CANDIDATOS_RANKING
+                    || ronda >= MAX_RONDAS_RANKING;
+            if (tarjetas.size() >= tamano || sinMas) {
+                return entradas.stream()
+                        .filter(e -> tarjetas.containsKey(e.getIdProducto()))
+                        .limit(tamano)
+                        .map(e -> new ProductoPopularDTO(tarjetas.get(e.getIdProducto()), e.getTotal(),
+                                e.getTendencia()))
+                        .collect(Collectors.toList());
+            }
+            candidatos = Math.min(candidatos * 2, MAX_CANDIDATOS_RANKING);
+        }
     }
 
     /**
@@ -154,6 +235,13 @@ public class ProductoInteresadoService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Métricas del buffer de escritura diferida de "me interesa"
+     */
+    public Map<String, Object> obtenerEstadisticasBuffer() {
+        return bufferIntereses.getEstadisticas();
+    }
+
     /**
      * Limpiar productos de interés expirados o eliminados
      */
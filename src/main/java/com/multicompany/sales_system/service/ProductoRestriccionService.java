@@ -1,16 +1,28 @@
 package com.multicompany.sales_system.service;
 
+import com.multicompany.sales_system.event.ProductoModificadoEvent;
+import com.multicompany.sales_system.event.ProductosExpiradosEvent;
 import com.multicompany.sales_system.model.Producto;
 import com.multicompany.sales_system.model.enums.EstadoProducto;
 import com.multicompany.sales_system.repository.ProductRepository;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Servicio para gestionar restricciones de publicación de productos
@@ -24,6 +36,13 @@ public class ProductoRestriccionService {
     private final ProductRepository productRepository;
     private final DetectorService detectorService;
     private final IncidenciaService incidenciaService;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.expiracion.tamano-lote:500}")
+    private int tamanoLote;
+
+    private volatile ResultadoExpiracion ultimaEjecucion;
 
     /**
      * Verificar si un producto contiene contenido prohibido y marcarlo en consecuencia
@@ -44,6 +63,7 @@ public class ProductoRestriccionService {
             
             producto.setEstado(EstadoProducto.PROHIBIDO);
             productRepository.save(producto);
+            eventPublisher.publishEvent(new ProductoModificadoEvent(producto.getIdProducto()));
             return true;
         }
 
@@ -69,6 +89,7 @@ public class ProductoRestriccionService {
             
             producto.setEstado(EstadoProducto.ELIMINADO);
             productRepository.save(producto);
+            eventPublisher.publishEvent(new ProductoModificadoEvent(producto.getIdProducto()));
             return true;
         }
 
@@ -78,20 +99,78 @@ public class ProductoRestriccionService {
     /**
      * Procesar productos expirados en lote
      */
-    @Transactional
     public int procesarProductosExpirados() {
+        return expirarProductos().getProcesados();
+    }
+
+    /**
+     * Expirar productos por lotes de {@code app.expiracion.tamano-lote}: un UPDATE por
+     * lote, cada uno en su propia transacción, hasta que no queden productos expirados.
+     * Por cada lote se publica un {@link ProductosExpiradosEvent} con los IDs afectados.
+     */
+    public ResultadoExpiracion expirarProductos() {
         LocalDateTime ahora = LocalDateTime.now();
-        List<Producto> productosExpirados = productRepository.findProductosExpirados(ahora);
-        
-        int procesados = 0;
-        for (Producto producto : productosExpirados) {
-            if (verificarYMarcarExpirados(producto)) {
-                procesados++;
+        long inicio = System.nanoTime();
+        List<Long> ids = new ArrayList<>();
+        int lotes = 0;
+
+        while (true) {
+            List<Long> lote = expirarEnTransaccion(() -> productRepository.expirarLote(ahora, tamanoLote));
+            if (lote.isEmpty()) {
+                break;
+            }
+            ids.addAll(lote);
+            lotes++;
+            if (lote.size() < tamanoLote) {
+                break;
             }
         }
-        
-        log.info("Procesados {} productos expirados", procesados);
-        return procesados;
+
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+        ResultadoExpiracion resultado = new ResultadoExpiracion(List.copyOf(ids), lotes, duracionMs, Instant.now());
+        ultimaEjecucion = resultado;
+        log.info("Procesados {} productos expirados en {} lote(s), {} ms ({} productos/s)",
+                resultado.getProcesados(), lotes, duracionMs, String.format("%.1f", resultado.getProductosPorSegundo()));
+        return resultado;
+    }
+
+    /**
+     * Resultado de la última ejecución de {@link #expirarProductos()} (null si aún no se ha ejecutado)
+     */
+    public ResultadoExpiracion getUltimaEjecucion() {
+        return ultimaEjecucion;
+    }
+
+    /**
+     * Expirar solo los productos indicados (los que sigan ACTIVOS y ya hayan vencido),
+     * por lotes y con las mismas garantías que {@link #expirarProductos()}.
+     */
+    public List<Long> expirarProductos(Collection<Long> idsProductos) {
+        if (idsProductos == null || idsProductos.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Long> pendientes = new ArrayList<>(idsProductos);
+        List<Long> expirados = new ArrayList<>();
+        for (int desde = 0; desde < pendientes.size(); desde += tamanoLote) {
+            List<Long> lote = pendientes.subList(desde, Math.min(desde + tamanoLote, pendientes.size()));
+            expirados.addAll(expirarEnTransaccion(() -> productRepository.expirarPorIds(lote, ahora)));
+        }
+        return expirados;
+    }
+
+    /**
+     * Ejecutar un UPDATE de expiración en su propia transacción y publicar los IDs afectados
+     */
+    private List<Long> expirarEnTransaccion(Supplier<List<Long>> update) {
+        List<Long> afectados = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Long> ids = update.get();
+            if (!ids.isEmpty()) {
+                eventPublisher.publishEvent(new ProductosExpiradosEvent(List.copyOf(ids)));
+            }
+            return ids;
+        });
+        return afectados == null ? List.of() : afectados;
     }
 
     /**
@@ -166,6 +245,7 @@ public class ProductoRestriccionService {
 
         producto.setEstado(nuevoEstado);
         productRepository.save(producto);
+        eventPublisher.publishEvent(new ProductoModificadoEvent(productoId));
 
         log.info("Estado del producto {} cambiado de {} a {}. Motivo: {}", 
                  productoId, estadoActual, nuevoEstado, motivo);
@@ -207,4 +287,24 @@ public class ProductoRestriccionService {
     public List<Producto> obtenerProductosProhibidos() {
         return productRepository.findByEstado(EstadoProducto.PROHIBIDO);
     }
+
+    /**
+     * Métricas de una ejecución del proceso de expiración
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ResultadoExpiracion {
+        private final List<Long> idsExpirados;
+        private final int lotes;
+        private final long duracionMs;
+        private final Instant finalizadoEn;
+
+        public int getProcesados() {
+            return idsExpirados.size();
+        }
+
+        public double getProductosPorSegundo() {
+            return duracionMs == 0 ? getProcesados() * 1000.0 : getProcesados() * 1000.0 / duracionMs;
+        }
+    }
 }
@@ -30,7 +30,7 @@ public interface UsuarioService {
     List<UserResponse> listUsers(boolean includeDeleted);
     UserResponse getUserByCedula(String cedula);
     UserResponse updateUser(String cedula, UserUpdateRequest request);
-    UserResponse updateOwnProfile(String cedula, UserUpdateRequest request);
+    UserResponse updateOwnProfile(Long idUsuario, UserUpdateRequest request);
 
     UserResponse getUserById(Long id);
     void deleteUser(String cedula);
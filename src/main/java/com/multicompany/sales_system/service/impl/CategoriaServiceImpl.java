@@ -2,17 +2,22 @@ package com.multicompany.sales_system.service.impl;
 
 import com.multicompany.sales_system.dto.categoria.CategoriaRequestDTO;
 import com.multicompany.sales_system.dto.categoria.CategoriaResponseDTO;
+import com.multicompany.sales_system.event.CategoriaModificadaEvent;
 import com.multicompany.sales_system.model.Categoria;
 import com.multicompany.sales_system.repository.CategoriaRepository;
+import com.multicompany.sales_system.service.CatalogoCache;
 import com.multicompany.sales_system.service.CategoriaService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,6 +26,8 @@ import java.util.stream.Collectors;
 public class CategoriaServiceImpl implements CategoriaService {
 
     private final CategoriaRepository categoriaRepository;
+    private final CatalogoCache catalogoCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public CategoriaResponseDTO createCategoria(CategoriaRequestDTO requestDTO) {
@@ -36,6 +43,7 @@ public class CategoriaServiceImpl implements CategoriaService {
         categoria.setFechaCreacion(LocalDateTime.now());
 
         Categoria savedCategoria = categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(savedCategoria.getIdCategoria()));
         return convertToResponseDTO(savedCategoria);
     }
 
@@ -59,6 +67,7 @@ public class CategoriaServiceImpl implements CategoriaService {
         }
 
         Categoria updatedCategoria = categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(id));
         return convertToResponseDTO(updatedCategoria);
     }
 
@@ -73,46 +82,38 @@ public class CategoriaServiceImpl implements CategoriaService {
     @Override
     @Transactional(readOnly = true)
     public List<CategoriaResponseDTO> getAllCategorias() {
-        return categoriaRepository.findAll().stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+        return toResponseList(categoriaRepository.findAll());
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<CategoriaResponseDTO> getAllCategoriasWithPagination(Pageable pageable) {
-        return categoriaRepository.findAll(pageable)
-                .map(this::convertToResponseDTO);
+        return toResponsePage(categoriaRepository.findAll(pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<CategoriaResponseDTO> getCategoriasActivas() {
-        return categoriaRepository.findByActivoOrderByNombreAsc(true).stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+        return catalogoCache.categoriasActivas(
+                () -> toResponseList(categoriaRepository.findByActivoOrderByNombreAsc(true)));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<CategoriaResponseDTO> getCategoriasActivasWithPagination(Pageable pageable) {
-        return categoriaRepository.findByActivo(true, pageable)
-                .map(this::convertToResponseDTO);
+        return toResponsePage(categoriaRepository.findByActivo(true, pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<CategoriaResponseDTO> searchCategoriasByNombre(String nombre) {
-        return categoriaRepository.findByNombreContainingIgnoreCase(nombre).stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+        return toResponseList(categoriaRepository.findByNombreContainingIgnoreCase(nombre));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<CategoriaResponseDTO> searchCategoriasByNombreWithPagination(String nombre, Pageable pageable) {
-        return categoriaRepository.findByNombreContainingIgnoreCase(nombre, pageable)
-                .map(this::convertToResponseDTO);
+        return toResponsePage(categoriaRepository.findByNombreContainingIgnoreCase(nombre, pageable));
     }
 
     @Override
@@ -130,6 +131,7 @@ public class CategoriaServiceImpl implements CategoriaService {
         }
 
         categoriaRepository.deleteById(id);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(id));
     }
 
     @Override
@@ -139,6 +141,7 @@ public class CategoriaServiceImpl implements CategoriaService {
 
         categoria.setActivo(!categoria.getActivo());
         Categoria updatedCategoria = categoriaRepository.save(categoria);
+        eventPublisher.publishEvent(new CategoriaModificadaEvent(id));
         return convertToResponseDTO(updatedCategoria);
     }
 
@@ -160,10 +163,52 @@ public class CategoriaServiceImpl implements CategoriaService {
         return categoriaRepository.countProductosByCategoriaId(id);
     }
 
-    // ✅ MÉTODO DE CONVERSIÓN A DTO
+    // ✅ MÉTODOS DE CONVERSIÓN A DTO
+
+    /**
+     * Convierte una lista de categorías contando sus productos en una sola consulta agrupada.
+     */
+    private List<CategoriaResponseDTO> toResponseList(List<Categoria> categorias) {
+        Map<Long, Long> cantidades = contarProductos(categorias);
+        return categorias.stream()
+                .map(categoria -> convertToResponseDTO(categoria,
+                        cantidades.getOrDefault(categoria.getIdCategoria(), 0L)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Convierte una página de categorías contando sus productos en una sola consulta agrupada.
+     */
+    private Page<CategoriaResponseDTO> toResponsePage(Page<Categoria> categorias) {
+        Map<Long, Long> cantidades = contarProductos(categorias.getContent());
+        return categorias.map(categoria -> convertToResponseDTO(categoria,
+                cantidades.getOrDefault(categoria.getIdCategoria(), 0L)));
+    }
+
+    /**
+     * Cantidad de productos por ID de categoría (las que no tienen productos no aparecen).
+     */
+    private Map<Long, Long> contarProductos(List<Categoria> categorias) {
+        if (categorias.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> ids = categorias.stream()
+                .map(Categoria::getIdCategoria)
+                .collect(Collectors.toList());
+
+        Map<Long, Long> cantidades = new HashMap<>();
+        for (Object[] fila : categoriaRepository.countProductosByCategoriaIds(ids)) {
+            cantidades.put((Long) fila[0], (Long) fila[1]);
+        }
+        return cantidades;
+    }
+
     private CategoriaResponseDTO convertToResponseDTO(Categoria categoria) {
         Long cantidadProductos = categoriaRepository.countProductosByCategoriaId(categoria.getIdCategoria());
+        return convertToResponseDTO(categoria, cantidadProductos);
+    }
 
+    private CategoriaResponseDTO convertToResponseDTO(Categoria categoria, Long cantidadProductos) {
         return new CategoriaResponseDTO(
                 categoria.getIdCategoria(),
                 categoria.getNombre(),
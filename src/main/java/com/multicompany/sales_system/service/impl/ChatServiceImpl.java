@@ -1,128 +1,224 @@
 package com.multicompany.sales_system.service.impl;
 
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.multicompany.sales_system.dto.chat.ChatResponseDTO;
-import com.multicompany.sales_system.dto.message.MensajeRequestDTO;
+import com.multicompany.sales_system.dto.chat.LecturaResponseDTO;
+import com.multicompany.sales_system.dto.common.CursorPageDTO;
 import com.multicompany.sales_system.dto.message.MensajeResponseDTO;
+import com.multicompany.sales_system.event.MensajesLeidosEvent;
 import com.multicompany.sales_system.model.Chat;
-import com.multicompany.sales_system.model.Mensaje;
 import com.multicompany.sales_system.model.Usuario;
 import com.multicompany.sales_system.repository.ChatRepository;
 import com.multicompany.sales_system.repository.MensajeRepository;
 import com.multicompany.sales_system.repository.UsuarioRepository;
+import com.multicompany.sales_system.repository.projection.MensajeResumen;
 import com.multicompany.sales_system.service.ChatService;
+import com.multicompany.sales_system.service.ContadoresNoLeidos;
+import com.multicompany.sales_system.service.ParticipantesChat;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
+@Slf4j
 public class ChatServiceImpl implements ChatService {
 
+    private static final int MAX_MENSAJES_POR_PAGINA = 100;
+
+    // Debe coincidir con la condición de MensajeRepository.marcarLeidos
+    private static final String CREAR_INDICE_NO_LEIDOS = "CREATE INDEX IF NOT EXISTS ix_mensaje_chat_no_leido "
+            + "ON mensaje (id_chat, fecha_envio) WHERE leido = false";
+
     private final ChatRepository chatRepository;
     private final MensajeRepository mensajeRepository;
     private final UsuarioRepository usuarioRepository;
+    private final ContadoresNoLeidos contadoresNoLeidos;
+    private final ParticipantesChat participantesChat;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JdbcTemplate jdbcTemplate;
 
     public ChatServiceImpl(ChatRepository chatRepository,
             MensajeRepository mensajeRepository,
-            UsuarioRepository usuarioRepository) {
+            UsuarioRepository usuarioRepository,
+            ContadoresNoLeidos contadoresNoLeidos,
+            ParticipantesChat participantesChat,
+            ApplicationEventPublisher eventPublisher,
+            JdbcTemplate jdbcTemplate) {
         this.chatRepository = chatRepository;
         this.mensajeRepository = mensajeRepository;
         this.usuarioRepository = usuarioRepository;
+        this.contadoresNoLeidos = contadoresNoLeidos;
+        this.participantesChat = participantesChat;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     @Override
     public ChatResponseDTO crearObtenerChat(Long idUsuario1, Long idUsuario2) {
-        // Buscar chat existente entre los dos usuarios
-        Chat chat = chatRepository.findByUsuarios(idUsuario1, idUsuario2)
-                .orElseGet(() -> {
-                    // Crear nuevo chat si no existe
-                    Usuario usuario1 = usuarioRepository.findById(idUsuario1)
-                            .orElseThrow(() -> new RuntimeException("Usuario 1 no encontrado"));
-                    Usuario usuario2 = usuarioRepository.findById(idUsuario2)
-                            .orElseThrow(() -> new RuntimeException("Usuario 2 no encontrado"));
-
-                    Chat nuevoChat = new Chat();
-                    nuevoChat.setUsuario1(usuario1);
-                    nuevoChat.setUsuario2(usuario2);
-                    return chatRepository.save(nuevoChat);
-                });
-
-        return toChatResponseDTO(chat);
+        // Buscar chat existente entre los dos usuarios (en memoria si ya se conoce)
+        Chat chat = null;
+        Long idChat = participantesChat.buscarChat(idUsuario1, idUsuario2);
+        if (idChat != null) {
+            chat = chatRepository.findById(idChat).orElse(null);
+            if (chat == null) {
+                participantesChat.invalidar(idChat);
+            }
+        }
+        if (chat == null) {
+            chat = crearChat(idUsuario1, idUsuario2);
+        }
+
+        ChatResponseDTO dto = toChatResponseDTO(chat, idUsuario1);
+        dto.setMensajes(obtenerMensajesPorChat(chat.getIdChat()));
+        return dto;
+    }
+
+    private Chat crearChat(Long idUsuario1, Long idUsuario2) {
+        if (!usuarioRepository.existsById(idUsuario1)) {
+            throw new RuntimeException("Usuario 1 no encontrado");
+        }
+        if (!usuarioRepository.existsById(idUsuario2)) {
+            throw new RuntimeException("Usuario 2 no encontrado");
+        }
+        // Los participantes se guardan como (menor, mayor); si otra petición lo creó antes, se reutiliza
+        Long menor = Math.min(idUsuario1, idUsuario2);
+        Long mayor = Math.max(idUsuario1, idUsuario2);
+        chatRepository.crearSiNoExiste(menor, mayor);
+        Chat chat = chatRepository.findByParticipantes(menor, mayor)
+                .orElseThrow(() -> new RuntimeException("No se pudo crear el chat"));
+        participantesChat.registrar(chat);
+        return chat;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ChatResponseDTO> obtenerChatsPorUsuario(Long idUsuario) {
-        return chatRepository.findByUsuarioId(idUsuario)
+        // Solo el resumen de cada chat: el historial se pide paginado al abrirlo
+        return chatRepository.findBandejaByUsuario(idUsuario)
                 .stream()
-                .map(this::toChatResponseDTO)
+                .map(chat -> {
+                    ChatResponseDTO dto = toChatResponseDTO(chat, idUsuario);
+                    // El valor en memoria incluye los cambios aún no guardados
+                    dto.setNoLeidos(contadoresNoLeidos.noLeidos(idUsuario, chat.getIdChat()));
+                    return dto;
+                })
                 .collect(Collectors.toList());
     }
 
-    @Override
-    public MensajeResponseDTO enviarMensaje(MensajeRequestDTO mensajeRequest) {
-        Chat chat = chatRepository.findById(mensajeRequest.getIdChat())
-                .orElseThrow(() -> new RuntimeException("Chat no encontrado"));
-
-        Usuario emisor = usuarioRepository.findById(mensajeRequest.getIdEmisor())
-                .orElseThrow(() -> new RuntimeException("Emisor no encontrado"));
-
-        // Validar que el emisor sea parte del chat
-        if (!chat.getUsuario1().getIdUsuario().equals(emisor.getIdUsuario()) &&
-                !chat.getUsuario2().getIdUsuario().equals(emisor.getIdUsuario())) {
-            throw new RuntimeException("El usuario no pertenece a este chat");
-        }
-
-        Mensaje mensaje = new Mensaje();
-        mensaje.setChat(chat);
-        mensaje.setEmisor(emisor);
-        mensaje.setContenido(mensajeRequest.getContenido());
-        mensaje.setLeido(false);
-
-        Mensaje mensajeGuardado = mensajeRepository.save(mensaje);
-        return toMensajeResponseDTO(mensajeGuardado);
-    }
-
     @Override
     @Transactional(readOnly = true)
     public List<MensajeResponseDTO> obtenerMensajesPorChat(Long idChat) {
-        return mensajeRepository.findByChatIdChatOrderByFechaEnvioAsc(idChat)
+        return mensajeRepository.findResumenesByChat(idChat)
                 .stream()
                 .map(this::toMensajeResponseDTO)
                 .collect(Collectors.toList());
     }
 
     @Override
-    public void marcarMensajesComoLeidos(Long idChat, Long idUsuario) {
-        List<Mensaje> mensajesNoLeidos = mensajeRepository.findByChatIdChatAndLeidoFalseAndEmisorIdUsuarioNot(idChat,
-                idUsuario);
-        mensajesNoLeidos.forEach(mensaje -> mensaje.setLeido(true));
-        mensajeRepository.saveAll(mensajesNoLeidos);
+    @Transactional(readOnly = true)
+    public CursorPageDTO<MensajeResponseDTO> obtenerMensajesPorChat(Long idChat, Long antesDe, int limite) {
+        int tamano = Math.max(1, Math.min(limite, MAX_MENSAJES_POR_PAGINA));
+        LocalDateTime fechaCursor = null;
+        if (antesDe != null) {
+            fechaCursor = mensajeRepository.findFechaEnvio(idChat, antesDe)
+                    .orElseThrow(() -> new RuntimeException("Mensaje no encontrado en el chat: " + antesDe));
+        }
+
+        // Se pide uno de más para saber si quedan mensajes anteriores
+        List<MensajeResumen> filas = mensajeRepository.findResumenesByChatAntesDe(idChat, fechaCursor, antesDe,
+                PageRequest.of(0, tamano + 1));
+        boolean hayMas = filas.size() > tamano;
+        List<MensajeResponseDTO> contenido = (hayMas ? filas.subList(0, tamano) : filas).stream()
+                .map(this::toMensajeResponseDTO)
+                .collect(Collectors.toList());
+        String siguiente = hayMas ? contenido.get(contenido.size() - 1).getIdMensaje().toString() : null;
+        return new CursorPageDTO<>(contenido, siguiente, hayMas, contenido.size());
     }
 
     @Override
-    public Long obtenerIdReceptor(Long idChat, Long idEmisor) {
-        Chat chat = chatRepository.findById(idChat)
-                .orElseThrow(() -> new RuntimeException("Chat no encontrado"));
+    public LecturaResponseDTO marcarMensajesComoLeidos(Long idChat, Long idUsuario) {
+        List<Object[]> estado = chatRepository.findEstadoLectura(idChat, idUsuario);
+        if (estado.isEmpty()) {
+            throw new RuntimeException("El usuario no pertenece a este chat");
+        }
+        Long hasta = (Long) estado.get(0)[0];
+        LocalDateTime fechaHasta = (LocalDateTime) estado.get(0)[1];
+        Long leidoHasta = (Long) estado.get(0)[2];
+
+        // Nada nuevo desde la última lectura: no se escribe nada. Un mensaje confirmado tarde
+        // bajo la marca sí cuenta como no leído, así que entonces se marca igualmente
+        if (hasta == null || (hasta.equals(leidoHasta) && contadoresNoLeidos.noLeidos(idUsuario, idChat) == 0)) {
+            return new LecturaResponseDTO(idChat, idUsuario, 0, leidoHasta);
+        }
 
-        if (chat.getUsuario1().getIdUsuario().equals(idEmisor)) {
-            return chat.getUsuario2().getIdUsuario();
-        } else {
-            return chat.getUsuario1().getIdUsuario();
+        // Siempre hasta el último mensaje: uno confirmado tarde puede quedar bajo la marca.
+        // Solo recorre los no leídos del chat (índice parcial ix_mensaje_chat_no_leido)
+        int marcados = mensajeRepository.marcarLeidos(idChat, idUsuario, fechaHasta);
+        if (!hasta.equals(leidoHasta)) {
+            chatRepository.actualizarLeidoHasta(idChat, idUsuario, hasta);
+            leidoHasta = hasta;
         }
+        // Los no leídos se guardan como incrementos; la puesta a cero va con la lectura
+        chatRepository.reiniciarNoLeidos(idChat, idUsuario);
+        eventPublisher.publishEvent(new MensajesLeidosEvent(idChat, idUsuario, leidoHasta));
+        return new LecturaResponseDTO(idChat, idUsuario, marcados, leidoHasta);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Long obtenerIdReceptor(Long idChat, Long idEmisor) {
+        return participantesChat.obtener(idChat).otro(idEmisor);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Integer contarMensajesNoLeidos(Long idUsuario) {
-        return mensajeRepository.countMensajesNoLeidosPorUsuario(idUsuario);
+        return contadoresNoLeidos.totalNoLeidos(idUsuario);
+    }
+
+    /**
+     * Completa al arrancar el resumen de los chats que tienen mensajes pero aún no lo tienen,
+     * y ordena como (menor, mayor) los participantes de los chats creados antes
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void completarResumenes() {
+        int normalizados = chatRepository.normalizarParticipantes();
+        if (normalizados > 0) {
+            log.info("Participantes ordenados en {} chat(s)", normalizados);
+        }
+        int completados = chatRepository.completarResumenes();
+        if (completados > 0) {
+            log.info("Resumen de bandeja completado para {} chat(s)", completados);
+        }
+    }
+
+    /**
+     * ddl-auto no crea índices parciales, así que se asegura aquí al arrancar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void crearIndiceNoLeidos() {
+        try {
+            jdbcTemplate.execute(CREAR_INDICE_NO_LEIDOS);
+            log.info("Índice de mensajes no leídos verificado");
+        } catch (Exception e) {
+            log.warn("No se pudo crear el índice de mensajes no leídos: {}", e.getMessage());
+        }
     }
 
     // Métodos helper para conversión DTO
-    private ChatResponseDTO toChatResponseDTO(Chat chat) {
+    private ChatResponseDTO toChatResponseDTO(Chat chat, Long idUsuario) {
         ChatResponseDTO dto = new ChatResponseDTO();
         dto.setIdChat(chat.getIdChat());
         dto.setIdUsuario1(chat.getUsuario1().getIdUsuario());
@@ -130,25 +226,21 @@ public class ChatServiceImpl implements ChatService {
         dto.setIdUsuario2(chat.getUsuario2().getIdUsuario());
         dto.setNombreUsuario2(chat.getUsuario2().getNombre());
 
-        // Cargar mensajes si es necesario
-        if (chat.getMensajes() != null) {
-            dto.setMensajes(chat.getMensajes().stream()
-                    .map(this::toMensajeResponseDTO)
-                    .collect(Collectors.toList()));
-        }
-
+        boolean esUsuario1 = chat.getUsuario1().getIdUsuario().equals(idUsuario);
+        Usuario contraparte = esUsuario1 ? chat.getUsuario2() : chat.getUsuario1();
+        dto.setIdContraparte(contraparte.getIdUsuario());
+        dto.setNombreContraparte(contraparte.getNombre());
+        dto.setIdUltimoMensaje(chat.getIdUltimoMensaje());
+        dto.setUltimoMensaje(chat.getUltimoMensaje());
+        dto.setIdEmisorUltimoMensaje(chat.getIdEmisorUltimoMensaje());
+        dto.setFechaUltimoMensaje(chat.getFechaUltimoMensaje());
+        dto.setNoLeidos(esUsuario1 ? chat.getNoLeidosUsuario1() : chat.getNoLeidosUsuario2());
+        dto.setLeidoHastaContraparte(esUsuario1 ? chat.getLeidoHastaUsuario2() : chat.getLeidoHastaUsuario1());
         return dto;
     }
 
-    private MensajeResponseDTO toMensajeResponseDTO(Mensaje mensaje) {
-        MensajeResponseDTO dto = new MensajeResponseDTO();
-        dto.setIdMensaje(mensaje.getIdMensaje());
-        dto.setIdChat(mensaje.getChat().getIdChat());
-        dto.setIdEmisor(mensaje.getEmisor().getIdUsuario());
-        dto.setNombreEmisor(mensaje.getEmisor().getNombre());
-        dto.setContenido(mensaje.getContenido());
-        dto.setFechaEnvio(mensaje.getFechaEnvio());
-        dto.setLeido(mensaje.getLeido());
-        return dto;
+    private MensajeResponseDTO toMensajeResponseDTO(MensajeResumen mensaje) {
+        return new MensajeResponseDTO(mensaje.getIdMensaje(), mensaje.getIdChat(), mensaje.getIdEmisor(),
+                mensaje.getNombreEmisor(), mensaje.getContenido(), mensaje.getFechaEnvio(), mensaje.getLeido());
     }
 }
\ No newline at end of file
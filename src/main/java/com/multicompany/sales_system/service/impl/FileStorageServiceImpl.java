@@ -79,19 +79,23 @@ public class FileStorageServiceImpl implements FileStorageService {
     @Override
     public Resource loadFileAsResource(String filename) throws IOException {
         try {
-            Path filePath = this.fileStorageLocation.resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
-
-            if (resource.exists() && resource.isReadable()) {
-                return resource;
-            } else {
-                throw new RuntimeException("Archivo no encontrado: " + filename);
-            }
+            return new UrlResource(resolverArchivo(filename).toUri());
         } catch (MalformedURLException ex) {
             throw new RuntimeException("Archivo no encontrado: " + filename, ex);
         }
     }
 
+    @Override
+    public Path resolverArchivo(String filename) {
+        Path filePath = this.fileStorageLocation.resolve(filename).normalize();
+        // Un nombre con ".." no puede leer fuera del directorio de almacenamiento
+        if (!filePath.startsWith(this.fileStorageLocation) || !Files.isRegularFile(filePath)
+                || !Files.isReadable(filePath)) {
+            throw new RuntimeException("Archivo no encontrado: " + filename);
+        }
+        return filePath;
+    }
+
     @Override
     public void deleteFile(String filename) throws IOException {
         if (filename == null || filename.trim().isEmpty()) {
@@ -0,0 +1,237 @@
+package com.multicompany.sales_system.service.impl;
+
+import com.multicompany.sales_system.model.Producto;
+import com.multicompany.sales_system.repository.ProductRepository;
+import com.multicompany.sales_system.service.ProductSearchIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Índice invertido en memoria sobre nombre y descripción de productos.
+ *
+ * Se reconstruye desde la base de datos al arrancar y se actualiza en cada
+ * creación/edición/eliminación de producto. El estado (ACTIVO) no se guarda en el
+ * índice: se valida contra la base de datos sobre los candidatos de cada búsqueda.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "memory")
+public class InMemoryProductSearchIndex implements ProductSearchIndex {
+
+    /** Máximo de candidatos (por relevancia) que se validan contra la base de datos. */
+    static final int MAX_CANDIDATOS = 1000;
+
+    private static final int PESO_NOMBRE = 2;
+    private static final int PESO_DESCRIPCION = 1;
+
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+");
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "al", "con", "de", "del", "e", "el", "en", "es", "la", "las", "lo", "los",
+            "o", "para", "por", "sin", "su", "sus", "u", "un", "una", "unos", "unas", "y");
+
+    private final ProductRepository productRepository;
+
+    // término -> (idProducto -> peso)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // idProducto -> términos indexados (para poder desindexar)
+    private final Map<Long, Set<String>> terminosPorProducto = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        List<Object[]> filas = productRepository.findTextoIndexable();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            terminosPorProducto.clear();
+            for (Object[] fila : filas) {
+                agregar((Long) fila[0], (String) fila[1], (String) fila[2]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Índice de búsqueda en memoria construido con {} productos", filas.size());
+    }
+
+    @Override
+    public void indexar(Producto producto) {
+        if (producto == null || producto.getIdProducto() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            quitar(producto.getIdProducto());
+            agregar(producto.getIdProducto(), producto.getNombre(), producto.getDescripcion());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void eliminar(Long idProducto) {
+        lock.writeLock().lock();
+        try {
+            quitar(idProducto);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Page<Long> buscar(String termino, Pageable pageable) {
+        List<String> consulta = analizar(termino);
+        if (consulta.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        List<Long> candidatos;
+        lock.readLock().lock();
+        try {
+            candidatos = puntuar(consulta);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (candidatos.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        Set<Long> activos = new HashSet<>(productRepository.findIdsActivosByIdIn(candidatos));
+        List<Long> resultado = candidatos.stream()
+                .filter(activos::contains)
+                .collect(Collectors.toList());
+
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(resultado, pageable, resultado.size());
+        }
+        int desde = (int) Math.min(pageable.getOffset(), resultado.size());
+        int hasta = Math.min(desde + pageable.getPageSize(), resultado.size());
+        return new PageImpl<>(resultado.subList(desde, hasta), pageable, resultado.size());
+    }
+
+    @Override
+    public List<Long> buscarEnTodos(String termino) {
+        List<String> consulta = analizar(termino);
+        if (consulta.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return puntuar(consulta);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Todas las palabras deben aparecer; la última se trata como prefijo.
+     * Devuelve los mejores candidatos ordenados por relevancia.
+     */
+    private List<Long> puntuar(List<String> consulta) {
+        Map<Long, Integer> puntajes = null;
+        for (int i = 0; i < consulta.size(); i++) {
+            String palabra = consulta.get(i);
+            Map<Long, Integer> coincidencias = new HashMap<>();
+            if (i == consulta.size() - 1) {
+                for (Map<Long, Integer> docs : postings.subMap(palabra, true, palabra + Character.MAX_VALUE, true).values()) {
+                    docs.forEach((id, peso) -> coincidencias.merge(id, peso, Integer::sum));
+                }
+            } else {
+                coincidencias.putAll(postings.getOrDefault(palabra, Map.of()));
+            }
+
+            if (puntajes == null) {
+                puntajes = coincidencias;
+            } else {
+                puntajes.keySet().retainAll(coincidencias.keySet());
+                puntajes.replaceAll((id, peso) -> peso + coincidencias.get(id));
+            }
+            if (puntajes.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        return puntajes.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed()))
+                .limit(MAX_CANDIDATOS)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void agregar(Long id, String nombre, String descripcion) {
+        Map<String, Integer> pesos = new HashMap<>();
+        analizar(nombre).forEach(t -> pesos.merge(t, PESO_NOMBRE, Integer::sum));
+        analizar(descripcion).forEach(t -> pesos.merge(t, PESO_DESCRIPCION, Integer::sum));
+
+        pesos.forEach((termino, peso) -> postings.computeIfAbsent(termino, k -> new HashMap<>()).put(id, peso));
+        terminosPorProducto.put(id, pesos.keySet());
+    }
+
+    private void quitar(Long id) {
+        Set<String> terminos = terminosPorProducto.remove(id);
+        if (terminos == null) {
+            return;
+        }
+        for (String termino : terminos) {
+            Map<Long, Integer> docs = postings.get(termino);
+            if (docs != null) {
+                docs.remove(id);
+                if (docs.isEmpty()) {
+                    postings.remove(termino);
+                }
+            }
+        }
+    }
+
+    /**
+     * Minúsculas, sin tildes, sin palabras vacías y con una reducción simple de plurales.
+     */
+    static List<String> analizar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return List.of();
+        }
+        String normalizado = MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        Matcher m = TOKEN.matcher(normalizado);
+        while (m.find()) {
+            String token = m.group();
+            if (!STOPWORDS.contains(token)) {
+                tokens.add(raiz(token));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Singular aproximado: "camiones" -> "camion", "flores" -> "flor", "casas" -> "casa".
+     */
+    static String raiz(String palabra) {
+        int n = palabra.length();
+        if (n > 4 && palabra.endsWith("es") && "nrldj".indexOf(palabra.charAt(n - 3)) >= 0) {
+            return palabra.substring(0, n - 2);
+        }
+        if (n > 3 && palabra.endsWith("s")) {
+            return palabra.substring(0, n - 1);
+        }
+        return palabra;
+    }
+}
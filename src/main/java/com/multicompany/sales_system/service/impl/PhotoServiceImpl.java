@@ -1,14 +1,17 @@
 package com.multicompany.sales_system.service.impl;
 
 import com.multicompany.sales_system.dto.photo.PhotoResponseDTO;
+import com.multicompany.sales_system.event.ProductoModificadoEvent;
 import com.multicompany.sales_system.model.FotoProducto;
 import com.multicompany.sales_system.model.Producto;
 import com.multicompany.sales_system.repository.PhotoRepository;
 import com.multicompany.sales_system.repository.ProductRepository;
+import com.multicompany.sales_system.service.DerivadosImagen;
 import com.multicompany.sales_system.service.PhotoService;
 import com.multicompany.sales_system.service.FileStorageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -27,6 +30,8 @@ public class PhotoServiceImpl implements PhotoService {
     private final PhotoRepository photoRepository;
     private final ProductRepository productRepository;
     private final FileStorageService fileStorageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DerivadosImagen derivadosImagen;
 
     @Override
     public PhotoResponseDTO uploadPhoto(Long productId, MultipartFile file) throws IOException {
@@ -46,6 +51,8 @@ public class PhotoServiceImpl implements PhotoService {
 
         // Guardar el archivo físicamente
         String filename = fileStorageService.storeFile(file, productId);
+        // Miniatura, tarjeta y detalle se generan en segundo plano
+        derivadosImagen.programar(fileStorageService.resolverArchivo(filename));
 
         // Crear el registro en la base de datos
         FotoProducto foto = new FotoProducto();
@@ -53,6 +60,7 @@ public class PhotoServiceImpl implements PhotoService {
         foto.setProducto(producto);
 
         FotoProducto savedPhoto = photoRepository.save(foto);
+        eventPublisher.publishEvent(new ProductoModificadoEvent(productId));
         log.info("Foto guardada exitosamente para producto {}: {}", productId, filename);
 
         return convertToResponseDTO(savedPhoto);
@@ -129,6 +137,7 @@ public class PhotoServiceImpl implements PhotoService {
         if (filename != null && !filename.trim().isEmpty()) {
             try {
                 fileStorageService.deleteFile(filename);
+                derivadosImagen.eliminar(filename);
                 log.info("Archivo físico eliminado: {}", filename);
             } catch (Exception e) {
                 log.error("Error al eliminar archivo físico: {}", filename, e);
@@ -144,6 +153,9 @@ public class PhotoServiceImpl implements PhotoService {
 
         // Eliminar el registro de la base de datos
         photoRepository.deleteById(id);
+        if (producto != null) {
+            eventPublisher.publishEvent(new ProductoModificadoEvent(producto.getIdProducto()));
+        }
         log.info("Foto eliminada de la base de datos: {}", id);
     }
 
@@ -157,6 +169,7 @@ public class PhotoServiceImpl implements PhotoService {
             if (filename != null && !filename.trim().isEmpty()) {
                 try {
                     fileStorageService.deleteFile(filename);
+                    derivadosImagen.eliminar(filename);
                 } catch (Exception e) {
                     log.error("Error al eliminar archivo: {}", filename, e);
                 }
@@ -165,6 +178,7 @@ public class PhotoServiceImpl implements PhotoService {
 
         // Eliminar todos los registros
         photoRepository.deleteAll(fotos);
+        eventPublisher.publishEvent(new ProductoModificadoEvent(productId));
         log.info("Todas las fotos del producto {} fueron eliminadas", productId);
     }
 
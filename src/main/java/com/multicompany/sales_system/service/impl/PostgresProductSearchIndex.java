@@ -0,0 +1,107 @@
+package com.multicompany.sales_system.service.impl;
+
+import com.multicompany.sales_system.model.Producto;
+import com.multicompany.sales_system.repository.ProductRepository;
+import com.multicompany.sales_system.service.ProductSearchIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Búsqueda de texto completo en PostgreSQL (tsvector con diccionario español e índice GIN).
+ * PostgreSQL mantiene el índice por sí mismo, por lo que indexar/eliminar no hacen nada.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "postgres", matchIfMissing = true)
+public class PostgresProductSearchIndex implements ProductSearchIndex {
+
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    // Debe coincidir con la expresión usada en ProductRepository.buscarIdsTextoCompleto
+    private static final String CREAR_INDICE = "CREATE INDEX IF NOT EXISTS idx_producto_busqueda_fts ON producto "
+            + "USING GIN (to_tsvector('spanish', coalesce(nombre, '') || ' ' || coalesce(descripcion, '')))";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * ddl-auto no crea índices sobre expresiones, así que se asegura aquí al arrancar.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void crearIndice() {
+        try {
+            jdbcTemplate.execute(CREAR_INDICE);
+            log.info("Índice de texto completo de productos verificado");
+        } catch (Exception e) {
+            log.warn("No se pudo crear el índice de texto completo de productos: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Page<Long> buscar(String termino, Pageable pageable) {
+        String consulta = construirConsulta(termino);
+        if (consulta == null) {
+            return Page.empty(pageable);
+        }
+        // El orden lo define la relevancia; se ignora cualquier sort del cliente
+        Pageable sinOrden = pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize())
+                : Pageable.unpaged();
+        return productRepository.buscarIdsTextoCompleto(consulta, sinOrden);
+    }
+
+    @Override
+    public List<Long> buscarEnTodos(String termino) {
+        String consulta = construirConsulta(termino);
+        if (consulta == null) {
+            return List.of();
+        }
+        return productRepository.buscarIdsTextoCompletoEnTodos(consulta);
+    }
+
+    @Override
+    public void indexar(Producto producto) {
+        // PostgreSQL mantiene el índice GIN automáticamente
+    }
+
+    @Override
+    public void eliminar(Long idProducto) {
+        // PostgreSQL mantiene el índice GIN automáticamente
+    }
+
+    /**
+     * Convierte el texto del usuario en una consulta to_tsquery segura: todas las palabras
+     * deben aparecer y la última se busca como prefijo (búsqueda mientras se escribe).
+     */
+    static String construirConsulta(String termino) {
+        if (termino == null) {
+            return null;
+        }
+        List<String> tokens = new ArrayList<>();
+        Matcher m = TOKEN.matcher(termino.toLowerCase(Locale.ROOT));
+        while (m.find()) {
+            tokens.add(m.group());
+        }
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        int ultimo = tokens.size() - 1;
+        tokens.set(ultimo, tokens.get(ultimo) + ":*");
+        return String.join(" & ", tokens);
+    }
+}
@@ -1,8 +1,11 @@
 package com.multicompany.sales_system.service.impl;
 
+import com.multicompany.sales_system.dto.common.CursorPageDTO;
 import com.multicompany.sales_system.dto.photo.PhotoResponseDTO;
+import com.multicompany.sales_system.dto.product.OrdenListado;
 import com.multicompany.sales_system.dto.product.ProductRequestDTO;
 import com.multicompany.sales_system.dto.product.ProductResponseDTO;
+import com.multicompany.sales_system.event.ProductoModificadoEvent;
 import com.multicompany.sales_system.model.*;
 import com.multicompany.sales_system.model.enums.EstadoProducto;
 import com.multicompany.sales_system.model.enums.TipoProducto;
@@ -10,12 +13,20 @@ import com.multicompany.sales_system.repository.ProductRepository;
 import com.multicompany.sales_system.repository.ServicioRepository;
 import com.multicompany.sales_system.repository.UsuarioRepository;
 import com.multicompany.sales_system.repository.CategoriaRepository;
+import com.multicompany.sales_system.repository.projection.ProductoResumen;
+import com.multicompany.sales_system.service.CatalogoCache;
 import com.multicompany.sales_system.service.ConfiguracionService;
+import com.multicompany.sales_system.service.CursorListado;
 import com.multicompany.sales_system.service.ProductService;
 import com.multicompany.sales_system.service.DetectorService;
+import com.multicompany.sales_system.service.ExpiracionProgramador;
 import com.multicompany.sales_system.service.IncidenciaService;
+import com.multicompany.sales_system.service.ProductSearchIndex;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,7 +34,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.UUID;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,6 +53,13 @@ public class ProductServiceImpl implements ProductService {
     private final DetectorService detectorService;
     private final IncidenciaService incidenciaService;
     private final ConfiguracionService configuracionService;
+    private final ProductSearchIndex productSearchIndex;
+    private final ExpiracionProgramador expiracionProgramador;
+    private final CatalogoCache catalogoCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Tamaño máximo de página en la paginación por cursor
+    private static final int MAX_TAMANO_CURSOR = 100;
 
     @Override
     public ProductResponseDTO createProduct(ProductRequestDTO productRequestDTO) {
@@ -103,6 +125,9 @@ public class ProductServiceImpl implements ProductService {
             servicioRepository.save(servicio);
         }
 
+        productSearchIndex.indexar(savedProduct);
+        expiracionProgramador.programar(savedProduct);
+        eventPublisher.publishEvent(new ProductoModificadoEvent(savedProduct.getIdProducto()));
         return convertToResponseDTO(savedProduct);
     }
 
@@ -170,61 +195,67 @@ public class ProductServiceImpl implements ProductService {
             servicioRepository.findById(updatedProduct.getIdProducto()).ifPresent(servicioRepository::delete);
         }
 
+        productSearchIndex.indexar(updatedProduct);
+        expiracionProgramador.programar(updatedProduct);
+        eventPublisher.publishEvent(new ProductoModificadoEvent(updatedProduct.getIdProducto()));
         return convertToResponseDTO(updatedProduct);
     }
 
     @Override
     @Transactional(readOnly = true)
     public ProductResponseDTO getProductById(Long id) {
-        Producto producto = productRepository.findByIdWithFotos(id)
-                .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
-        // Si existe un servicio asociado, incluir su horario
-        return servicioRepository.findById(id)
-                .map(servicio -> {
-                    ProductResponseDTO dto = convertToResponseDTO(producto);
-                    dto.setHorario(servicio.getHorario());
-                    return dto;
-                })
-                .orElseGet(() -> convertToResponseDTO(producto));
+        return catalogoCache.producto(id, () -> {
+            Producto producto = productRepository.findByIdWithFotos(id)
+                    .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+            // Si existe un servicio asociado, convertToResponseDTO incluye su horario
+            return convertToResponseDTO(producto);
+        });
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getAllServices(Pageable pageable) {
-        return servicioRepository.findAll(pageable)
-                .map(servicio -> {
-                    ProductResponseDTO dto = convertToResponseDTO(servicio.getProducto());
-                    dto.setHorario(servicio.getHorario());
-                    return dto;
-                });
+        Page<Servicio> servicios = servicioRepository.findAll(pageable);
+        List<Long> ids = servicios.getContent().stream()
+                .map(Servicio::getId)
+                .collect(Collectors.toList());
+        Map<Long, String> horarios = servicios.getContent().stream()
+                .filter(servicio -> servicio.getHorario() != null)
+                .collect(Collectors.toMap(Servicio::getId, Servicio::getHorario));
+        List<ProductResponseDTO> contenido = ordenarPorIds(ids, productRepository.findResumenesByIdIn(ids)).stream()
+                .map(resumen -> convertToResponseDTO(resumen, horarios.get(resumen.getIdProducto())))
+                .collect(Collectors.toList());
+        return new PageImpl<>(contenido, pageable, servicios.getTotalElements());
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getAllProductsAndServices(Pageable pageable) {
         // Página de productos (incluye tanto productos normales como potencialmente servicios si tienen entrada en producto table)
-        Page<ProductResponseDTO> productos = productRepository.findAll(pageable).map(this::convertToResponseDTO);
-
         // Para simplificar y evitar complejidad de mezclar páginas, devolvemos la página de productos
         // pero rellenando el campo horario si ese producto tiene entrada en servicio.
-        productos.forEach(dto -> servicioRepository.findById(dto.getIdProducto()).ifPresent(s -> dto.setHorario(s.getHorario())));
-
-        return productos;
+        return toResponsePage(productRepository.findAllResumenes(pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getAllProducts(Pageable pageable) {
-        return productRepository.findAll(pageable)
-                .map(this::convertToResponseDTO);
+        return toResponsePage(productRepository.findAllResumenes(pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ProductResponseDTO> getProductsByVendedor(Long vendedorId) {
-        return productRepository.findByVendedorIdUsuario(vendedorId).stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+        return toResponseList(productRepository.findResumenesByVendedor(vendedorId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProductResponseDTO> getProductsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return toResponseList(ordenarPorIds(ids, productRepository.findResumenesByIdIn(ids)));
     }
 
     @Override
@@ -233,6 +264,9 @@ public class ProductServiceImpl implements ProductService {
             throw new RuntimeException("Producto no encontrado con ID: " + id);
         }
         productRepository.deleteById(id);
+        productSearchIndex.eliminar(id);
+        expiracionProgramador.cancelar(id);
+        eventPublisher.publishEvent(new ProductoModificadoEvent(id));
     }
 
     @Override
@@ -241,60 +275,56 @@ public class ProductServiceImpl implements ProductService {
                 .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
         producto.setEstado(EstadoProducto.ELIMINADO);
         productRepository.save(producto);
+        eventPublisher.publishEvent(new ProductoModificadoEvent(id));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ProductResponseDTO> searchProducts(String searchTerm) {
-        return productRepository.findByNombreContainingIgnoreCaseOrDescripcionContainingIgnoreCase(
-                searchTerm, searchTerm).stream()
-                .map(this::convertToResponseDTO)
-                .collect(Collectors.toList());
+        // La búsqueda simple siempre devolvió productos en cualquier estado
+        List<Long> ids = productSearchIndex.buscarEnTodos(searchTerm);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return toResponseList(ordenarPorIds(ids, productRepository.findResumenesByIdIn(ids)));
     }
 
     // --- FILTROS Y BÚSQUEDAS AVANZADAS ---
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getProductsByPriceRange(Double minPrice, Double maxPrice, Pageable pageable) {
-        return productRepository.findByPrecioBetween(minPrice, maxPrice, pageable)
-                .map(this::convertToResponseDTO);
+        return toResponsePage(productRepository.findByPrecioBetween(minPrice, maxPrice, pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getProductsByMinPrice(Double minPrice, Pageable pageable) {
-        return productRepository.findByPrecioGreaterThanEqual(minPrice, pageable)
-                .map(this::convertToResponseDTO);
+        return toResponsePage(productRepository.findByPrecioGreaterThanEqual(minPrice, pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getProductsByMaxPrice(Double maxPrice, Pageable pageable) {
-        return productRepository.findByPrecioLessThanEqual(maxPrice, pageable)
-                .map(this::convertToResponseDTO);
+        return toResponsePage(productRepository.findByPrecioLessThanEqual(maxPrice, pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getProductsByTipo(TipoProducto tipo, Pageable pageable) {
-        return productRepository.findByTipoAndEstadoActivo(tipo, pageable)
-                .map(this::convertToResponseDTO);
+        return toResponsePage(productRepository.findByTipoAndEstadoActivo(tipo, pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> getProductsByUbicacion(String ubicacion, Pageable pageable) {
         String ubicacionPattern = "%" + ubicacion + "%";
-        return productRepository.findByUbicacionContaining(ubicacionPattern, pageable)
-                .map(this::convertToResponseDTO);
+        return toResponsePage(productRepository.findByUbicacionContaining(ubicacionPattern, pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDTO> searchProductsWithPagination(String searchTerm, Pageable pageable) {
-        String searchPattern = "%" + searchTerm + "%";
-        return productRepository.findByNombreOrDescripcionContaining(searchPattern, pageable)
-                .map(this::convertToResponseDTO);
+        return buscarPorTexto(searchTerm, pageable);
     }
 
     @Override
@@ -304,13 +334,131 @@ public class ProductServiceImpl implements ProductService {
         String searchPattern = searchTerm != null ? "%" + searchTerm + "%" : null;
         String ubicacionPattern = ubicacion != null ? "%" + ubicacion + "%" : null;
 
-        return productRepository.findWithFilters(minPrice, maxPrice, tipo, searchPattern, ubicacionPattern,
-                disponibilidad, pageable)
-                .map(this::convertToResponseDTO);
+        List<Object> clave = Arrays.asList("filter", minPrice, maxPrice, tipo, searchTerm, ubicacion, disponibilidad,
+                pageable);
+        return catalogoCache.listado(clave, () -> toResponsePage(productRepository.findWithFilters(minPrice, maxPrice,
+                tipo, searchPattern, ubicacionPattern, disponibilidad, pageable)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductResponseDTO> getProductsWithFiltersCursor(Double minPrice, Double maxPrice,
+            TipoProducto tipo, String searchTerm, String ubicacion, Boolean disponibilidad, OrdenListado orden,
+            String cursor, int size) {
+        OrdenListado ordenEfectivo = orden != null ? orden : OrdenListado.RECIENTES;
+        int tamano = Math.max(1, Math.min(size, MAX_TAMANO_CURSOR));
+        CursorListado desde = CursorListado.decodificar(cursor, ordenEfectivo.name());
+        Long idCursor = desde != null ? desde.getId() : null;
+        String searchPattern = searchTerm != null ? "%" + searchTerm + "%" : null;
+        String ubicacionPattern = ubicacion != null ? "%" + ubicacion + "%" : null;
+        // Una fila extra para saber si hay página siguiente sin contar
+        Pageable limite = PageRequest.of(0, tamano + 1);
+
+        List<ProductoResumen> filas;
+        switch (ordenEfectivo) {
+            case PRECIO_ASC:
+                filas = productRepository.findWithFiltersPrecioAscKeyset(minPrice, maxPrice, tipo, searchPattern,
+                        ubicacionPattern, disponibilidad, desde != null ? desde.getClavePrecio() : null, idCursor,
+                        limite);
+                break;
+            case PRECIO_DESC:
+                filas = productRepository.findWithFiltersPrecioDescKeyset(minPrice, maxPrice, tipo, searchPattern,
+                        ubicacionPattern, disponibilidad, desde != null ? desde.getClavePrecio() : null, idCursor,
+                        limite);
+                break;
+            default:
+                filas = productRepository.findWithFiltersRecientesKeyset(minPrice, maxPrice, tipo, searchPattern,
+                        ubicacionPattern, disponibilidad, desde != null ? desde.getClaveFecha() : null, idCursor,
+                        limite);
+        }
+
+        boolean hayMas = filas.size() > tamano;
+        List<ProductoResumen> pagina = hayMas ? filas.subList(0, tamano) : filas;
+        String siguiente = null;
+        if (hayMas) {
+            ProductoResumen ultimo = pagina.get(pagina.size() - 1);
+            Object clave = ordenEfectivo == OrdenListado.RECIENTES
+                    ? ultimo.getFechaPublicacion()
+                    : (ultimo.getPrecio() != null ? ultimo.getPrecio() : 0.0);
+            siguiente = CursorListado.codificar(ordenEfectivo.name(), clave, ultimo.getIdProducto());
+        }
+        return new CursorPageDTO<>(toResponseList(pagina), siguiente, hayMas, pagina.size());
     }
 
     // --- AUXILIARES ---
+
+    /**
+     * Resuelve la búsqueda en el índice de texto y carga los productos de la página
+     * conservando el orden por relevancia.
+     */
+    private Page<ProductResponseDTO> buscarPorTexto(String searchTerm, Pageable pageable) {
+        Page<Long> ids = productSearchIndex.buscar(searchTerm, pageable);
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, ids.getTotalElements());
+        }
+
+        List<ProductoResumen> ordenados = ordenarPorIds(ids.getContent(),
+                productRepository.findResumenesByIdIn(ids.getContent()));
+        return toResponsePage(new PageImpl<>(ordenados, pageable, ids.getTotalElements()));
+    }
+
+    /**
+     * Reordena los resúmenes según la lista de IDs (descarta los que no aparezcan).
+     */
+    private List<ProductoResumen> ordenarPorIds(List<Long> ids, List<ProductoResumen> resumenes) {
+        Map<Long, ProductoResumen> porId = resumenes.stream()
+                .collect(Collectors.toMap(ProductoResumen::getIdProducto, r -> r));
+        return ids.stream()
+                .map(porId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Convierte una página de resúmenes cargando los horarios de servicio en una sola consulta.
+     */
+    private Page<ProductResponseDTO> toResponsePage(Page<ProductoResumen> productos) {
+        Map<Long, String> horarios = cargarHorarios(productos.getContent());
+        return productos.map(producto -> convertToResponseDTO(producto, horarios.get(producto.getIdProducto())));
+    }
+
+    /**
+     * Convierte una lista de resúmenes cargando los horarios de servicio en una sola consulta.
+     */
+    private List<ProductResponseDTO> toResponseList(List<ProductoResumen> productos) {
+        Map<Long, String> horarios = cargarHorarios(productos);
+        return productos.stream()
+                .map(producto -> convertToResponseDTO(producto, horarios.get(producto.getIdProducto())))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Horarios de los servicios asociados a los productos, indexados por ID de producto.
+     */
+    private Map<Long, String> cargarHorarios(List<ProductoResumen> productos) {
+        if (productos.isEmpty()) {
+            return Map.of();
+        }
+        List<Long> ids = productos.stream()
+                .map(ProductoResumen::getIdProducto)
+                .collect(Collectors.toList());
+
+        Map<Long, String> horarios = new HashMap<>();
+        for (Object[] fila : servicioRepository.findHorariosByProductoIds(ids)) {
+            horarios.put((Long) fila[0], (String) fila[1]);
+        }
+        return horarios;
+    }
+
     private ProductResponseDTO convertToResponseDTO(Producto producto) {
+        // Rellenar horario si existe un Servicio asociado
+        String horario = servicioRepository.findById(producto.getIdProducto())
+                .map(Servicio::getHorario)
+                .orElse(null);
+        return convertToResponseDTO(producto, horario);
+    }
+
+    private ProductResponseDTO convertToResponseDTO(Producto producto, String horario) {
         ProductResponseDTO dto = new ProductResponseDTO();
         dto.setIdProducto(producto.getIdProducto());
         dto.setCodigo(producto.getCodigo());
@@ -343,8 +491,38 @@ public class ProductServiceImpl implements ProductService {
             dto.setFotos(new ArrayList<>());
         }
 
-        // Rellenar horario si existe un Servicio asociado
-        servicioRepository.findById(producto.getIdProducto()).ifPresent(s -> dto.setHorario(s.getHorario()));
+        dto.setHorario(horario);
+
+        return dto;
+    }
+
+    /**
+     * Tarjeta de listado: en {@code fotos} solo va la foto principal.
+     */
+    private ProductResponseDTO convertToResponseDTO(ProductoResumen resumen, String horario) {
+        ProductResponseDTO dto = new ProductResponseDTO();
+        dto.setIdProducto(resumen.getIdProducto());
+        dto.setCodigo(resumen.getCodigo());
+        dto.setNombre(resumen.getNombre());
+        dto.setDescripcion(resumen.getDescripcion());
+        dto.setPrecio(resumen.getPrecio());
+        dto.setUbicacion(resumen.getUbicacion());
+        dto.setDisponibilidad(resumen.getDisponibilidad());
+        dto.setTipo(resumen.getTipo().name());
+        dto.setEstado(resumen.getEstado().name());
+        dto.setFechaPublicacion(resumen.getFechaPublicacion());
+        dto.setIdVendedor(resumen.getIdVendedor());
+        dto.setNombreVendedor(resumen.getNombreVendedor());
+        dto.setIdCategoria(resumen.getIdCategoria());
+        dto.setNombreCategoria(resumen.getNombreCategoria());
+
+        List<PhotoResponseDTO> fotos = new ArrayList<>();
+        if (resumen.getIdFotoPrincipal() != null) {
+            fotos.add(new PhotoResponseDTO(resumen.getIdFotoPrincipal(), resumen.getUrlFotoPrincipal(),
+                    resumen.getIdProducto()));
+        }
+        dto.setFotos(fotos);
+        dto.setHorario(horario);
 
         return dto;
     }
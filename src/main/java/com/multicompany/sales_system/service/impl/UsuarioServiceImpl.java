@@ -1,9 +1,11 @@
 package com.multicompany.sales_system.service.impl;
 
+import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -18,6 +20,7 @@ import com.multicompany.sales_system.dto.user.RegisterResponse;
 import com.multicompany.sales_system.dto.user.UserResponse;
 import com.multicompany.sales_system.dto.user.UserUpdateRequest;
 import com.multicompany.sales_system.dto.user.VerifyEmailRequest;
+import com.multicompany.sales_system.event.TokensRevocadosEvent;
 import com.multicompany.sales_system.model.EmailVerification;
 import com.multicompany.sales_system.model.Usuario;
 import com.multicompany.sales_system.model.enums.UsuarioRole;
@@ -40,6 +43,7 @@ public class UsuarioServiceImpl implements UsuarioService {
     private final MailService mail;
     private final PasswordEncoder encoder;
     private final JwtService jwtService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.verification.code.ttl-minutes:15}")
     private int ttlMinutes;
@@ -387,11 +391,17 @@ public class UsuarioServiceImpl implements UsuarioService {
         usuario.setTelefono(request.getTelefono());
         usuario.setDireccion(request.getDireccion());
         usuario.setGenero(request.getGenero());
-        if (request.getRol() != null) {
+        boolean cambiaRolOEstado = false;
+        if (request.getRol() != null && request.getRol() != usuario.getRol()) {
             usuario.setRol(request.getRol());
+            cambiaRolOEstado = true;
         }
-        if (request.getEstado() != null) {
+        if (request.getEstado() != null && request.getEstado() != usuario.getEstado()) {
             usuario.setEstado(request.getEstado());
+            cambiaRolOEstado = true;
+        }
+        if (cambiaRolOEstado) {
+            revocarTokens(usuario);
         }
 
         Usuario saved = usuarioRepo.save(usuario);
@@ -405,13 +415,24 @@ public class UsuarioServiceImpl implements UsuarioService {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuario no encontrado"));
 
         usuario.setEstado(Usuario.EstadoUsuario.ELIMINADO);
+        revocarTokens(usuario);
         usuarioRepo.save(usuario);
     }
 
+    /**
+     * Los tokens ya emitidos llevan el rol y el estado anteriores: se revocan (tras el commit,
+     * en todas las instancias) y la fecha queda guardada para recargarla al arrancar.
+     */
+    private void revocarTokens(Usuario usuario) {
+        LocalDateTime ahora = LocalDateTime.now();
+        usuario.setTokensRevocadosAntesDe(ahora);
+        eventPublisher.publishEvent(new TokensRevocadosEvent(usuario.getIdUsuario(), ahora));
+    }
+
     @Override
     @Transactional
-    public UserResponse updateOwnProfile(String cedula, UserUpdateRequest request) {
-        Usuario usuario = usuarioRepo.findByCedula(cedula)
+    public UserResponse updateOwnProfile(Long idUsuario, UserUpdateRequest request) {
+        Usuario usuario = usuarioRepo.findById(idUsuario)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Usuario no encontrado"));
 
         if (usuario.getEstado() == Usuario.EstadoUsuario.ELIMINADO) {
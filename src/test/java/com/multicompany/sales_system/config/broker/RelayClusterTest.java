@@ -0,0 +1,155 @@
+package com.multicompany.sales_system.config.broker;
+
+import com.multicompany.sales_system.service.BusLocal;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class RelayClusterTest {
+
+    @Test
+    void entregaEnLosDemasNodosSinBucles() {
+        List<Nodo> nodos = cluster(3);
+
+        nodos.get(0).publicar("/topic/chat.5", "hola".getBytes());
+
+        assertEquals(0, nodos.get(0).recibidos.size());
+        for (Nodo nodo : nodos.subList(1, 3)) {
+            assertEquals(1, nodo.recibidos.size());
+            Message<?> recibido = nodo.recibidos.get(0);
+            assertEquals("/topic/chat.5", SimpMessageHeaderAccessor.getDestination(recibido.getHeaders()));
+            assertEquals("hola", new String((byte[]) recibido.getPayload()));
+            assertNotNull(recibido.getHeaders().get(RelayCluster.CABECERA_ORIGEN));
+        }
+        // Lo recibido pasa por el interceptor del nodo receptor pero no se reenvía
+        nodos.forEach(n -> assertEquals(n == nodos.get(0) ? 1L : 0L, n.relay.getEstadisticas().get("reenviados")));
+    }
+
+    /**
+     * Mensajes por segundo y latencia p99 del salto entre nodos con el transporte local,
+     * con 2 y 4 nodos. Solo mide el relay (sin red ni sesiones WebSocket). Como referencia,
+     * la línea base entrega los mismos mensajes directamente al brokerChannel, sin relay.
+     */
+    @Test
+    @Tag("benchmark")
+    void rendimientoCon2y4Nodos() {
+        int mensajes = 20_000;
+        // Una ronda de calentamiento sin imprimir para que el JIT no penalice al primer caso
+        for (boolean imprimir : new boolean[] { false, true }) {
+            medirEntregaDirecta(mensajes, imprimir);
+            for (int cantidad : new int[] { 2, 4 }) {
+                medirRelay(cantidad, mensajes, imprimir);
+            }
+        }
+    }
+
+    private static void medirEntregaDirecta(int mensajes, boolean imprimir) {
+        List<Long> latencias = new ArrayList<>();
+        MessageChannel directo = (mensaje, timeout) -> {
+            latencias.add(System.nanoTime() - ByteBuffer.wrap((byte[]) mensaje.getPayload()).getLong());
+            return true;
+        };
+        long inicio = System.nanoTime();
+        for (int i = 0; i < mensajes; i++) {
+            directo.send(mensaje("/topic/chat." + (i % 100), marcaDeTiempo()));
+        }
+        long duracion = System.nanoTime() - inicio;
+        if (imprimir) {
+            imprimir("Entrega directa sin relay (línea base)", mensajes, duracion,
+                    latencias.stream().mapToLong(Long::longValue));
+        }
+    }
+
+    private static void medirRelay(int cantidad, int mensajes, boolean imprimir) {
+        List<Nodo> nodos = cluster(cantidad);
+        long inicio = System.nanoTime();
+        for (int i = 0; i < mensajes; i++) {
+            nodos.get(i % cantidad).publicar("/topic/chat." + (i % 100), marcaDeTiempo());
+        }
+        long duracion = System.nanoTime() - inicio;
+
+        // Solo las entregas en los otros nodos: cada mensaje cruza el bus cantidad - 1 veces
+        long[] latencias = nodos.stream()
+                .flatMapToLong(n -> n.latencias.stream().mapToLong(Long::longValue))
+                .toArray();
+        assertEquals((long) mensajes * (cantidad - 1), latencias.length);
+        if (imprimir) {
+            imprimir("Relay de cluster, " + cantidad + " nodos", mensajes, duracion, Arrays.stream(latencias));
+        }
+    }
+
+    private static byte[] marcaDeTiempo() {
+        return ByteBuffer.allocate(Long.BYTES).putLong(System.nanoTime()).array();
+    }
+
+    private static void imprimir(String caso, int mensajes, long duracionNs, LongStream latencias) {
+        long[] ordenadas = latencias.sorted().toArray();
+        long p99 = ordenadas[(int) Math.ceil(ordenadas.length * 0.99) - 1];
+        System.out.printf("%s: %.0f msg/s, p99 %d us%n", caso, mensajes / (duracionNs / 1e9), p99 / 1000);
+    }
+
+    private static Message<byte[]> mensaje(String destino, byte[] cuerpo) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destino);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(cuerpo, accessor.getMessageHeaders());
+    }
+
+    private static List<Nodo> cluster(int cantidad) {
+        BusLocal bus = new BusLocal();
+        List<Nodo> nodos = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            nodos.add(new Nodo("nodo-" + i, new TransporteLocal(bus, "prueba")));
+        }
+        return nodos;
+    }
+
+    /** Nodo con un brokerChannel simulado que pasa los mensajes por el interceptor, como el real. */
+    private static final class Nodo {
+        final List<Message<?>> recibidos = new ArrayList<>();
+        final List<Long> latencias = new ArrayList<>();
+        final RelayCluster relay;
+        final MessageChannel brokerChannel;
+
+        Nodo(String id, TransporteCluster transporte) {
+            brokerChannel = (mensaje, timeout) -> {
+                Message<?> interceptado = relay().preSend(mensaje, canal());
+                recibidos.add(interceptado);
+                byte[] cuerpo = (byte[]) interceptado.getPayload();
+                if (cuerpo.length == Long.BYTES) {
+                    latencias.add(System.nanoTime() - ByteBuffer.wrap(cuerpo).getLong());
+                }
+                return true;
+            };
+            relay = new RelayCluster(id, transporte, () -> brokerChannel);
+            relay.iniciar();
+        }
+
+        private RelayCluster relay() {
+            return relay;
+        }
+
+        private MessageChannel canal() {
+            return brokerChannel;
+        }
+
+        /** Lo que hace SimpMessagingTemplate: enviar al brokerChannel local (el relay lo intercepta). */
+        void publicar(String destino, byte[] cuerpo) {
+            relay.preSend(mensaje(destino, cuerpo), brokerChannel);
+        }
+    }
+}
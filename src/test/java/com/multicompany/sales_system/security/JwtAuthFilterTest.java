@@ -0,0 +1,172 @@
+package com.multicompany.sales_system.security;
+
+import com.multicompany.sales_system.event.TokensRevocadosEvent;
+import com.multicompany.sales_system.model.Usuario;
+import com.multicompany.sales_system.repository.UsuarioRepository;
+import com.multicompany.sales_system.service.BusLocal;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.MethodParameter;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtAuthFilterTest {
+
+    private static final String SECRETO = "c2VjcmV0by1kZS1wcnVlYmFzLXBhcmEtZmlybWFyLXRva2Vucy1oczI1Ng==";
+
+    private final JwtService jwt = new JwtService(SECRETO, 60, 1000);
+    private final RevocacionesToken revocaciones = new RevocacionesToken(
+            new CanalRevocacionesLocal(new BusLocal(), "prueba-filtro"), mock(UsuarioRepository.class), 60);
+    private final JwtAuthFilter filtro = new JwtAuthFilter(jwt, revocaciones);
+
+    @AfterEach
+    void limpiar() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void elPrincipalLlevaLosDatosDelToken() throws Exception {
+        String token = jwt.generateToken(7L, "0102030405", "ana@correo.com", "ADMIN", "ACTIVO");
+
+        filtro.doFilter(peticion(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        UsuarioAutenticado usuario = (UsuarioAutenticado) auth.getPrincipal();
+        assertEquals(7L, usuario.getIdUsuario());
+        assertEquals("0102030405", usuario.getCedula());
+        assertEquals("ADMIN", usuario.getRol());
+        assertEquals("ana@correo.com", auth.getName());
+        assertEquals("ROLE_ADMIN", auth.getAuthorities().iterator().next().getAuthority());
+
+        MethodParameter parametro = new MethodParameter(
+                JwtAuthFilterTest.class.getDeclaredMethod("perfil", UsuarioAutenticado.class), 0);
+        UsuarioActualArgumentResolver resolver = new UsuarioActualArgumentResolver();
+        assertTrue(resolver.supportsParameter(parametro));
+        assertSame(usuario, resolver.resolveArgument(parametro, null, null, null));
+    }
+
+    @Test
+    void cuentaSuspendidaSeRechaza() throws Exception {
+        String token = jwt.generateToken(7L, "0102030405", "ana@correo.com", "USER", "SUSPENDIDO");
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+
+        filtro.doFilter(peticion(token), respuesta, new MockFilterChain());
+
+        assertEquals(403, respuesta.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void tokenEmitidoAntesDeUnaRevocacionSeRechaza() throws Exception {
+        String token = jwt.generateToken(7L, "0102030405", "ana@correo.com", "ADMIN", "ACTIVO");
+        revocaciones.onTokensRevocados(new TokensRevocadosEvent(7L, LocalDateTime.now().plusSeconds(1)));
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+
+        filtro.doFilter(peticion(token), respuesta, new MockFilterChain());
+
+        assertEquals(401, respuesta.getStatus());
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    /**
+     * Coste por petición de resolver el usuario de /api/users/profile: el principal tipado que
+     * deja el filtro frente al camino anterior, que validaba y releía el JWT en el filtro,
+     * volvía a leerlo en el controlador para sacar la cédula y buscaba al usuario por ella.
+     * El repositorio está simulado, así que solo se compara el trabajo fuera de la base de datos.
+     */
+    @Test
+    @Tag("benchmark")
+    void costeDelPerfilPorPeticion() throws Exception {
+        UsuarioRepository usuarios = mock(UsuarioRepository.class);
+        Usuario usuario = new Usuario();
+        when(usuarios.findById(anyLong())).thenReturn(Optional.of(usuario));
+        when(usuarios.findByCedula(anyString())).thenReturn(Optional.of(usuario));
+        String[] tokens = new String[200];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = jwt.generateToken((long) i, "ced" + i, "u" + i + "@correo.com", "USER", "ACTIVO");
+        }
+        MethodParameter parametro = new MethodParameter(
+                JwtAuthFilterTest.class.getDeclaredMethod("perfil", UsuarioAutenticado.class), 0);
+        UsuarioActualArgumentResolver resolver = new UsuarioActualArgumentResolver();
+
+        PeticionPerfil anterior = request -> {
+            String token = request.getHeader("Authorization").substring(7);
+            // Filtro anterior: isTokenValid y luego claims, cada uno con su propia lectura
+            claimsComoAntes(token);
+            Claims claims = claimsComoAntes(token);
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                    claims.getSubject(), null, List.of(new SimpleGrantedAuthority("ROLE_" + claims.get("role")))));
+            // Controlador anterior: la cédula salía otra vez del encabezado
+            String cedula = claimsComoAntes(token).get("cedula").toString();
+            return usuarios.findByCedula(cedula).orElseThrow();
+        };
+        PeticionPerfil actual = request -> {
+            filtro.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            UsuarioAutenticado principal = (UsuarioAutenticado) resolver.resolveArgument(parametro, null, null, null);
+            return usuarios.findById(principal.getIdUsuario()).orElseThrow();
+        };
+
+        int iteraciones = 5_000;
+        medirPerfil(anterior, tokens, iteraciones);
+        medirPerfil(actual, tokens, iteraciones);
+
+        long antes = medirPerfil(anterior, tokens, iteraciones);
+        long ahora = medirPerfil(actual, tokens, iteraciones);
+
+        System.out.printf("Perfil por petición: releyendo el JWT %d ns, con el principal %d ns%n", antes, ahora);
+        assertTrue(ahora < antes);
+    }
+
+    private static long medirPerfil(PeticionPerfil peticion, String[] tokens, int iteraciones) throws Exception {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteraciones; i++) {
+            assertNotNull(peticion.resolver(peticion(tokens[i % tokens.length])));
+            SecurityContextHolder.clearContext();
+        }
+        return (System.nanoTime() - inicio) / iteraciones;
+    }
+
+    /** Como el JwtService anterior: clave y parser nuevos en cada lectura, sin caché. */
+    private static Claims claimsComoAntes(String token) {
+        return Jwts.parserBuilder()
+                .setSigningKey(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRETO)))
+                .build()
+                .parseClaimsJws(token)
+                .getBody();
+    }
+
+    @FunctionalInterface
+    private interface PeticionPerfil {
+        Usuario resolver(MockHttpServletRequest request) throws Exception;
+    }
+
+    private static MockHttpServletRequest peticion(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/users/profile");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    @SuppressWarnings("unused")
+    private void perfil(UsuarioAutenticado actual) {
+    }
+}
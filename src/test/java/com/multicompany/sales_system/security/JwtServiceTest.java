@@ -0,0 +1,86 @@
+package com.multicompany.sales_system.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtServiceTest {
+
+    private static final String SECRETO = "c2VjcmV0by1kZS1wcnVlYmFzLXBhcmEtZmlybWFyLXRva2Vucy1oczI1Ng==";
+
+    private final JwtService jwt = new JwtService(SECRETO, 60, 1000);
+
+    @Test
+    void losClaimsVerificadosSeReutilizan() {
+        String token = jwt.generateToken(7L, "0102030405", "ana@correo.com", "USER", "ACTIVO");
+
+        Claims primera = jwt.claims(token);
+
+        assertSame(primera, jwt.claims(token));
+        assertEquals(7L, jwt.getUserId(token));
+        assertEquals("0102030405", jwt.extractCedula(token));
+        assertEquals("ana@correo.com", jwt.getSubjectEmail(token));
+    }
+
+    @Test
+    void tokenAlteradoNoEsValido() {
+        String token = jwt.generateToken(7L, "0102030405", "ana@correo.com", "USER", "ACTIVO");
+        jwt.claims(token);
+
+        String alterado = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertNull(jwt.claimsValidos(alterado));
+        assertFalse(jwt.isTokenValid("no-es-un-token"));
+    }
+
+    @Test
+    void tokenExpiradoSeRechaza() {
+        String token = Jwts.builder()
+                .setSubject("ana@correo.com")
+                .setExpiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(SECRETO)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThrows(ExpiredJwtException.class, () -> jwt.claims(token));
+        assertFalse(jwt.isTokenValid(token));
+    }
+
+    /**
+     * Coste por petición del filtro: verificar la firma frente a reutilizar los claims.
+     */
+    @Test
+    @Tag("benchmark")
+    void costePorPeticion() {
+        JwtService sinCache = new JwtService(SECRETO, 60, 1);
+        String[] tokens = new String[200];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = jwt.generateToken((long) i, "ced" + i, "u" + i + "@correo.com", "USER", "ACTIVO");
+        }
+        int iteraciones = 20_000;
+        medir(sinCache, tokens, iteraciones);
+        medir(jwt, tokens, iteraciones);
+
+        long conVerificacion = medir(sinCache, tokens, iteraciones);
+        long conCache = medir(jwt, tokens, iteraciones);
+
+        System.out.printf("JWT por petición: verificando %d ns, con caché %d ns%n", conVerificacion, conCache);
+        assertTrue(conCache < conVerificacion);
+    }
+
+    private static long medir(JwtService servicio, String[] tokens, int iteraciones) {
+        long inicio = System.nanoTime();
+        for (int i = 0; i < iteraciones; i++) {
+            assertNotNull(servicio.claimsValidos(tokens[i % tokens.length]));
+        }
+        return (System.nanoTime() - inicio) / iteraciones;
+    }
+}
@@ -0,0 +1,97 @@
+package com.multicompany.sales_system.security;
+
+import com.multicompany.sales_system.event.TokensRevocadosEvent;
+import com.multicompany.sales_system.repository.UsuarioRepository;
+import com.multicompany.sales_system.service.BusLocal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RevocacionesTokenTest {
+
+    private UsuarioRepository usuarioRepository;
+    private RevocacionesToken nodoA;
+    private RevocacionesToken nodoB;
+
+    @BeforeEach
+    void setUp() {
+        usuarioRepository = mock(UsuarioRepository.class);
+        // Dos nodos que comparten el canal en memoria
+        BusLocal bus = new BusLocal();
+        nodoA = new RevocacionesToken(new CanalRevocacionesLocal(bus, "prueba"), usuarioRepository, 60);
+        nodoB = new RevocacionesToken(new CanalRevocacionesLocal(bus, "prueba"), usuarioRepository, 60);
+        nodoA.iniciar();
+        nodoB.iniciar();
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodoA.detener();
+        nodoB.detener();
+    }
+
+    @Test
+    void laRevocacionLlegaATodosLosNodos() {
+        LocalDateTime ahora = LocalDateTime.now();
+
+        nodoA.onTokensRevocados(new TokensRevocadosEvent(7L, ahora));
+
+        Date antes = fecha(ahora.minusMinutes(5));
+        Date despues = fecha(ahora.plusSeconds(2));
+        assertTrue(nodoA.estaRevocado(7L, antes));
+        assertTrue(nodoB.estaRevocado(7L, antes));
+        assertFalse(nodoB.estaRevocado(7L, despues));
+        assertFalse(nodoB.estaRevocado(8L, antes));
+    }
+
+    @Test
+    void alArrancarSeRecarganDeLaBaseDeDatos() {
+        LocalDateTime ahora = LocalDateTime.now();
+        when(usuarioRepository.findRevocacionesDesde(any())).thenReturn(List.<Object[]>of(new Object[] { 7L, ahora }));
+
+        nodoA.cargar();
+
+        assertTrue(nodoA.estaRevocado(7L, fecha(ahora.minusSeconds(10))));
+    }
+
+    @Test
+    void lasRevocacionesVencidasSeOlvidan() {
+        LocalDateTime haceDosHoras = LocalDateTime.now().minusHours(2);
+        nodoA.onTokensRevocados(new TokensRevocadosEvent(7L, haceDosHoras));
+        nodoA.onTokensRevocados(new TokensRevocadosEvent(8L, LocalDateTime.now()));
+
+        assertEquals(1, nodoA.purgar());
+        assertFalse(nodoA.estaRevocado(7L, fecha(haceDosHoras.minusMinutes(1))));
+        assertTrue(nodoA.estaRevocado(8L, fecha(haceDosHoras)));
+    }
+
+    @Test
+    void elFiltroNoDaFalsosNegativos() {
+        FiltroBloom filtro = new FiltroBloom(1 << 12);
+        for (long id = 1; id <= 500; id++) {
+            filtro.agregar(id);
+        }
+        int falsosPositivos = 0;
+        for (long id = 1; id <= 10_000; id++) {
+            boolean puede = filtro.puedeContener(id);
+            if (id <= 500) {
+                assertTrue(puede);
+            } else if (puede) {
+                falsosPositivos++;
+            }
+        }
+        assertTrue(falsosPositivos < 1_000, "falsos positivos: " + falsosPositivos);
+    }
+
+    private static Date fecha(LocalDateTime fecha) {
+        return Date.from(fecha.atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,150 @@
+package com.multicompany.sales_system.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickMatcherTest {
+
+    private static final List<String> PALABRAS = List.of(
+            "mal", "malo", "arma", "armas", "venta ilegal", "ñandú", "droga", "c++", "_x", "2x1");
+
+    @Test
+    void respetaLimitesDePalabraYMayusculas() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compilar(PALABRAS);
+
+        assertTrue(matcher.contieneAlguna("Vendo ARMA usada"));
+        assertFalse(matcher.contieneAlguna("Vendo alarmas"));
+        assertFalse(matcher.contieneAlguna("armario nuevo"));
+        assertTrue(matcher.contieneAlguna("Plumas de ÑANDÚ"));
+        assertFalse(matcher.contieneAlguna("Normal"));
+
+        List<AhoCorasickMatcher.Coincidencia> coincidencias = matcher.buscar("Es malo, muy mal");
+        assertEquals(List.of("malo", "mal"), coincidencias.stream()
+                .map(AhoCorasickMatcher.Coincidencia::getPalabra).collect(Collectors.toList()));
+        assertEquals(3, coincidencias.get(0).getInicio());
+        assertEquals(7, coincidencias.get(0).getFin());
+    }
+
+    @Test
+    void listaVaciaNoEncuentraNada() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compilar(List.of(" ", ""));
+        assertEquals(0, matcher.size());
+        assertFalse(matcher.contieneAlguna("cualquier texto"));
+        assertTrue(matcher.palabrasEncontradas("cualquier texto").isEmpty());
+    }
+
+    /**
+     * Compara contra la implementación anterior basada en un Pattern por palabra.
+     */
+    @Test
+    void mismoResultadoQueLasExpresionesRegulares() {
+        List<Pattern> patrones = PALABRAS.stream()
+                .map(p -> Pattern.compile("\\b" + Pattern.quote(p) + "\\b",
+                        Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE))
+                .collect(Collectors.toList());
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compilar(PALABRAS);
+
+        String[] fragmentos = { "mal", "MALO", "arma", "Armas", "venta", "ilegal", "ñandú", "Ñandú", "droga",
+                "c++", "_x", "2x1", "x", " ", " ", ",", ".", "_", "1", "á", "ito", "\n" };
+        Random random = new Random(42);
+        for (int caso = 0; caso < 5000; caso++) {
+            StringBuilder sb = new StringBuilder();
+            int partes = 1 + random.nextInt(8);
+            for (int i = 0; i < partes; i++) {
+                sb.append(fragmentos[random.nextInt(fragmentos.length)]);
+            }
+            String texto = sb.toString();
+
+            assertEquals(contieneConRegex(patrones, texto), matcher.contieneAlguna(texto), texto);
+            assertEquals(encontradasConRegex(patrones, texto), matcher.palabrasEncontradas(texto), texto);
+        }
+    }
+
+    /**
+     * Tiempo por texto del autómata frente al bucle anterior de un Pattern por palabra,
+     * con listas de 10, 1.000 y 50.000 palabras sobre textos sin coincidencias (el peor
+     * caso del bucle, que prueba todos los patrones).
+     */
+    @Test
+    @Tag("benchmark")
+    void rendimientoFrenteARegex() {
+        Random random = new Random(7);
+        String[] textos = new String[50];
+        for (int i = 0; i < textos.length; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < 80; j++) {
+                sb.append(palabraAleatoria(random, 3, 8)).append(j % 10 == 9 ? ". " : " ");
+            }
+            // Las palabras de la lista llevan una 'q' final: el texto no contiene ninguna
+            textos[i] = sb.toString().replace('q', 'k');
+        }
+
+        for (int cantidad : new int[] { 10, 1_000, 50_000 }) {
+            List<String> palabras = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                palabras.add(palabraAleatoria(random, 3, 9).replace('q', 'k') + "q");
+            }
+            List<Pattern> patrones = palabras.stream()
+                    .map(p -> Pattern.compile("\\b" + Pattern.quote(p) + "\\b",
+                            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE))
+                    .collect(Collectors.toList());
+            AhoCorasickMatcher matcher = AhoCorasickMatcher.compilar(palabras);
+
+            // Menos repeticiones para el bucle de regex con listas grandes
+            int repeticionesRegex = Math.max(1, 20_000 / cantidad);
+            medir(textos, 2_000, t -> matcher.contieneAlguna(t));
+            medir(textos, repeticionesRegex, t -> contieneConRegex(patrones, t));
+
+            long automata = medir(textos, 2_000, t -> matcher.contieneAlguna(t));
+            long regex = medir(textos, repeticionesRegex, t -> contieneConRegex(patrones, t));
+
+            System.out.printf("Palabras prohibidas con %d palabras: autómata %d ns/texto, regex %d ns/texto%n",
+                    cantidad, automata, regex);
+            if (cantidad >= 1_000) {
+                assertTrue(automata < regex);
+            }
+        }
+    }
+
+    private static long medir(String[] textos, int repeticiones, Predicate<String> comprobacion) {
+        long inicio = System.nanoTime();
+        for (int r = 0; r < repeticiones; r++) {
+            assertFalse(comprobacion.test(textos[r % textos.length]));
+        }
+        return (System.nanoTime() - inicio) / repeticiones;
+    }
+
+    private static String palabraAleatoria(Random random, int minimo, int maximo) {
+        int longitud = minimo + random.nextInt(maximo - minimo + 1);
+        StringBuilder sb = new StringBuilder(longitud);
+        for (int i = 0; i < longitud; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    private static boolean contieneConRegex(List<Pattern> patrones, String texto) {
+        return patrones.stream().anyMatch(p -> p.matcher(texto).find());
+    }
+
+    private static List<String> encontradasConRegex(List<Pattern> patrones, String texto) {
+        LinkedHashSet<String> found = new LinkedHashSet<>();
+        for (Pattern p : patrones) {
+            Matcher m = p.matcher(texto);
+            if (m.find()) {
+                found.add(m.group().toLowerCase());
+            }
+        }
+        return new ArrayList<>(found);
+    }
+}
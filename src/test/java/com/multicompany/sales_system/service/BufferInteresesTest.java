@@ -0,0 +1,153 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.event.InteresActualizadoEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BufferInteresesTest {
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> altas;
+
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private BufferIntereses buffer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        // Sin iniciar(): el lote solo se escribe al llamar a vaciar()
+        buffer = new BufferIntereses(jdbcTemplate, mock(PlatformTransactionManager.class), eventPublisher,
+                true, 250, 10_000);
+    }
+
+    @Test
+    void variosClicsDelMismoParSeEscribenUnaVez() {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList())).thenReturn(new int[] { 1 });
+        when(jdbcTemplate.batchUpdate(startsWith("DELETE"), anyList())).thenReturn(new int[] { 0 });
+
+        buffer.registrar(1L, 10L, true);
+        buffer.registrar(1L, 10L, false);
+        buffer.registrar(1L, 10L, true);
+        buffer.registrar(2L, 10L, false);
+        assertEquals(Boolean.TRUE, buffer.pendiente(1L, 10L));
+        assertEquals(Boolean.FALSE, buffer.pendiente(2L, 10L));
+
+        assertEquals(2, buffer.vaciar());
+
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT"), altas.capture());
+        assertEquals(1, altas.getValue().size());
+        assertEquals(1L, altas.getValue().get(0)[0]);
+        assertNull(buffer.pendiente(1L, 10L));
+        assertEquals(2L, buffer.getEstadisticas().get("combinados"));
+
+        // Solo la fila insertada de verdad cuenta para la popularidad
+        verify(eventPublisher, times(1)).publishEvent(any(InteresActualizadoEvent.class));
+    }
+
+    @Test
+    void unLoteFallidoVuelveAlBufferSinPisarClicsNuevos() {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT"), anyList()))
+                .thenThrow(new RuntimeException("sin conexión"));
+
+        buffer.registrar(1L, 10L, true);
+        buffer.registrar(1L, 20L, true);
+        assertThrows(RuntimeException.class, buffer::vaciar);
+
+        assertEquals(2, buffer.getPendientes());
+        assertEquals(Boolean.TRUE, buffer.pendiente(1L, 20L));
+        assertEquals(1L, buffer.getEstadisticas().get("errores"));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void sinEscrituraDiferidaSeEscribeEnElActo() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[] { 1 });
+        BufferIntereses directo = new BufferIntereses(jdbcTemplate, mock(PlatformTransactionManager.class),
+                eventPublisher, false, 250, 10_000);
+
+        directo.registrar(1L, 10L, true);
+
+        assertEquals(0, directo.getPendientes());
+        verify(eventPublisher).publishEvent(any(InteresActualizadoEvent.class));
+    }
+
+    /**
+     * Clics por segundo escribiendo cada clic en el acto frente a escribirlos en lotes, con un
+     * JdbcTemplate que simula el viaje de ida y vuelta a la base de datos de cada lote.
+     */
+    @Test
+    @Tag("benchmark")
+    void rendimientoConYSinEscrituraDiferida() throws Exception {
+        JdbcTemplate lento = mock(JdbcTemplate.class);
+        when(lento.batchUpdate(anyString(), anyList())).thenAnswer(inv -> {
+            List<?> filas = inv.getArgument(1);
+            // 200 µs por viaje más 2 µs por fila
+            LockSupport.parkNanos(200_000L + 2_000L * filas.size());
+            int[] afectadas = new int[filas.size()];
+            Arrays.fill(afectadas, 1);
+            return afectadas;
+        });
+
+        for (int hilos : new int[] { 1, 16 }) {
+            double directo = clicsPorSegundo(lento, false, hilos, 2_000);
+            double diferido = clicsPorSegundo(lento, true, hilos, 2_000);
+            System.out.printf("Me interesa con %d hilo(s): %.0f clics/s directo, %.0f clics/s en lotes%n",
+                    hilos, directo, diferido);
+            assertTrue(diferido > directo);
+        }
+    }
+
+    private double clicsPorSegundo(JdbcTemplate jdbc, boolean habilitado, int hilos, int clicsPorHilo)
+            throws Exception {
+        BufferIntereses medido = new BufferIntereses(jdbc, mock(PlatformTransactionManager.class),
+                mock(ApplicationEventPublisher.class), habilitado, 50, 10_000);
+        medido.iniciar();
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        try {
+            long inicio = System.nanoTime();
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                long usuario = h;
+                tareas.add(pool.submit(() -> {
+                    // Cada usuario alterna el interés sobre 50 productos
+                    for (int i = 0; i < clicsPorHilo; i++) {
+                        medido.registrar(usuario, (long) (i % 50), i % 100 < 50);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            // Incluye escribir lo que quede en el buffer
+            medido.detener();
+            assertEquals(0, medido.getPendientes());
+            return (double) hilos * clicsPorHilo * 1_000_000_000L / (System.nanoTime() - inicio);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.multicompany.sales_system.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheLocalTest {
+
+    private final AtomicLong ahora = new AtomicLong();
+
+    @Test
+    void expiraPorTiempoDeVida() {
+        CacheLocal<String, String> cache = new CacheLocal<>("prueba", 100, 1000, ahora::get);
+        cache.put("a", "1");
+        ahora.addAndGet(999_000_000L);
+        assertEquals("1", cache.get("a"));
+        ahora.addAndGet(1_000_000L);
+        assertNull(cache.get("a"));
+        assertEquals(1L, cache.getEstadisticas().get("expiradas"));
+    }
+
+    @Test
+    void lasClavesFrecuentesSobrevivenAUnBarrido() {
+        CacheLocal<Integer, Integer> cache = new CacheLocal<>("prueba", 100, 60_000, ahora::get);
+        for (int i = 0; i < 50; i++) {
+            for (int vez = 0; vez < 5; vez++) {
+                cache.obtener(i, k -> k);
+            }
+        }
+        // Muchas claves que solo se usan una vez, mientras las frecuentes se siguen leyendo
+        for (int i = 1000; i < 6000; i++) {
+            cache.obtener(i, k -> k);
+            cache.obtener(i % 50, k -> k);
+        }
+
+        int presentes = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get(i) != null) {
+                presentes++;
+            }
+        }
+        assertTrue(presentes >= 45, "Claves frecuentes en caché: " + presentes);
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    void unaCargaIniciadaAntesDeInvalidarNoSeGuarda() {
+        CacheLocal<String, String> cache = new CacheLocal<>("prueba", 100, 60_000, ahora::get);
+        AtomicInteger cargas = new AtomicInteger();
+
+        String valor = cache.obtener("p", k -> {
+            cargas.incrementAndGet();
+            cache.invalidar("p");
+            return "viejo";
+        });
+        assertEquals("viejo", valor);
+        assertNull(cache.get("p"));
+
+        assertNotNull(cache.obtener("p", k -> {
+            cargas.incrementAndGet();
+            return "nuevo";
+        }));
+        assertEquals("nuevo", cache.get("p"));
+        assertEquals(2, cargas.get());
+    }
+}
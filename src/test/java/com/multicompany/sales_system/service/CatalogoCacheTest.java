@@ -0,0 +1,76 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.dto.categoria.CategoriaResponseDTO;
+import com.multicompany.sales_system.dto.photo.PhotoResponseDTO;
+import com.multicompany.sales_system.dto.product.ProductResponseDTO;
+import com.multicompany.sales_system.event.ProductoModificadoEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogoCacheTest {
+
+    private final CatalogoCache cache = new CatalogoCache(true, 100, 100, 60_000);
+
+    @Test
+    void modificarLoDevueltoNoAlteraElCache() {
+        AtomicInteger cargas = new AtomicInteger();
+        ProductResponseDTO primero = cache.producto(1L, () -> {
+            cargas.incrementAndGet();
+            return producto(1L);
+        });
+        primero.setNombre("Cambiado");
+        primero.getFotos().get(0).setUrl("otra.jpg");
+        primero.setFotos(new ArrayList<>());
+
+        ProductResponseDTO segundo = cache.producto(1L, () -> producto(99L));
+
+        assertEquals(1, cargas.get());
+        assertNotSame(primero, segundo);
+        assertEquals("Silla", segundo.getNombre());
+        assertEquals("foto.jpg", segundo.getFotos().get(0).getUrl());
+    }
+
+    @Test
+    void listadosYCategoriasTambienSeCopian() {
+        Page<ProductResponseDTO> pagina = cache.listado("clave",
+                () -> new PageImpl<>(List.of(producto(1L)), PageRequest.of(0, 10), 1));
+        pagina.getContent().get(0).getFotos().clear();
+        assertEquals(1, cache.listado("clave", () -> Page.empty()).getContent().get(0).getFotos().size());
+        assertEquals(1, cache.listado("clave", () -> Page.empty()).getTotalElements());
+
+        List<CategoriaResponseDTO> categorias = cache.categoriasActivas(
+                () -> List.of(new CategoriaResponseDTO(1L, "Hogar", null, true, null, 3)));
+        categorias.get(0).setCantidadProductos(0);
+        assertEquals(3, cache.categoriasActivas(List::of).get(0).getCantidadProductos());
+    }
+
+    @Test
+    void productoModificadoSeVuelveACargar() {
+        cache.producto(1L, () -> producto(1L));
+        cache.onProductoModificado(new ProductoModificadoEvent(1L));
+
+        ProductResponseDTO recargado = cache.producto(1L, () -> {
+            ProductResponseDTO p = producto(1L);
+            p.setNombre("Silla nueva");
+            return p;
+        });
+
+        assertEquals("Silla nueva", recargado.getNombre());
+    }
+
+    private static ProductResponseDTO producto(Long id) {
+        ProductResponseDTO dto = new ProductResponseDTO();
+        dto.setIdProducto(id);
+        dto.setNombre("Silla");
+        dto.setFotos(new ArrayList<>(List.of(new PhotoResponseDTO(10L, "foto.jpg", id))));
+        return dto;
+    }
+}
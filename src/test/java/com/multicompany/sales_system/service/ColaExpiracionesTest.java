@@ -0,0 +1,42 @@
+package com.multicompany.sales_system.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColaExpiracionesTest {
+
+    @Test
+    void soloExtraeLoQueYaVencio() {
+        ColaExpiraciones cola = new ColaExpiraciones(1000);
+        cola.programar(1L, 10_000);
+        cola.programar(2L, 10_500);
+        cola.programar(3L, 12_000);
+
+        // La ranura siempre es posterior al vencimiento: en t=10000 aún no vence nada
+        assertTrue(cola.extraerVencidos(10_000).isEmpty());
+        assertEquals(List.of(1L, 2L), cola.extraerVencidos(11_000).stream().sorted().toList());
+        assertEquals(1, cola.size());
+        assertEquals(13_000L, cola.proximaRanura());
+        assertTrue(cola.extraerVencidos(11_000).isEmpty());
+    }
+
+    @Test
+    void reprogramarYCancelarReemplazanLaEntradaAnterior() {
+        ColaExpiraciones cola = new ColaExpiraciones(1000);
+        cola.programar(1L, 5_000);
+        cola.programar(1L, 60_000);
+        cola.programar(2L, 5_000);
+        cola.cancelar(2L);
+
+        assertTrue(cola.extraerVencidos(10_000).isEmpty());
+        assertEquals(1, cola.size());
+        assertEquals(List.of(1L), cola.extraerVencidos(61_000));
+        assertEquals(0, cola.size());
+        assertNull(cola.proximaRanura());
+    }
+}
@@ -0,0 +1,95 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.event.PalabrasProhibidasActualizadasEvent;
+import com.multicompany.sales_system.model.Configuracion;
+import com.multicompany.sales_system.repository.ConfiguracionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ConfiguracionServiceTest {
+
+    private ConfiguracionRepository configuracionRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private ConfiguracionService service;
+
+    @BeforeEach
+    void setUp() {
+        configuracionRepository = mock(ConfiguracionRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = new ConfiguracionService(configuracionRepository, eventPublisher);
+    }
+
+    @Test
+    void lecturasSalenDelSnapshotSinConsultarLaBase() {
+        when(configuracionRepository.findAll()).thenReturn(List.of(
+                config(Configuracion.Opcion.FILTRO_PALABRAS, " Estafa,ARMA ,"),
+                config(Configuracion.Opcion.EXPIRACION_CONFIG, "15")));
+        service.cargarAlIniciar();
+
+        assertEquals(List.of("estafa", "arma"), service.getPalabrasProhibidas());
+        assertEquals(15, service.getDiasExpiracion());
+        assertEquals(15, service.getDiasExpiracion());
+        verify(configuracionRepository, times(1)).findAll();
+        assertEquals(3L, service.getEstadisticasCache().get("aciertos"));
+    }
+
+    @Test
+    void escrituraRecargaElSnapshot() {
+        Configuracion dias = config(Configuracion.Opcion.EXPIRACION_CONFIG, "15");
+        when(configuracionRepository.findAll()).thenReturn(List.of(dias));
+        when(configuracionRepository.findByOpcion(Configuracion.Opcion.EXPIRACION_CONFIG)).thenReturn(Optional.of(dias));
+        service.cargarAlIniciar();
+
+        service.updateDiasExpiracion(45);
+
+        assertEquals(45, service.getDiasExpiracion());
+    }
+
+    @Test
+    void reconciliarAvisaSiOtraInstanciaCambioLasPalabras() {
+        when(configuracionRepository.findAll())
+                .thenReturn(List.of(config(Configuracion.Opcion.FILTRO_PALABRAS, "estafa")))
+                .thenReturn(List.of(config(Configuracion.Opcion.FILTRO_PALABRAS, "estafa,fraude")));
+        service.cargarAlIniciar();
+
+        service.reconciliar();
+
+        assertEquals(List.of("estafa", "fraude"), service.getPalabrasProhibidas());
+        verify(eventPublisher).publishEvent(new PalabrasProhibidasActualizadasEvent(List.of("estafa", "fraude")));
+    }
+
+    @Test
+    void recargaLentaNoPisaUnSnapshotMasNuevo() {
+        Configuracion dias = config(Configuracion.Opcion.EXPIRACION_CONFIG, "15");
+        when(configuracionRepository.findByOpcion(Configuracion.Opcion.EXPIRACION_CONFIG)).thenReturn(Optional.of(dias));
+        // La reconciliación lee "15", y antes de publicar su snapshot una escritura guarda 45 y recarga
+        when(configuracionRepository.findAll())
+                .thenAnswer(inv -> {
+                    List<Configuracion> leidas = List.of(config(Configuracion.Opcion.EXPIRACION_CONFIG, "15"));
+                    service.updateDiasExpiracion(45);
+                    return leidas;
+                })
+                .thenAnswer(inv -> List.of(config(Configuracion.Opcion.EXPIRACION_CONFIG, dias.getValor())));
+
+        service.reconciliar();
+
+        assertEquals(45, service.getDiasExpiracion());
+        verify(configuracionRepository, times(2)).findAll();
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    private static Configuracion config(Configuracion.Opcion opcion, String valor) {
+        Configuracion config = new Configuracion();
+        config.setOpcion(opcion);
+        config.setValor(valor);
+        return config;
+    }
+}
@@ -0,0 +1,113 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.event.MensajeEnviadoEvent;
+import com.multicompany.sales_system.event.MensajesLeidosEvent;
+import com.multicompany.sales_system.repository.ChatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ContadoresNoLeidosTest {
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> filas;
+
+    private ChatRepository chatRepository;
+    private JdbcTemplate jdbcTemplate;
+    private SimpMessagingTemplate messagingTemplate;
+    private ContadoresNoLeidos contadores;
+
+    @BeforeEach
+    void setUp() {
+        chatRepository = mock(ChatRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        // Sin iniciar(): solo se guarda al llamar a guardar()
+        contadores = new ContadoresNoLeidos(chatRepository, jdbcTemplate, messagingTemplate, 1000, 100, 60_000);
+    }
+
+    @Test
+    void cargaUnaVezYLuegoCuentaEnMemoria() {
+        when(chatRepository.findNoLeidosByUsuario(2L))
+                .thenReturn(List.of(new Object[] { 5L, 4 }, new Object[] { 6L, 1 }));
+
+        contadores.onMensajeEnviado(new MensajeEnviadoEvent(5L, 100L, 1L, 2L));
+        contadores.onMensajeEnviado(new MensajeEnviadoEvent(7L, 101L, 3L, 2L));
+
+        assertEquals(5, contadores.noLeidos(2L, 5L));
+        assertEquals(7, contadores.totalNoLeidos(2L));
+        verify(chatRepository, times(1)).findNoLeidosByUsuario(2L);
+
+        ArgumentCaptor<Object> notificacion = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(2)).convertAndSend(eq("/queue/no-leidos.2"), notificacion.capture());
+        assertEquals(7, ((Map<?, ?>) notificacion.getValue()).get("totalNoLeidos"));
+    }
+
+    @Test
+    void guardaSoloIncrementosYLeerDescartaLoPendiente() {
+        when(chatRepository.findNoLeidosByUsuario(2L)).thenReturn(List.<Object[]>of(new Object[] { 5L, 4 }));
+        when(chatRepository.findNoLeidosByUsuario(3L)).thenReturn(List.of());
+
+        contadores.onMensajeEnviado(new MensajeEnviadoEvent(5L, 100L, 1L, 2L));
+        contadores.onMensajeEnviado(new MensajeEnviadoEvent(5L, 101L, 1L, 2L));
+        contadores.onMensajeEnviado(new MensajeEnviadoEvent(6L, 102L, 1L, 3L));
+        // El chat 6 se lee antes de guardar: la tabla ya quedó a cero al marcar
+        contadores.onMensajesLeidos(new MensajesLeidosEvent(6L, 3L, 102L));
+
+        assertEquals(6, contadores.noLeidos(2L, 5L));
+        assertEquals(0, contadores.totalNoLeidos(3L));
+        assertEquals(1, contadores.guardar());
+
+        verify(jdbcTemplate).batchUpdate(contains("no_leidos_usuario1 + CASE"), filas.capture());
+        // Se suma lo recibido (2), no el total en memoria (6)
+        assertEquals(List.of(2L, 2, 2L, 2, 5L), List.of(filas.getValue().get(0)));
+        assertEquals(0, contadores.guardar());
+    }
+
+    @Test
+    void alRecargarSumaLoQueAunNoSeGuardo() throws Exception {
+        // Caché que caduca en 1 ms
+        contadores = new ContadoresNoLeidos(chatRepository, jdbcTemplate, messagingTemplate, 1000, 100, 1);
+        when(chatRepository.findNoLeidosByUsuario(2L))
+                .thenReturn(List.<Object[]>of(new Object[] { 5L, 4 }))
+                .thenReturn(List.<Object[]>of(new Object[] { 5L, 10 }));
+
+        contadores.onMensajeEnviado(new MensajeEnviadoEvent(5L, 100L, 1L, 2L));
+        Thread.sleep(5);
+
+        // Otra instancia sumó en la tabla: se recarga y se añade lo pendiente de esta
+        assertEquals(11, contadores.noLeidos(2L, 5L));
+    }
+
+    @Test
+    void unGuardadoFallidoSeReintenta() {
+        when(chatRepository.findNoLeidosByUsuario(2L)).thenReturn(List.of());
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("sin conexión"));
+
+        contadores.onMensajeEnviado(new MensajeEnviadoEvent(5L, 100L, 1L, 2L));
+        try {
+            contadores.guardar();
+        } catch (RuntimeException ignored) {
+            // se reintenta en el siguiente guardado
+        }
+
+        reset(jdbcTemplate);
+        assertEquals(1, contadores.guardar());
+    }
+}
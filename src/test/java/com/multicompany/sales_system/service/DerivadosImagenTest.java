@@ -0,0 +1,164 @@
+package com.multicompany.sales_system.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DerivadosImagenTest {
+
+    @TempDir
+    Path directorio;
+
+    private DerivadosImagen derivados;
+    private Path original;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        FileStorageService storage = mock(FileStorageService.class);
+        when(storage.getStorageLocation()).thenReturn(directorio);
+        derivados = new DerivadosImagen(storage, 2, 10, 0.8f, 40_000_000);
+
+        // Foto típica de móvil: 3000px de ancho con degradado y ruido para que no comprima trivialmente
+        BufferedImage imagen = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = imagen.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.ORANGE, 3000, 2000, Color.BLUE));
+        g.fillRect(0, 0, 3000, 2000);
+        g.dispose();
+        Random random = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            imagen.setRGB(random.nextInt(3000), random.nextInt(2000), random.nextInt());
+        }
+        original = directorio.resolve("producto_1_abc.png");
+        ImageIO.write(imagen, "png", original.toFile());
+    }
+
+    @AfterEach
+    void tearDown() {
+        derivados.detener();
+    }
+
+    @Test
+    void derivadosReducenElTamanoYConservanProporcion() throws Exception {
+        long bytesOriginal = Files.size(original);
+        derivados.programar(original).get(10, TimeUnit.SECONDS);
+
+        for (DerivadosImagen.Tamano tamano : DerivadosImagen.Tamano.values()) {
+            Path derivado = derivados.obtener(original, tamano);
+            BufferedImage leida = ImageIO.read(derivado.toFile());
+
+            assertEquals(directorio.resolve("derivados").resolve(tamano.getNombre()).resolve("producto_1_abc.jpg"), derivado);
+            assertEquals(tamano.getAncho(), leida.getWidth());
+            assertEquals(tamano.getAncho() * 2 / 3, leida.getHeight(), 1);
+        }
+        // Una tarjeta de listado pesa al menos un orden de magnitud menos que el original
+        assertTrue(Files.size(derivados.obtener(original, DerivadosImagen.Tamano.TARJETA)) * 10 < bytesOriginal);
+        assertEquals(3L, derivados.getEstadisticas().get("generados"));
+    }
+
+    @Test
+    void laPeticionNoEsperaYLasSimultaneasGeneranUnaSolaVez() throws Exception {
+        int clientes = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(clientes);
+        CountDownLatch salida = new CountDownLatch(1);
+        Path detalle = directorio.resolve("derivados").resolve("detail").resolve("producto_1_abc.jpg");
+        try {
+            List<Future<Path>> tareas = new ArrayList<>();
+            for (int i = 0; i < clientes; i++) {
+                tareas.add(pool.submit(() -> {
+                    salida.await();
+                    return derivados.obtener(original, DerivadosImagen.Tamano.DETALLE);
+                }));
+            }
+            salida.countDown();
+            for (Future<Path> tarea : tareas) {
+                // null: aún se genera y se sirve el original; si no, ya es el derivado
+                Path ruta = tarea.get();
+                assertTrue(ruta == null || ruta.equals(detalle));
+            }
+            derivados.programar(original).get(10, TimeUnit.SECONDS);
+
+            assertEquals(detalle, derivados.obtener(original, DerivadosImagen.Tamano.DETALLE));
+            // Una sola decodificación para los tres tamaños
+            assertEquals(3L, derivados.getEstadisticas().get("generados"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void imagenPequenaOIlegibleDevuelveElOriginalSinVolverAAbrirla() throws Exception {
+        Path pequena = directorio.resolve("producto_1_pequena.png");
+        ImageIO.write(new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB), "png", pequena.toFile());
+        Path ilegible = Files.write(directorio.resolve("producto_1_x.webp"), new byte[] { 'R', 'I', 'F', 'F' });
+
+        assertNull(derivados.obtener(pequena, DerivadosImagen.Tamano.MINIATURA));
+        derivados.programar(pequena).get(10, TimeUnit.SECONDS);
+        derivados.programar(ilegible).get(10, TimeUnit.SECONDS);
+
+        assertEquals(pequena, derivados.obtener(pequena, DerivadosImagen.Tamano.MINIATURA));
+        assertEquals(ilegible, derivados.obtener(ilegible, DerivadosImagen.Tamano.MINIATURA));
+        // El resultado se recuerda: aunque el archivo cambiara no se vuelve a decodificar
+        Files.copy(original, ilegible, StandardCopyOption.REPLACE_EXISTING);
+        assertEquals(ilegible, derivados.obtener(ilegible, DerivadosImagen.Tamano.DETALLE));
+        assertEquals(0L, derivados.getEstadisticas().get("generados"));
+    }
+
+    @Test
+    void imagenDemasiadoGrandeNoSeDecodifica() throws Exception {
+        FileStorageService storage = mock(FileStorageService.class);
+        when(storage.getStorageLocation()).thenReturn(directorio);
+        DerivadosImagen limitados = new DerivadosImagen(storage, 1, 10, 0.8f, 1_000_000);
+        try {
+            // 3000x2000 = 6 Mpx: solo se lee la cabecera
+            limitados.programar(original).get(10, TimeUnit.SECONDS);
+
+            assertEquals(original, limitados.obtener(original, DerivadosImagen.Tamano.TARJETA));
+            assertEquals(0L, limitados.getEstadisticas().get("generados"));
+            assertEquals(3L, limitados.getEstadisticas().get("sinGenerar"));
+        } finally {
+            limitados.detener();
+        }
+    }
+
+    @Test
+    void alSubirSeGeneranEnSegundoPlanoYAlBorrarSeEliminan() throws Exception {
+        derivados.programar(original).get(10, TimeUnit.SECONDS);
+        Path miniatura = directorio.resolve("derivados").resolve("thumb").resolve("producto_1_abc.jpg");
+        Path detalle = directorio.resolve("derivados").resolve("detail").resolve("producto_1_abc.jpg");
+        assertTrue(Files.exists(miniatura));
+        assertTrue(Files.exists(detalle));
+
+        derivados.eliminar("producto_1_abc.png");
+
+        assertFalse(Files.exists(miniatura));
+        assertFalse(Files.exists(detalle));
+    }
+
+    @Test
+    void tamanoDesconocidoSeRechaza() {
+        assertEquals(DerivadosImagen.Tamano.TARJETA, DerivadosImagen.Tamano.desde("CARD"));
+        assertThrows(RuntimeException.class, () -> DerivadosImagen.Tamano.desde("xl"));
+    }
+}
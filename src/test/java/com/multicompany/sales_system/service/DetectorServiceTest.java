@@ -0,0 +1,158 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.event.PalabrasProhibidasActualizadasEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DetectorServiceTest {
+
+    private ConfiguracionService configuracionService;
+    private DetectorService detector;
+
+    @BeforeEach
+    void setUp() {
+        configuracionService = mock(ConfiguracionService.class);
+        when(configuracionService.getPalabrasProhibidas()).thenReturn(List.of("estafa"));
+        detector = new DetectorService(configuracionService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        detector.detenerCompilador();
+    }
+
+    @Test
+    void eventoRecompilaEnSegundoPlanoYLuegoSeUsanLasNuevasReglas() throws Exception {
+        assertTrue(detector.containsProhibited("Oferta: estafa segura"));
+        assertEquals(1, detector.getVersionReglas());
+
+        CountDownLatch liberar = new CountDownLatch(1);
+        AtomicReference<String> hiloCompilador = new AtomicReference<>();
+        PalabrasProhibidasActualizadasEvent evento = mock(PalabrasProhibidasActualizadasEvent.class);
+        when(evento.getPalabras()).thenAnswer(inv -> {
+            hiloCompilador.set(Thread.currentThread().getName());
+            liberar.await(5, TimeUnit.SECONDS);
+            return List.of(" Fraude ");
+        });
+
+        // El oyente no bloquea al publicador: la compilación queda pendiente en otro hilo
+        detector.onPalabrasActualizadas(evento);
+        assertEquals(1, detector.getVersionReglas());
+        assertTrue(detector.containsProhibited("estafa"));
+
+        liberar.countDown();
+        esperarVersion(2);
+
+        assertEquals("detector-reglas", hiloCompilador.get());
+        assertTrue(detector.containsProhibited("Esto es FRAUDE"));
+        assertFalse(detector.containsProhibited("estafa"));
+        assertEquals(List.of("fraude"), detector.findMatchedWords("un fraude, otro fraude"));
+        verify(configuracionService, times(1)).getPalabrasProhibidas();
+    }
+
+    @Test
+    void recompilacionAntiguaNoReemplazaUnaVersionMasNueva() throws Exception {
+        detector.containsProhibited("calentar");
+
+        // La versión 2 queda retenida en el compilador mientras una recarga publica la 3
+        CountDownLatch liberar = new CountDownLatch(1);
+        PalabrasProhibidasActualizadasEvent antiguo = mock(PalabrasProhibidasActualizadasEvent.class);
+        when(antiguo.getPalabras()).thenAnswer(inv -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return List.of("vieja");
+        });
+        detector.onPalabrasActualizadas(antiguo);
+
+        when(configuracionService.getPalabrasProhibidas()).thenReturn(List.of("nueva"));
+        detector.reload();
+        assertEquals(3, detector.getVersionReglas());
+
+        // El compilador es un único hilo en orden de llegada: cuando atiende el siguiente
+        // evento, la versión 2 ya intentó publicarse
+        AtomicLong versionTrasAntigua = new AtomicLong();
+        AtomicBoolean detectaNueva = new AtomicBoolean();
+        AtomicBoolean detectaVieja = new AtomicBoolean();
+        CountDownLatch comprobado = new CountDownLatch(1);
+        PalabrasProhibidasActualizadasEvent sonda = mock(PalabrasProhibidasActualizadasEvent.class);
+        when(sonda.getPalabras()).thenAnswer(inv -> {
+            versionTrasAntigua.set(detector.getVersionReglas());
+            detectaNueva.set(detector.containsProhibited("nueva"));
+            detectaVieja.set(detector.containsProhibited("vieja"));
+            comprobado.countDown();
+            return List.of("nueva");
+        });
+        liberar.countDown();
+        detector.onPalabrasActualizadas(sonda);
+
+        assertTrue(comprobado.await(5, TimeUnit.SECONDS));
+        assertEquals(3, versionTrasAntigua.get());
+        assertTrue(detectaNueva.get());
+        assertFalse(detectaVieja.get());
+        esperarVersion(4);
+    }
+
+    @Test
+    void verificacionEnCursoConservaLasReglasConLasQueEmpezo() throws Exception {
+        when(configuracionService.getPalabrasProhibidas()).thenReturn(List.of("alfa"));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            sb.append("alfa texto de relleno beta ");
+        }
+        String texto = sb.toString();
+        detector.containsProhibited(texto);
+
+        // Mientras se alternan las reglas, cada verificación debe ver una sola versión:
+        // o solo "alfa" o solo "beta", nunca una mezcla ni ninguna de las dos
+        AtomicBoolean activo = new AtomicBoolean(true);
+        ExecutorService lectores = Executors.newFixedThreadPool(4);
+        List<Future<List<List<String>>>> resultados = new ArrayList<>();
+        for (int l = 0; l < 4; l++) {
+            resultados.add(lectores.submit(() -> {
+                List<List<String>> vistos = new ArrayList<>();
+                while (activo.get() || vistos.isEmpty()) {
+                    vistos.add(detector.findMatchedWords(texto));
+                }
+                return vistos;
+            }));
+        }
+        try {
+            for (int i = 0; i < 200; i++) {
+                detector.onPalabrasActualizadas(new PalabrasProhibidasActualizadasEvent(
+                        List.of(i % 2 == 0 ? "beta" : "alfa")));
+            }
+            esperarVersion(201);
+        } finally {
+            activo.set(false);
+            lectores.shutdown();
+        }
+
+        for (Future<List<List<String>>> resultado : resultados) {
+            for (List<String> encontradas : resultado.get(10, TimeUnit.SECONDS)) {
+                assertTrue(encontradas.equals(List.of("alfa")) || encontradas.equals(List.of("beta")),
+                        encontradas.toString());
+            }
+        }
+    }
+
+    private void esperarVersion(long version) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (detector.getVersionReglas() < version) {
+            if (System.nanoTime() > limite) {
+                fail("La versión " + version + " no se publicó; vigente " + detector.getVersionReglas());
+            }
+            Thread.sleep(5);
+        }
+        assertEquals(version, detector.getVersionReglas());
+    }
+}
@@ -0,0 +1,194 @@
+package com.multicompany.sales_system.service;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntregaImagenesTest {
+
+    @TempDir
+    Path directorio;
+
+    private final EntregaImagenes entrega = new EntregaImagenes();
+    private Path imagen;
+    private byte[] contenido;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        contenido = new byte[64 * 1024];
+        for (int i = 0; i < contenido.length; i++) {
+            contenido[i] = (byte) i;
+        }
+        imagen = Files.write(directorio.resolve("producto_1_abc.jpg"), contenido);
+    }
+
+    @Test
+    void respuestaCompletaConCabecerasDeCache() throws Exception {
+        MockHttpServletResponse respuesta = pedir(r -> { });
+
+        assertEquals(200, respuesta.getStatus());
+        assertArrayEquals(contenido, respuesta.getContentAsByteArray());
+        assertEquals(EntregaImagenes.CACHE_CONTROL, respuesta.getHeader("Cache-Control"));
+        assertEquals("bytes", respuesta.getHeader("Accept-Ranges"));
+        assertNotNull(respuesta.getHeader("ETag"));
+        assertEquals("image/jpeg", respuesta.getContentType());
+    }
+
+    @Test
+    void etagOFechaIgualesDevuelven304() throws Exception {
+        MockHttpServletResponse primera = pedir(r -> { });
+        String etag = primera.getHeader("ETag");
+        long modificado = primera.getDateHeader("Last-Modified");
+
+        MockHttpServletResponse porEtag = pedir(r -> r.addHeader("If-None-Match", "\"otro\", " + etag));
+        MockHttpServletResponse porFecha = pedir(r -> r.addHeader("If-Modified-Since", modificado));
+        // If-None-Match manda aunque la fecha coincida
+        MockHttpServletResponse etagDistinto = pedir(r -> {
+            r.addHeader("If-None-Match", "\"otro\"");
+            r.addHeader("If-Modified-Since", modificado);
+        });
+
+        assertEquals(304, porEtag.getStatus());
+        assertEquals(0, porEtag.getContentAsByteArray().length);
+        assertEquals(304, porFecha.getStatus());
+        assertEquals(200, etagDistinto.getStatus());
+    }
+
+    @Test
+    void rangosDeBytes() throws Exception {
+        MockHttpServletResponse parcial = pedir(r -> r.addHeader("Range", "bytes=100-199"));
+        assertEquals(206, parcial.getStatus());
+        assertEquals("bytes 100-199/65536", parcial.getHeader("Content-Range"));
+        assertEquals(100, parcial.getContentAsByteArray().length);
+        assertEquals(contenido[100], parcial.getContentAsByteArray()[0]);
+
+        MockHttpServletResponse sufijo = pedir(r -> r.addHeader("Range", "bytes=-10"));
+        assertEquals("bytes 65526-65535/65536", sufijo.getHeader("Content-Range"));
+
+        MockHttpServletResponse fueraDeRango = pedir(r -> r.addHeader("Range", "bytes=70000-"));
+        assertEquals(416, fueraDeRango.getStatus());
+        assertEquals("bytes */65536", fueraDeRango.getHeader("Content-Range"));
+
+        // Varios rangos o un If-Range de otra versión: archivo completo
+        assertEquals(200, pedir(r -> r.addHeader("Range", "bytes=0-1,5-6")).getStatus());
+        assertEquals(200, pedir(r -> {
+            r.addHeader("Range", "bytes=0-1");
+            r.addHeader("If-Range", "\"otra-version\"");
+        }).getStatus());
+    }
+
+    @Test
+    void conSendfileNoSeEscribeElCuerpo() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/photos/image/producto_1_abc.jpg");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=10-19");
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+
+        entrega.entregar(imagen, "image/jpeg", request, respuesta);
+
+        assertEquals(0, respuesta.getContentAsByteArray().length);
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(20L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(10, respuesta.getContentLength());
+    }
+
+    /**
+     * Peticiones por segundo con 1, 64 y 512 clientes concurrentes: descarga completa frente a
+     * revalidación (304), que es lo que hace un navegador al volver a recorrer el catálogo.
+     */
+    @Test
+    @Tag("benchmark")
+    void rendimientoConcurrente() throws Exception {
+        String etag = pedir(r -> { }).getHeader("ETag");
+        for (int clientes : new int[] { 1, 64, 512 }) {
+            double completas = peticionesPorSegundo(clientes, r -> { });
+            double revalidadas = peticionesPorSegundo(clientes, r -> r.addHeader("If-None-Match", etag));
+            System.out.printf("Imágenes con %d cliente(s): %.0f pet/s completas, %.0f pet/s con 304%n",
+                    clientes, completas, revalidadas);
+        }
+    }
+
+    private double peticionesPorSegundo(int clientes, Consumer<MockHttpServletRequest> cabeceras) throws Exception {
+        int porCliente = Math.max(10, 4_000 / clientes);
+        ExecutorService pool = Executors.newFixedThreadPool(clientes);
+        try {
+            long inicio = System.nanoTime();
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int c = 0; c < clientes; c++) {
+                tareas.add(pool.submit(() -> {
+                    for (int i = 0; i < porCliente; i++) {
+                        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/photos/image/x.jpg");
+                        cabeceras.accept(request);
+                        entrega.entregar(imagen, "image/jpeg", request, new RespuestaDescartada());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+            return (double) clientes * porCliente * 1_000_000_000L / (System.nanoTime() - inicio);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Respuesta que descarta el cuerpo: MockHttpServletResponse escribe byte a byte y
+     * dominaría la medición.
+     */
+    private static final class RespuestaDescartada extends HttpServletResponseWrapper {
+        private final ServletOutputStream salida = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+        };
+
+        RespuestaDescartada() {
+            super(new MockHttpServletResponse());
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return salida;
+        }
+    }
+
+    private MockHttpServletResponse pedir(Consumer<MockHttpServletRequest> cabeceras) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/photos/image/producto_1_abc.jpg");
+        cabeceras.accept(request);
+        MockHttpServletResponse respuesta = new MockHttpServletResponse();
+        entrega.entregar(imagen, "image/jpeg", request, respuesta);
+        return respuesta;
+    }
+}
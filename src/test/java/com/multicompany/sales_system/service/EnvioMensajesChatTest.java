@@ -0,0 +1,226 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.controller.WebSocketChatController;
+import com.multicompany.sales_system.dto.message.MensajeRequestDTO;
+import com.multicompany.sales_system.event.MensajeEnviadoEvent;
+import com.multicompany.sales_system.repository.ChatRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EnvioMensajesChatTest {
+
+    @Captor
+    private ArgumentCaptor<List<Object[]>> filas;
+
+    private ParticipantesChat participantesChat;
+    private ChatRepository chatRepository;
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private SimpMessagingTemplate messagingTemplate;
+    private EnvioMensajesChat envio;
+
+    @BeforeEach
+    void setUp() {
+        participantesChat = mock(ParticipantesChat.class);
+        chatRepository = mock(ChatRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        messagingTemplate = mock(SimpMessagingTemplate.class);
+        envio = new EnvioMensajesChat(participantesChat, chatRepository, jdbcTemplate,
+                mock(PlatformTransactionManager.class), eventPublisher, messagingTemplate, 500, 2, 4);
+
+        lenient().when(participantesChat.obtener(5L))
+                .thenReturn(new ParticipantesChat.Participantes(5L, 1L, "Ana", 2L, "Luis"));
+        // Bloques de 4 ids de la secuencia, una consulta por bloque
+        lenient().when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any()))
+                .thenReturn(List.of(100L, 101L, 102L, 103L), List.of(104L, 105L, 106L, 107L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        envio.detener();
+    }
+
+    @Test
+    void entregaAlAceptarYGuardaEnOrdenEnUnLote() {
+        EnvioMensajesChat.MensajeAceptado primero = envio.aceptar(request(1L, "Hola"), "ana@correo.com");
+        EnvioMensajesChat.MensajeAceptado segundo = envio.aceptar(request(1L, "¿Sigue disponible?"), "ana@correo.com");
+        envio.aceptar(request(2L, "Sí"), "luis@correo.com");
+
+        assertEquals(100L, primero.getMensaje().getIdMensaje());
+        assertEquals(101L, segundo.getMensaje().getIdMensaje());
+        assertEquals("Ana", primero.getMensaje().getNombreEmisor());
+        assertEquals(2L, primero.getIdReceptor());
+        // Nada se ha guardado todavía: el escritor no está en marcha
+        verifyNoInteractions(chatRepository, eventPublisher);
+
+        envio.iniciar();
+
+        verify(jdbcTemplate, timeout(2000)).batchUpdate(anyString(), filas.capture());
+        assertEquals(List.of(100L, 101L, 102L), filas.getValue().stream().map(f -> f[0]).toList());
+        // Un solo resumen por chat: el del último mensaje del lote
+        verify(chatRepository, timeout(2000)).registrarMensaje(eq(5L), eq(102L), eq("Sí"), eq(2L), any());
+        verify(chatRepository, times(1)).registrarMensaje(any(), any(), any(), any(), any());
+        verify(eventPublisher, timeout(2000)).publishEvent(new MensajeEnviadoEvent(5L, 102L, 2L, 1L));
+    }
+
+    @Test
+    void emisorAjenoAlChatSeRechazaSinReservarId() {
+        assertThrows(RuntimeException.class, () -> envio.aceptar(request(9L, "Hola"), "otro@correo.com"));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void laReservaSeReponeAntesDeAgotarseYLosIdsSiguenCreciendo() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            ids.add(envio.aceptar(request(1L, "Mensaje " + i), "ana@correo.com").getMensaje().getIdMensaje());
+        }
+
+        assertEquals(List.of(100L, 101L, 102L, 103L, 104L, 105L), ids);
+        // El segundo bloque se pidió en segundo plano al bajar la reserva de la mitad
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(Long.class), any());
+        assertEquals(2L, envio.getEstadisticas().get("bloquesIds"));
+    }
+
+    @Test
+    void loteFallidoSeNotificaAlPrincipalDelEmisor() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("sin conexión"));
+
+        envio.aceptar(request(1L, "Hola"), "ana@correo.com");
+        envio.iniciar();
+
+        // Las colas /user se resuelven por el nombre del principal (el correo), no por el id
+        verify(messagingTemplate, timeout(2000))
+                .convertAndSendToUser(eq("ana@correo.com"), eq("/queue/errors"), contains("100"));
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyList());
+        verify(participantesChat).invalidar(5L);
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void elReceptorSaleDeLosParticipantesSinImportarElOrden() {
+        // Chat guardado como (menor, mayor): el emisor es el segundo participante
+        when(participantesChat.obtener(8L))
+                .thenReturn(new ParticipantesChat.Participantes(8L, 3L, "Eva", 11L, "Juan"));
+        MensajeRequestDTO request = request(11L, "Hola");
+        request.setIdChat(8L);
+
+        EnvioMensajesChat.MensajeAceptado aceptado = envio.aceptar(request, "juan@correo.com");
+
+        assertEquals(3L, aceptado.getIdReceptor());
+        assertEquals("Juan", aceptado.getMensaje().getNombreEmisor());
+        verifyNoInteractions(chatRepository);
+    }
+
+    /**
+     * Latencia de aceptar a entregar (el controlador difunde al chat y al receptor) con 16
+     * chats en paralelo y un JdbcTemplate que simula la ida y vuelta a la secuencia. Compara
+     * un id por consulta con bloques de 1000 ids repuestos en segundo plano.
+     */
+    @Test
+    @Tag("benchmark")
+    void latenciaDeAceptarAEntregar() throws Exception {
+        JdbcTemplate lento = mock(JdbcTemplate.class);
+        AtomicLong secuencia = new AtomicLong();
+        when(lento.queryForList(anyString(), eq(Long.class), any())).thenAnswer(inv -> {
+            int cantidad = inv.getArgument(2);
+            // 300 µs por ida y vuelta
+            LockSupport.parkNanos(300_000);
+            List<Long> bloque = new ArrayList<>(cantidad);
+            for (int i = 0; i < cantidad; i++) {
+                bloque.add(secuencia.incrementAndGet());
+            }
+            return bloque;
+        });
+        when(participantesChat.obtener(anyLong())).thenAnswer(inv -> new ParticipantesChat.Participantes(
+                inv.getArgument(0), 1L, "Ana", 2L, "Luis"));
+
+        for (boolean imprimir : new boolean[] { false, true }) {
+            for (int bloque : new int[] { 1, 1000 }) {
+                EnvioMensajesChat medido = new EnvioMensajesChat(participantesChat, chatRepository, lento,
+                        mock(PlatformTransactionManager.class), eventPublisher, messagingTemplate, 500, 2, bloque);
+                WebSocketChatController controlador = new WebSocketChatController(mock(ChatService.class), medido,
+                        new SimpMessagingTemplate((mensaje, timeout) -> true));
+                try {
+                    long[] latencias = medirEntregas(controlador, 16, 500);
+                    long p99 = latencias[(int) Math.ceil(latencias.length * 0.99) - 1];
+                    if (imprimir) {
+                        System.out.printf("Chat aceptar→entregar con bloques de %d id(s): p50 %d us, p99 %d us%n",
+                                bloque, latencias[latencias.length / 2] / 1000, p99 / 1000);
+                        if (bloque > 1) {
+                            // Objetivo: entregar en menos de 5 ms
+                            assertTrue(p99 < 5_000_000L);
+                        }
+                    }
+                } finally {
+                    medido.detener();
+                }
+            }
+        }
+    }
+
+    private static long[] medirEntregas(WebSocketChatController controlador, int chats, int porChat)
+            throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(chats);
+        try {
+            List<Future<long[]>> tareas = new ArrayList<>();
+            for (int c = 0; c < chats; c++) {
+                long idChat = 1_000 + c;
+                tareas.add(pool.submit(() -> {
+                    long[] latencias = new long[porChat];
+                    for (int i = 0; i < porChat; i++) {
+                        MensajeRequestDTO request = request(1L, "Mensaje " + i);
+                        request.setIdChat(idChat);
+                        long inicio = System.nanoTime();
+                        controlador.enviarMensaje(request, () -> "ana@correo.com");
+                        latencias[i] = System.nanoTime() - inicio;
+                    }
+                    return latencias;
+                }));
+            }
+            List<Long> todas = new ArrayList<>();
+            for (Future<long[]> tarea : tareas) {
+                for (long latencia : tarea.get()) {
+                    todas.add(latencia);
+                }
+            }
+            return todas.stream().mapToLong(Long::longValue).sorted().toArray();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static MensajeRequestDTO request(Long idEmisor, String contenido) {
+        MensajeRequestDTO request = new MensajeRequestDTO();
+        request.setIdChat(5L);
+        request.setIdEmisor(idEmisor);
+        request.setContenido(contenido);
+        return request;
+    }
+}
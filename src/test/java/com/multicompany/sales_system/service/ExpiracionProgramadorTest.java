@@ -0,0 +1,95 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.model.Producto;
+import com.multicompany.sales_system.model.enums.EstadoProducto;
+import com.multicompany.sales_system.repository.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class ExpiracionProgramadorTest {
+
+    private ProductRepository productRepository;
+    private ProductoRestriccionService productoRestriccionService;
+    private ExpiracionProgramador programador;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        productoRestriccionService = mock(ProductoRestriccionService.class);
+        programador = new ExpiracionProgramador(productRepository, productoRestriccionService);
+        ReflectionTestUtils.setField(programador, "horizonteHoras", 6L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        programador.detener();
+    }
+
+    @Test
+    void tickExpiraSoloLosProductosVencidos() {
+        // La cola redondea al segundo siguiente: 2 s atrás ya está vencido
+        programador.programar(producto(1L, EstadoProducto.ACTIVO, LocalDateTime.now().minusSeconds(2)));
+        programador.programar(producto(2L, EstadoProducto.ACTIVO, LocalDateTime.now().plusHours(1)));
+
+        programador.tick();
+
+        verify(productoRestriccionService).expirarProductos(List.of(1L));
+        assertEquals(1, programador.getPendientes());
+
+        // Sin vencidos no se consulta la base de datos
+        programador.tick();
+        verifyNoMoreInteractions(productoRestriccionService);
+    }
+
+    @Test
+    void productoInactivoOFueraDelHorizonteNoSeProgramaYCancelaElAnterior() {
+        programador.programar(producto(1L, EstadoProducto.ACTIVO, LocalDateTime.now().plusMinutes(5)));
+        programador.programar(producto(1L, EstadoProducto.OCULTO, LocalDateTime.now().plusMinutes(5)));
+        programador.programar(producto(2L, EstadoProducto.ACTIVO, LocalDateTime.now().plusMinutes(5)));
+        programador.programar(producto(2L, EstadoProducto.ACTIVO, LocalDateTime.now().plusDays(3)));
+        programador.programar(producto(3L, EstadoProducto.ACTIVO, null));
+
+        assertEquals(0, programador.getPendientes());
+    }
+
+    @Test
+    void recargarHorizonteLlenaLaColaDesdeLaBase() {
+        List<Object[]> filas = List.of(
+                new Object[] { 7L, LocalDateTime.now().minusMinutes(1) },
+                new Object[] { 8L, LocalDateTime.now().plusHours(2) });
+        when(productRepository.findExpiracionesHasta(any())).thenReturn(filas);
+
+        programador.recargarHorizonte();
+        programador.tick();
+
+        assertEquals(1, programador.getPendientes());
+        verify(productoRestriccionService).expirarProductos(List.of(7L));
+    }
+
+    @Test
+    void errorAlExpirarNoDetieneElReloj() {
+        when(productoRestriccionService.expirarProductos(anyCollection())).thenThrow(new RuntimeException("sin conexión"));
+        programador.programar(producto(1L, EstadoProducto.ACTIVO, LocalDateTime.now().minusSeconds(2)));
+
+        assertDoesNotThrow(programador::tick);
+    }
+
+    private static Producto producto(Long id, EstadoProducto estado, LocalDateTime fechaExpiracion) {
+        Producto producto = new Producto();
+        producto.setIdProducto(id);
+        producto.setEstado(estado);
+        producto.setFechaExpiracion(fechaExpiracion);
+        return producto;
+    }
+}
@@ -0,0 +1,122 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.event.InteresActualizadoEvent;
+import com.multicompany.sales_system.event.ProductoModificadoEvent;
+import com.multicompany.sales_system.event.ProductosExpiradosEvent;
+import com.multicompany.sales_system.model.enums.EstadoProducto;
+import com.multicompany.sales_system.repository.ProductRepository;
+import com.multicompany.sales_system.repository.ProductoInteresadoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IndicePopularidadTest {
+
+    private static final long HORA_MS = 3_600_000L;
+
+    private final AtomicLong ahora = new AtomicLong(1_000 * HORA_MS);
+    private IndicePopularidad indice;
+    private ProductoInteresadoRepository productoInteresadoRepository;
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        productoInteresadoRepository = mock(ProductoInteresadoRepository.class);
+        productRepository = mock(ProductRepository.class);
+        indice = new IndicePopularidad(productoInteresadoRepository, productRepository);
+        indice.setReloj(ahora::get);
+        indice.setVidaMediaHoras(1);
+    }
+
+    @Test
+    void topPopularesOrdenaPorTotalYRespetaK() {
+        interes(1L, 3);
+        interes(2L, 5);
+        interes(3L, 1);
+        indice.onInteresActualizado(new InteresActualizadoEvent(2L, false));
+
+        List<IndicePopularidad.Entrada> top = indice.topPopulares(2);
+        assertEquals(List.of(2L, 1L), top.stream().map(IndicePopularidad.Entrada::getIdProducto).toList());
+        assertEquals(4L, top.get(0).getTotal());
+    }
+
+    @Test
+    void laTendenciaFavoreceLosInteresesRecientes() {
+        interes(1L, 8);
+        ahora.addAndGet(3 * HORA_MS);
+        interes(2L, 2);
+
+        // 8 intereses con 3 vidas medias valen 1; los 2 recientes valen 2
+        List<IndicePopularidad.Entrada> tendencias = indice.topTendencias(2);
+        assertEquals(2L, tendencias.get(0).getIdProducto());
+        assertEquals(1.0, tendencias.get(1).getTendencia(), 1e-9);
+        assertEquals(1L, indice.topPopulares(1).get(0).getIdProducto());
+    }
+
+    @Test
+    void losProductosExpiradosSalenDelIndice() {
+        interes(1L, 2);
+        interes(2L, 1);
+        indice.onProductosExpirados(new ProductosExpiradosEvent(List.of(1L)));
+
+        assertEquals(1, indice.size());
+        assertTrue(indice.topPopulares(10).stream().noneMatch(e -> e.getIdProducto().equals(1L)));
+    }
+
+    @Test
+    void productoProhibidoOEliminadoSaleYVuelveAlReactivarse() {
+        interes(1L, 3);
+        interes(2L, 1);
+        when(productRepository.findEstadoById(1L)).thenReturn(Optional.of(EstadoProducto.PROHIBIDO));
+        when(productRepository.findEstadoById(2L)).thenReturn(Optional.of(EstadoProducto.ACTIVO));
+
+        indice.onProductoModificado(new ProductoModificadoEvent(1L));
+        indice.onProductoModificado(new ProductoModificadoEvent(2L));
+        // Una baja sobre un producto fuera del índice no lo vuelve a crear
+        indice.onInteresActualizado(new InteresActualizadoEvent(1L, false));
+
+        assertEquals(List.of(2L), indice.topPopulares(10).stream().map(IndicePopularidad.Entrada::getIdProducto).toList());
+
+        // Tras la apelación vuelve ACTIVO: los contadores se recargan de la base de datos
+        when(productRepository.findEstadoById(1L)).thenReturn(Optional.of(EstadoProducto.ACTIVO));
+        when(productoInteresadoRepository.countInteresesByProducto(1L)).thenReturn(3L);
+        when(productoInteresadoRepository.sumarTendenciaDeProducto(eq(1L), any(), any(), anyDouble()))
+                .thenReturn(List.<Object[]>of(new Object[] { 1L, 2.5 }));
+        indice.onProductoModificado(new ProductoModificadoEvent(1L));
+
+        IndicePopularidad.Entrada recargada = indice.topPopulares(1).get(0);
+        assertEquals(1L, recargada.getIdProducto());
+        assertEquals(3L, recargada.getTotal());
+        assertEquals(2.5, recargada.getTendencia(), 1e-9);
+    }
+
+    @Test
+    void reconstruirUsaConsultasAgregadasPorProducto() {
+        when(productoInteresadoRepository.contarInteresesVigentesPorProducto())
+                .thenReturn(List.<Object[]>of(new Object[] { 1L, 10L }, new Object[] { 2L, 4L }));
+        when(productoInteresadoRepository.sumarTendenciaPorProducto(any(), any(), eq(3600.0)))
+                .thenReturn(List.<Object[]>of(new Object[] { 2L, 3.0 }));
+
+        indice.reconstruir();
+
+        assertEquals(2, indice.size());
+        assertEquals(1L, indice.topPopulares(1).get(0).getIdProducto());
+        assertEquals(2L, indice.topTendencias(1).get(0).getIdProducto());
+        assertEquals(3.0, indice.topTendencias(1).get(0).getTendencia(), 1e-9);
+    }
+
+    private void interes(Long idProducto, int veces) {
+        for (int i = 0; i < veces; i++) {
+            indice.onInteresActualizado(new InteresActualizadoEvent(idProducto, true));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.model.Chat;
+import com.multicompany.sales_system.model.Usuario;
+import com.multicompany.sales_system.repository.ChatRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ParticipantesChatTest {
+
+    private ChatRepository chatRepository;
+    private ParticipantesChat participantesChat;
+
+    @BeforeEach
+    void setUp() {
+        chatRepository = mock(ChatRepository.class);
+        participantesChat = new ParticipantesChat(chatRepository, 100, 60_000);
+    }
+
+    @Test
+    void cargarUnChatLlenaTambienElIndicePorPareja() {
+        when(chatRepository.findParticipantes(5L))
+                .thenReturn(List.<Object[]>of(new Object[] { 2L, "Luis", 7L, "Ana" }));
+
+        ParticipantesChat.Participantes participantes = participantesChat.obtener(5L);
+        participantesChat.obtener(5L);
+
+        assertTrue(participantes.incluye(7L));
+        assertFalse(participantes.incluye(9L));
+        assertEquals(2L, participantes.otro(7L));
+        assertEquals(5L, participantesChat.buscarChat(7L, 2L));
+        verify(chatRepository, times(1)).findParticipantes(5L);
+        verifyNoMoreInteractions(chatRepository);
+    }
+
+    @Test
+    void chatRegistradoNoSeConsulta() {
+        Chat chat = new Chat();
+        chat.setIdChat(5L);
+        chat.setUsuario1(usuario(2L, "Luis"));
+        chat.setUsuario2(usuario(7L, "Ana"));
+
+        participantesChat.registrar(chat);
+
+        assertEquals(5L, participantesChat.buscarChat(2L, 7L));
+        assertEquals("Ana", participantesChat.obtener(5L).nombre(7L));
+        verifyNoInteractions(chatRepository);
+    }
+
+    @Test
+    void parejaSinChatNoSeGuarda() {
+        when(chatRepository.findIdByParticipantes(2L, 7L)).thenReturn(Optional.empty(), Optional.of(5L));
+
+        assertNull(participantesChat.buscarChat(7L, 2L));
+        assertEquals(5L, participantesChat.buscarChat(2L, 7L));
+        assertThrows(RuntimeException.class, () -> participantesChat.obtener(99L));
+    }
+
+    private static Usuario usuario(Long id, String nombre) {
+        Usuario usuario = new Usuario();
+        usuario.setIdUsuario(id);
+        usuario.setNombre(nombre);
+        return usuario;
+    }
+}
@@ -0,0 +1,185 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.dto.interes.ProductoPopularDTO;
+import com.multicompany.sales_system.dto.product.ProductResponseDTO;
+import com.multicompany.sales_system.model.enums.EstadoProducto;
+import com.multicompany.sales_system.repository.ProductoInteresadoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductoInteresadoServiceTest {
+
+    private IndicePopularidad indicePopularidad;
+    private ProductService productService;
+    private ProductoInteresadoService service;
+
+    @BeforeEach
+    void setUp() {
+        indicePopularidad = mock(IndicePopularidad.class);
+        productService = mock(ProductService.class);
+        service = new ProductoInteresadoService(mock(ProductoInteresadoRepository.class), indicePopularidad,
+                productService, mock(BufferIntereses.class));
+
+        // Índice con muchos productos: los pares están activos, los impares eliminados
+        when(indicePopularidad.topPopulares(anyInt())).thenAnswer(inv -> LongStream
+                .rangeClosed(1, (int) inv.getArgument(0))
+                .mapToObj(id -> new IndicePopularidad.Entrada(id, 1000 - id, 0))
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void descartaInactivosYPideMasCandidatos() {
+        when(productService.getProductsByIds(anyList())).thenAnswer(inv -> tarjetas(inv.getArgument(0),
+                id -> id % 2 == 0 ? EstadoProducto.ACTIVO : EstadoProducto.ELIMINADO));
+
+        List<ProductoPopularDTO> top = service.obtenerProductosMasPopulares(5);
+
+        assertEquals(List.of(2L, 4L, 6L, 8L, 10L),
+                top.stream().map(p -> p.getProducto().getIdProducto()).toList());
+        verify(productService, times(1)).getProductsByIds(anyList());
+    }
+
+    @Test
+    void rankingConCasiTodoInactivoTieneRondasYCandidatosAcotados() {
+        when(productService.getProductsByIds(anyList())).thenAnswer(inv -> tarjetas(inv.getArgument(0),
+                id -> EstadoProducto.PROHIBIDO));
+
+        assertTrue(service.obtenerProductosMasPopulares(10).isEmpty());
+        verify(productService, times(3)).getProductsByIds(anyList());
+        verify(indicePopularidad).topPopulares(20);
+        verify(indicePopularidad).topPopulares(40);
+        verify(indicePopularidad).topPopulares(80);
+
+        clearInvocations(productService, indicePopularidad);
+        assertTrue(service.obtenerProductosMasPopulares(100).isEmpty());
+        verify(indicePopularidad).topPopulares(200);
+        verify(indicePopularidad).topPopulares(400);
+        verify(indicePopularidad, times(2)).topPopulares(anyInt());
+    }
+
+    @Test
+    void escribeLosPendientesDentroDeUnaTransaccionDeSoloLectura() {
+        GestorTransaccionesEnMemoria gestor = new GestorTransaccionesEnMemoria();
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        // Como PostgreSQL: un INSERT/DELETE en una transacción de solo lectura falla
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(inv -> {
+            if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                throw new TransientDataAccessResourceException("cannot execute INSERT in a read-only transaction");
+            }
+            List<?> filas = inv.getArgument(1);
+            int[] afectadas = new int[filas.size()];
+            Arrays.fill(afectadas, 1);
+            return afectadas;
+        });
+        ProductoInteresadoRepository repository = mock(ProductoInteresadoRepository.class);
+        when(repository.findByUsuarioIdUsuarioOrderByFechaInteresDesc(anyLong(), any())).thenReturn(Page.empty());
+        ProductResponseDTO activo = new ProductResponseDTO();
+        activo.setEstado(EstadoProducto.ACTIVO.name());
+        when(productService.getProductById(anyLong())).thenReturn(activo);
+
+        // Los métodos del servicio son @Transactional(readOnly = true)
+        TransactionTemplate soloLectura = new TransactionTemplate(gestor);
+        soloLectura.setReadOnly(true);
+
+        BufferIntereses diferido = new BufferIntereses(jdbcTemplate, gestor, mock(ApplicationEventPublisher.class),
+                true, 250, 10_000);
+        ProductoInteresadoService conBuffer = new ProductoInteresadoService(repository, indicePopularidad,
+                productService, diferido);
+        assertEquals(Boolean.TRUE, soloLectura.execute(s -> conBuffer.agregarInteres(1L, 10L)));
+        soloLectura.executeWithoutResult(s -> {
+            conBuffer.obtenerProductosInteres(1L, PageRequest.of(0, 10));
+            // La transacción del llamador sigue siendo la de solo lectura
+            assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        });
+        assertEquals(0, diferido.getPendientes());
+
+        BufferIntereses directo = new BufferIntereses(jdbcTemplate, gestor, mock(ApplicationEventPublisher.class),
+                false, 250, 10_000);
+        ProductoInteresadoService sinBuffer = new ProductoInteresadoService(repository, indicePopularidad,
+                productService, directo);
+        assertEquals(Boolean.TRUE, soloLectura.execute(s -> sinBuffer.agregarInteres(2L, 10L)));
+        assertEquals(0, directo.getPendientes());
+        assertEquals(0L, directo.getEstadisticas().get("errores"));
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT"), anyList());
+    }
+
+    private static List<ProductResponseDTO> tarjetas(List<Long> ids,
+            LongFunction<EstadoProducto> estado) {
+        return ids.stream().map(id -> {
+            ProductResponseDTO dto = new ProductResponseDTO();
+            dto.setIdProducto(id);
+            dto.setEstado(estado.apply(id).name());
+            return dto;
+        }).collect(Collectors.toList());
+    }
+
+    /**
+     * Gestor de transacciones sin base de datos: solo lleva la transacción del hilo, con
+     * suspensión y reanudación, para que la propagación se comporte como la real.
+     */
+    private static class GestorTransaccionesEnMemoria extends AbstractPlatformTransactionManager {
+
+        private final ThreadLocal<Object> actual = new ThreadLocal<>();
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object[] { actual.get() };
+        }
+
+        @Override
+        protected boolean isExistingTransaction(Object transaction) {
+            return ((Object[]) transaction)[0] != null;
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            actual.set(transaction);
+        }
+
+        @Override
+        protected Object doSuspend(Object transaction) {
+            Object suspendida = actual.get();
+            actual.remove();
+            return suspendida;
+        }
+
+        @Override
+        protected void doResume(Object transaction, Object suspendida) {
+            actual.set(suspendida);
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doCleanupAfterCompletion(Object transaction) {
+            actual.remove();
+        }
+    }
+}
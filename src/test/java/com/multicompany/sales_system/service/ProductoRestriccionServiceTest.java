@@ -0,0 +1,83 @@
+package com.multicompany.sales_system.service;
+
+import com.multicompany.sales_system.event.ProductosExpiradosEvent;
+import com.multicompany.sales_system.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductoRestriccionServiceTest {
+
+    private ProductRepository productRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private ProductoRestriccionService service;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = new ProductoRestriccionService(productRepository, mock(DetectorService.class),
+                mock(IncidenciaService.class), mock(PlatformTransactionManager.class), eventPublisher);
+        ReflectionTestUtils.setField(service, "tamanoLote", 2);
+    }
+
+    @Test
+    void expiraPorLotesHastaUnLoteIncompleto() {
+        when(productRepository.expirarLote(any(), eq(2)))
+                .thenReturn(List.of(1L, 2L), List.of(3L, 4L), List.of(5L));
+
+        ProductoRestriccionService.ResultadoExpiracion resultado = service.expirarProductos();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), resultado.getIdsExpirados());
+        assertEquals(3, resultado.getLotes());
+        // Un lote incompleto significa que no quedan más: no se hace otra consulta
+        verify(productRepository, times(3)).expirarLote(any(), eq(2));
+        verify(eventPublisher).publishEvent(new ProductosExpiradosEvent(List.of(1L, 2L)));
+        verify(eventPublisher).publishEvent(new ProductosExpiradosEvent(List.of(3L, 4L)));
+        verify(eventPublisher).publishEvent(new ProductosExpiradosEvent(List.of(5L)));
+        assertSame(resultado, service.getUltimaEjecucion());
+    }
+
+    @Test
+    void loteVacioTerminaSinPublicarEventos() {
+        when(productRepository.expirarLote(any(), eq(2))).thenReturn(List.of(1L, 2L), List.of());
+
+        ProductoRestriccionService.ResultadoExpiracion resultado = service.expirarProductos();
+
+        assertEquals(2, resultado.getProcesados());
+        assertEquals(1, resultado.getLotes());
+        verify(productRepository, times(2)).expirarLote(any(), eq(2));
+        verify(eventPublisher, times(1)).publishEvent(any(ProductosExpiradosEvent.class));
+
+        reset(eventPublisher);
+        when(productRepository.expirarLote(any(), eq(2))).thenReturn(List.of());
+        assertEquals(0, service.procesarProductosExpirados());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void expirarPorIdsDivideEnLotesYSoloPublicaLosAfectados() {
+        when(productRepository.expirarPorIds(anyCollection(), any()))
+                .thenReturn(List.of(1L), List.of(), List.of(5L));
+
+        List<Long> expirados = service.expirarProductos(List.of(1L, 2L, 3L, 4L, 5L));
+
+        assertEquals(List.of(1L, 5L), expirados);
+        verify(productRepository).expirarPorIds(eq(List.of(1L, 2L)), any());
+        verify(productRepository).expirarPorIds(eq(List.of(3L, 4L)), any());
+        verify(productRepository).expirarPorIds(eq(List.of(5L)), any());
+        verify(eventPublisher).publishEvent(new ProductosExpiradosEvent(List.of(1L)));
+        verify(eventPublisher).publishEvent(new ProductosExpiradosEvent(List.of(5L)));
+        verifyNoMoreInteractions(eventPublisher);
+        assertEquals(List.of(), service.expirarProductos(List.of()));
+    }
+}
@@ -0,0 +1,61 @@
+package com.multicompany.sales_system.service.impl;
+
+import com.multicompany.sales_system.dto.categoria.CategoriaResponseDTO;
+import com.multicompany.sales_system.model.Categoria;
+import com.multicompany.sales_system.repository.CategoriaRepository;
+import com.multicompany.sales_system.service.CatalogoCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CategoriaServiceImplTest {
+
+    @Mock
+    private CategoriaRepository categoriaRepository;
+
+    @Spy
+    private CatalogoCache catalogoCache = new CatalogoCache(false, 10, 10, 1000);
+
+    @InjectMocks
+    private CategoriaServiceImpl categoriaService;
+
+    /**
+     * Listar categorías debe costar una consulta de categorías y una de conteos.
+     */
+    @Test
+    void categoriasActivasCuentanProductosEnUnaSolaConsulta() {
+        List<Categoria> categorias = new ArrayList<>();
+        for (long id = 1; id <= 30; id++) {
+            Categoria categoria = new Categoria("Categoría " + id, null);
+            categoria.setIdCategoria(id);
+            categorias.add(categoria);
+        }
+        when(categoriaRepository.findByActivoOrderByNombreAsc(true)).thenReturn(categorias);
+        when(categoriaRepository.countProductosByCategoriaIds(anyCollection()))
+                .thenReturn(List.of(new Object[] { 1L, 4L }, new Object[] { 7L, 2L }));
+
+        List<CategoriaResponseDTO> resultado = categoriaService.getCategoriasActivas();
+
+        verify(categoriaRepository, times(1)).countProductosByCategoriaIds(anyCollection());
+        verify(categoriaRepository, never()).countProductosByCategoriaId(any());
+        assertEquals(30, resultado.size());
+        assertEquals(4, resultado.get(0).getCantidadProductos());
+        assertEquals(2, resultado.get(6).getCantidadProductos());
+        assertEquals(0, resultado.get(1).getCantidadProductos());
+    }
+}
@@ -0,0 +1,222 @@
+package com.multicompany.sales_system.service.impl;
+
+import com.multicompany.sales_system.dto.chat.ChatResponseDTO;
+import com.multicompany.sales_system.dto.chat.LecturaResponseDTO;
+import com.multicompany.sales_system.dto.common.CursorPageDTO;
+import com.multicompany.sales_system.dto.message.MensajeResponseDTO;
+import com.multicompany.sales_system.event.MensajesLeidosEvent;
+import com.multicompany.sales_system.model.Chat;
+import com.multicompany.sales_system.model.Usuario;
+import com.multicompany.sales_system.repository.ChatRepository;
+import com.multicompany.sales_system.repository.MensajeRepository;
+import com.multicompany.sales_system.repository.UsuarioRepository;
+import com.multicompany.sales_system.repository.projection.MensajeResumen;
+import com.multicompany.sales_system.service.ContadoresNoLeidos;
+import com.multicompany.sales_system.service.ParticipantesChat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChatServiceImplTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    private final SpelAwareProxyProjectionFactory proyecciones = new SpelAwareProxyProjectionFactory();
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @Mock
+    private MensajeRepository mensajeRepository;
+
+    @Mock
+    private UsuarioRepository usuarioRepository;
+
+    @Mock
+    private ContadoresNoLeidos contadoresNoLeidos;
+
+    @Mock
+    private ParticipantesChat participantesChat;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ChatServiceImpl chatService;
+
+    @Test
+    void primeraPaginaDevuelveLosMasRecientesYElCursor() {
+        when(mensajeRepository.findResumenesByChatAntesDe(eq(5L), isNull(), isNull(), eq(PageRequest.of(0, 3))))
+                .thenReturn(mensajes(30, 29, 28));
+
+        CursorPageDTO<MensajeResponseDTO> pagina = chatService.obtenerMensajesPorChat(5L, null, 2);
+
+        assertEquals(List.of(30L, 29L), pagina.getContent().stream().map(MensajeResponseDTO::getIdMensaje).toList());
+        assertTrue(pagina.isHasNext());
+        assertEquals("29", pagina.getNextCursor());
+        verify(mensajeRepository, never()).findFechaEnvio(any(), any());
+        verify(chatRepository, never()).findById(any());
+    }
+
+    @Test
+    void paginaAnteriorUsaLaFechaDelCursor() {
+        when(mensajeRepository.findFechaEnvio(5L, 29L)).thenReturn(Optional.of(BASE.plusMinutes(29)));
+        when(mensajeRepository.findResumenesByChatAntesDe(5L, BASE.plusMinutes(29), 29L, PageRequest.of(0, 3)))
+                .thenReturn(mensajes(28));
+
+        CursorPageDTO<MensajeResponseDTO> pagina = chatService.obtenerMensajesPorChat(5L, 29L, 2);
+
+        assertEquals(1, pagina.getSize());
+        assertFalse(pagina.isHasNext());
+        assertNull(pagina.getNextCursor());
+    }
+
+    @Test
+    void bandejaUsaElResumenSinCargarMensajes() {
+        Chat chat = new Chat();
+        chat.setIdChat(5L);
+        chat.setUsuario1(usuario(1L, "Ana"));
+        chat.setUsuario2(usuario(2L, "Luis"));
+        chat.setUltimoMensaje("¿Sigue disponible?");
+        chat.setIdEmisorUltimoMensaje(1L);
+        chat.setNoLeidosUsuario1(0);
+        chat.setNoLeidosUsuario2(3);
+        when(chatRepository.findBandejaByUsuario(2L)).thenReturn(List.of(chat));
+        when(contadoresNoLeidos.noLeidos(2L, 5L)).thenReturn(3);
+
+        ChatResponseDTO dto = chatService.obtenerChatsPorUsuario(2L).get(0);
+
+        assertEquals("Ana", dto.getNombreContraparte());
+        assertEquals("¿Sigue disponible?", dto.getUltimoMensaje());
+        assertEquals(3, dto.getNoLeidos());
+        assertNull(dto.getMensajes());
+        verify(mensajeRepository, never()).findResumenesByChat(any());
+    }
+
+    @Test
+    void marcarLeidoEsUnaSentenciaHastaElUltimoMensaje() {
+        when(chatRepository.findEstadoLectura(5L, 2L)).thenReturn(estadoLectura(90L, 40L));
+        when(mensajeRepository.marcarLeidos(5L, 2L, BASE.plusMinutes(90))).thenReturn(12);
+
+        LecturaResponseDTO lectura = chatService.marcarMensajesComoLeidos(5L, 2L);
+
+        assertEquals(12, lectura.getMarcados());
+        assertEquals(90L, lectura.getLeidoHasta());
+        verify(chatRepository).actualizarLeidoHasta(5L, 2L, 90L);
+        verify(chatRepository).reiniciarNoLeidos(5L, 2L);
+        verify(eventPublisher).publishEvent(new MensajesLeidosEvent(5L, 2L, 90L));
+    }
+
+    @Test
+    void marcarLeidoBajoLaMarcaIncluyeMensajesConfirmadosTarde() {
+        // La marca ya está en el último mensaje, pero uno anterior se confirmó después de ella
+        when(chatRepository.findEstadoLectura(5L, 2L)).thenReturn(estadoLectura(90L, 90L));
+        when(contadoresNoLeidos.noLeidos(2L, 5L)).thenReturn(1);
+        when(mensajeRepository.marcarLeidos(5L, 2L, BASE.plusMinutes(90))).thenReturn(1);
+
+        assertEquals(1, chatService.marcarMensajesComoLeidos(5L, 2L).getMarcados());
+        verify(chatRepository, never()).actualizarLeidoHasta(any(), any(), any());
+        verify(chatRepository).reiniciarNoLeidos(5L, 2L);
+    }
+
+    @Test
+    void marcarLeidoConIdMenorDeOtraInstanciaMueveLaMarca() {
+        // El último mensaje (por fecha) tiene un id menor que la marca: salió del bloque de otra instancia
+        when(chatRepository.findEstadoLectura(5L, 2L)).thenReturn(estadoLectura(40L, 90L));
+        when(mensajeRepository.marcarLeidos(5L, 2L, BASE.plusMinutes(40))).thenReturn(1);
+
+        assertEquals(40L, chatService.marcarMensajesComoLeidos(5L, 2L).getLeidoHasta());
+        verify(chatRepository).actualizarLeidoHasta(5L, 2L, 40L);
+    }
+
+    @Test
+    void marcarLeidoSinNadaNuevoNoEscribe() {
+        when(chatRepository.findEstadoLectura(5L, 2L)).thenReturn(estadoLectura(90L, 90L));
+
+        LecturaResponseDTO lectura = chatService.marcarMensajesComoLeidos(5L, 2L);
+
+        assertEquals(0, lectura.getMarcados());
+        assertEquals(90L, lectura.getLeidoHasta());
+        verifyNoInteractions(mensajeRepository, eventPublisher);
+        verify(chatRepository, never()).reiniciarNoLeidos(any(), any());
+        verify(chatRepository, never()).actualizarLeidoHasta(any(), any(), any());
+    }
+
+    /** Fila de findEstadoLectura; la fecha del último mensaje es BASE + id minutos. */
+    private static List<Object[]> estadoLectura(Long ultimo, Long leidoHasta) {
+        return List.<Object[]>of(new Object[] { ultimo, BASE.plusMinutes(ultimo), leidoHasta });
+    }
+
+    @Test
+    void crearChatGuardaLosParticipantesComoMenorMayor() {
+        Chat chat = new Chat();
+        chat.setIdChat(5L);
+        chat.setUsuario1(usuario(2L, "Luis"));
+        chat.setUsuario2(usuario(7L, "Ana"));
+        when(usuarioRepository.existsById(any())).thenReturn(true);
+        when(chatRepository.findByParticipantes(2L, 7L)).thenReturn(Optional.of(chat));
+
+        ChatResponseDTO dto = chatService.crearObtenerChat(7L, 2L);
+
+        verify(chatRepository).crearSiNoExiste(2L, 7L);
+        verify(participantesChat).registrar(chat);
+        assertEquals("Luis", dto.getNombreContraparte());
+    }
+
+    @Test
+    void chatConocidoNoConsultaPorParticipantes() {
+        Chat chat = new Chat();
+        chat.setIdChat(5L);
+        chat.setUsuario1(usuario(2L, "Luis"));
+        chat.setUsuario2(usuario(7L, "Ana"));
+        when(participantesChat.buscarChat(7L, 2L)).thenReturn(5L);
+        when(chatRepository.findById(5L)).thenReturn(Optional.of(chat));
+
+        assertEquals(5L, chatService.crearObtenerChat(7L, 2L).getIdChat());
+        verify(chatRepository, never()).findByParticipantes(any(), any());
+        verify(chatRepository, never()).crearSiNoExiste(any(), any());
+    }
+
+    private static Usuario usuario(Long id, String nombre) {
+        Usuario usuario = new Usuario();
+        usuario.setIdUsuario(id);
+        usuario.setNombre(nombre);
+        return usuario;
+    }
+
+    private List<MensajeResumen> mensajes(long... ids) {
+        List<MensajeResumen> resultado = new ArrayList<>();
+        for (long id : ids) {
+            resultado.add(proyecciones.createProjection(MensajeResumen.class, Map.of(
+                    "idMensaje", id,
+                    "idChat", 5L,
+                    "idEmisor", 1L,
+                    "nombreEmisor", "Ana",
+                    "contenido", "Mensaje " + id,
+                    "fechaEnvio", BASE.plusMinutes(id),
+                    "leido", false)));
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,83 @@
+package com.multicompany.sales_system.service.impl;
+
+import com.multicompany.sales_system.model.Producto;
+import com.multicompany.sales_system.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class InMemoryProductSearchIndexTest {
+
+    private ProductRepository productRepository;
+    private InMemoryProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        productRepository = mock(ProductRepository.class);
+        // Todos los candidatos siguen activos
+        when(productRepository.findIdsActivosByIdIn(anyCollection()))
+                .thenAnswer(inv -> new ArrayList<>((Collection<Long>) inv.getArgument(0)));
+        index = new InMemoryProductSearchIndex(productRepository);
+
+        index.indexar(producto(1L, "Camión de juguete", "Camiones a escala para niños"));
+        index.indexar(producto(2L, "Mesa de madera", "Mesa rústica con cuatro sillas"));
+        index.indexar(producto(3L, "Silla gamer", "Silla ergonómica con reposabrazos"));
+    }
+
+    @Test
+    void ignoraTildesMayusculasYPlurales() {
+        assertEquals(List.of(1L), index.buscar("CAMIONES", PageRequest.of(0, 10)).getContent());
+        assertEquals(List.of(3L), index.buscar("ergonomica", PageRequest.of(0, 10)).getContent());
+    }
+
+    @Test
+    void ordenaPorRelevanciaYUsaPrefijoEnLaUltimaPalabra() {
+        // "silla" está en el nombre de 3 (peso mayor) y solo en la descripción de 2
+        assertEquals(List.of(3L, 2L), index.buscar("sil", PageRequest.of(0, 10)).getContent());
+        // Todas las palabras deben aparecer
+        assertEquals(List.of(2L), index.buscar("madera sil", PageRequest.of(0, 10)).getContent());
+    }
+
+    @Test
+    void reflejaActualizacionesYEliminaciones() {
+        index.indexar(producto(2L, "Escritorio", "Escritorio de oficina"));
+        assertTrue(index.buscar("mesa", PageRequest.of(0, 10)).isEmpty());
+        assertEquals(List.of(2L), index.buscar("escritorio", PageRequest.of(0, 10)).getContent());
+
+        index.eliminar(2L);
+        assertTrue(index.buscar("escritorio", PageRequest.of(0, 10)).isEmpty());
+    }
+
+    @Test
+    void filtraProductosNoActivosYPagina() {
+        when(productRepository.findIdsActivosByIdIn(anyCollection())).thenReturn(List.of(3L));
+        Page<Long> pagina = index.buscar("silla", PageRequest.of(0, 1));
+        assertEquals(List.of(3L), pagina.getContent());
+        assertEquals(1, pagina.getTotalElements());
+    }
+
+    @Test
+    void buscarEnTodosNoFiltraPorEstado() {
+        when(productRepository.findIdsActivosByIdIn(anyCollection())).thenReturn(List.of(3L));
+        assertEquals(List.of(3L, 2L), index.buscarEnTodos("silla"));
+    }
+
+    private Producto producto(Long id, String nombre, String descripcion) {
+        Producto producto = new Producto();
+        producto.setIdProducto(id);
+        producto.setNombre(nombre);
+        producto.setDescripcion(descripcion);
+        return producto;
+    }
+}
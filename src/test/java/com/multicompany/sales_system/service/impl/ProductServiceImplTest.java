@@ -0,0 +1,153 @@
+package com.multicompany.sales_system.service.impl;
+
+import com.multicompany.sales_system.dto.common.CursorPageDTO;
+import com.multicompany.sales_system.dto.product.OrdenListado;
+import com.multicompany.sales_system.dto.product.ProductResponseDTO;
+import com.multicompany.sales_system.model.enums.EstadoProducto;
+import com.multicompany.sales_system.model.enums.TipoProducto;
+import com.multicompany.sales_system.repository.ProductRepository;
+import com.multicompany.sales_system.repository.ServicioRepository;
+import com.multicompany.sales_system.repository.projection.ProductoResumen;
+import com.multicompany.sales_system.service.CatalogoCache;
+import com.multicompany.sales_system.service.CursorListado;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ProductServiceImplTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private ServicioRepository servicioRepository;
+
+    @Spy
+    private CatalogoCache catalogoCache = new CatalogoCache(false, 10, 10, 1000);
+
+    @InjectMocks
+    private ProductServiceImpl productService;
+
+    private final ProjectionFactory proyecciones = new SpelAwareProxyProjectionFactory();
+
+    /**
+     * El mapeo de una página debe costar una única consulta de horarios,
+     * sin importar el tamaño de la página.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = { 1, 20, 100 })
+    void filtrosCarganHorariosEnUnaSolaConsulta(int tamanoPagina) {
+        Pageable pageable = PageRequest.of(0, tamanoPagina);
+        List<ProductoResumen> productos = new ArrayList<>();
+        List<Object[]> horarios = new ArrayList<>();
+        for (long id = 1; id <= tamanoPagina; id++) {
+            boolean esServicio = id % 2 == 0;
+            productos.add(producto(id, esServicio ? TipoProducto.SERVICIO : TipoProducto.PRODUCTO));
+            if (esServicio) {
+                horarios.add(new Object[] { id, "L-V 08:00-17:00" });
+            }
+        }
+        when(productRepository.findWithFilters(any(), any(), any(), any(), any(), any(), any()))
+                .thenReturn(new PageImpl<>(productos, pageable, productos.size()));
+        when(servicioRepository.findHorariosByProductoIds(anyCollection())).thenReturn(horarios);
+
+        Page<ProductResponseDTO> pagina = productService.getProductsWithFilters(
+                null, null, null, null, null, null, pageable);
+
+        verify(productRepository, times(1)).findWithFilters(any(), any(), any(), any(), any(), any(), any());
+        verify(servicioRepository, times(1)).findHorariosByProductoIds(anyCollection());
+        verify(servicioRepository, never()).findById(any());
+
+        assertEquals(tamanoPagina, pagina.getContent().size());
+        for (ProductResponseDTO dto : pagina.getContent()) {
+            if (dto.getIdProducto() % 2 == 0) {
+                assertEquals("L-V 08:00-17:00", dto.getHorario());
+            } else {
+                assertNull(dto.getHorario());
+            }
+        }
+    }
+
+    @Test
+    void paginaVaciaNoConsultaHorarios() {
+        Pageable pageable = PageRequest.of(0, 20);
+        when(productRepository.findAllResumenes(pageable)).thenReturn(Page.empty(pageable));
+
+        productService.getAllProductsAndServices(pageable);
+
+        verify(servicioRepository, never()).findHorariosByProductoIds(anyCollection());
+        verify(servicioRepository, never()).findById(any());
+    }
+
+    @Test
+    void cursorPideUnaFilaExtraYApuntaAlUltimoElemento() {
+        List<ProductoResumen> filas = new ArrayList<>();
+        for (long id = 30; id > 9; id--) {
+            filas.add(producto(id, TipoProducto.PRODUCTO, LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(id)));
+        }
+        when(productRepository.findWithFiltersRecientesKeyset(any(), any(), any(), any(), any(), any(), any(), any(),
+                eq(PageRequest.of(0, 21)))).thenReturn(filas);
+
+        CursorPageDTO<ProductResponseDTO> pagina = productService.getProductsWithFiltersCursor(
+                null, null, null, null, null, null, OrdenListado.RECIENTES, null, 20);
+
+        assertEquals(20, pagina.getContent().size());
+        assertTrue(pagina.isHasNext());
+        CursorListado cursor = CursorListado.decodificar(pagina.getNextCursor(), OrdenListado.RECIENTES.name());
+        assertEquals(11L, cursor.getId());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 0, 11), cursor.getClaveFecha());
+
+        // Un cursor de otro orden se rechaza
+        assertThrows(RuntimeException.class, () -> productService.getProductsWithFiltersCursor(
+                null, null, null, null, null, null, OrdenListado.PRECIO_ASC, pagina.getNextCursor(), 20));
+    }
+
+    private ProductoResumen producto(Long id, TipoProducto tipo, LocalDateTime fechaPublicacion) {
+        Map<String, Object> valores = new HashMap<>();
+        valores.put("idProducto", id);
+        valores.put("tipo", tipo);
+        valores.put("estado", EstadoProducto.ACTIVO);
+        valores.put("fechaPublicacion", fechaPublicacion);
+        return proyecciones.createProjection(ProductoResumen.class, valores);
+    }
+
+    private ProductoResumen producto(Long id, TipoProducto tipo) {
+        Map<String, Object> valores = new HashMap<>();
+        valores.put("idProducto", id);
+        valores.put("codigo", "prod-" + id);
+        valores.put("nombre", "Producto " + id);
+        valores.put("tipo", tipo);
+        valores.put("estado", EstadoProducto.ACTIVO);
+        return proyecciones.createProjection(ProductoResumen.class, valores);
+    }
+}